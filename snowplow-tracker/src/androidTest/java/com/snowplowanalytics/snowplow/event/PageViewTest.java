@@ -47,7 +47,7 @@ public class PageViewTest extends AndroidTestCase {
     public void testBuilderFailures() {
         boolean exception = false;
         try {
-            new PageView(null);
+            new PageView((String) null);
         } catch (Exception e) {
             assertEquals(null, e.getMessage());
             exception = true;
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.emitter;
+
+import android.test.AndroidTestCase;
+
+public class AdaptiveBatchSizerTest extends AndroidTestCase {
+
+    public void testSizesGrowOnFastFullRounds() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(10, 170, 3, 1000, 10);
+        assertEquals(10, sizer.getEventsPerRequest());
+        assertEquals(1, sizer.getRequestsPerRound());
+
+        sizer.onRoundCompleted(true, 0, 100);
+        assertEquals(20, sizer.getEventsPerRequest());
+
+        // The events per request grow up to the maximum, then the requests
+        for (int i = 0; i < 20; i++) {
+            sizer.onRoundCompleted(true, 0, 100);
+        }
+        assertEquals(170, sizer.getEventsPerRequest());
+        assertEquals(3, sizer.getRequestsPerRound());
+        assertEquals(510, sizer.getEventsPerRound());
+    }
+
+    public void testSizesDontGrowOnPartialRounds() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1, 100, 4, 1000, 25);
+        sizer.onRoundCompleted(false, 0, 100);
+        assertEquals(25, sizer.getEventsPerRequest());
+        assertEquals(1, sizer.getRequestsPerRound());
+    }
+
+    public void testSizesAreHalvedOnSlowOrFailedRounds() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(5, 100, 4, 1000, 100);
+        for (int i = 0; i < 3; i++) {
+            sizer.onRoundCompleted(true, 0, 100);
+        }
+        assertEquals(4, sizer.getRequestsPerRound());
+
+        sizer.onRoundCompleted(true, 0, 1500);
+        assertEquals(50, sizer.getEventsPerRequest());
+        assertEquals(2, sizer.getRequestsPerRound());
+
+        sizer.onRoundCompleted(true, 1, 100);
+        assertEquals(25, sizer.getEventsPerRequest());
+        assertEquals(1, sizer.getRequestsPerRound());
+
+        // The sizes don't go below the minimum
+        for (int i = 0; i < 5; i++) {
+            sizer.onRoundCompleted(true, 1, 100);
+        }
+        assertEquals(5, sizer.getEventsPerRequest());
+        assertEquals(1, sizer.getRequestsPerRound());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.emitter;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Build;
+import android.test.AndroidTestCase;
+
+import com.snowplowanalytics.snowplow.internal.utils.Util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NetworkMonitorTest extends AndroidTestCase {
+
+    public void testStateIsQueriedWhenNotRegistered() {
+        NetworkMonitor monitor = new NetworkMonitor(getContext());
+        assertEquals(Util.isOnline(getContext()), monitor.isOnline());
+        monitor.unregister();
+        assertEquals(Util.isOnline(getContext()), monitor.isOnline());
+    }
+
+    public void testListenerIsNotifiedWhenNetworkBecomesAvailable() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return;
+        }
+        ConnectivityManager cm = (ConnectivityManager) getContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+        Network network = cm.getActiveNetwork();
+        NetworkCapabilities capabilities = network != null ? cm.getNetworkCapabilities(network) : null;
+        if (capabilities == null || !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)) {
+            return; // The device is offline
+        }
+        AtomicInteger notifications = new AtomicInteger();
+        NetworkMonitor monitor = new NetworkMonitor(getContext());
+        assertTrue(monitor.register(notifications::incrementAndGet));
+
+        monitor.onLost(network);
+        monitor.onCapabilitiesChanged(network, capabilities);
+        assertTrue(monitor.isOnline());
+        assertTrue(notifications.get() >= 1);
+
+        // The same capabilities don't notify again
+        int count = notifications.get();
+        monitor.onCapabilitiesChanged(network, capabilities);
+        assertEquals(count, notifications.get());
+        monitor.unregister();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.emitter.storage;
+
+import android.test.AndroidTestCase;
+
+import com.snowplowanalytics.snowplow.emitter.EmitterEvent;
+import com.snowplowanalytics.snowplow.emitter.LeasingEventStore;
+import com.snowplowanalytics.snowplow.payload.Payload;
+import com.snowplowanalytics.snowplow.payload.SelfDescribingJson;
+import com.snowplowanalytics.snowplow.payload.TrackerPayload;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests of the EventStore contract, run against every implementation.
+ */
+public abstract class EventStoreContractTest extends AndroidTestCase {
+
+    static int QUERY_LIMIT = 150;
+
+    /**
+     * @return an empty event store ready to be used
+     */
+    protected abstract LeasingEventStore createEventStore() throws Exception;
+
+    public void testAddEvents() throws Exception {
+        LeasingEventStore eventStore = createEventStore();
+        assertEquals(0, eventStore.getSize());
+        assertEquals(0, eventStore.getEmittableEvents(QUERY_LIMIT).size());
+
+        eventStore.add(getIndexedEvent(0));
+        eventStore.add(getIndexedEvent(1));
+
+        assertEquals(2, eventStore.getSize());
+        List<EmitterEvent> events = eventStore.getEmittableEvents(QUERY_LIMIT);
+        assertEquals(2, events.size());
+        assertEquals("iglu:com.snowplowanalytics.snowplow/example/jsonschema/1-0-0", events.get(0).payload.getMap().get("schema"));
+        assertEquals("0", events.get(0).payload.getMap().get("index"));
+        assertEquals("1", events.get(1).payload.getMap().get("index"));
+    }
+
+    public void testRemoveIndividualEvent() throws Exception {
+        LeasingEventStore eventStore = createEventStore();
+        eventStore.add(getIndexedEvent(0));
+        long id = eventStore.getEmittableEvents(QUERY_LIMIT).get(0).eventId;
+
+        assertTrue(eventStore.removeEvent(id));
+        assertEquals(0, eventStore.getSize());
+        assertFalse(eventStore.removeEvent(id));
+    }
+
+    public void testRemoveRangeOfEvents() throws Exception {
+        LeasingEventStore eventStore = createEventStore();
+        for (int i = 0; i < 5; i++) {
+            eventStore.add(getIndexedEvent(i));
+        }
+        List<Long> ids = getEventIds(eventStore.getEmittableEvents(QUERY_LIMIT));
+
+        assertTrue(eventStore.removeEvents(Arrays.asList(ids.get(0), ids.get(2), ids.get(4))));
+        assertEquals(2, eventStore.getSize());
+        assertFalse(eventStore.removeEvents(Arrays.asList(ids.get(0), ids.get(2))));
+        assertFalse(eventStore.removeEvents(new ArrayList<>()));
+
+        List<EmitterEvent> events = eventStore.getEmittableEvents(QUERY_LIMIT);
+        assertEquals(2, events.size());
+        assertEquals("1", events.get(0).payload.getMap().get("index"));
+        assertEquals("3", events.get(1).payload.getMap().get("index"));
+    }
+
+    public void testRemoveAllEvents() throws Exception {
+        LeasingEventStore eventStore = createEventStore();
+        for (int i = 0; i < 6; i++) {
+            eventStore.add(getIndexedEvent(i));
+        }
+
+        assertEquals(6, eventStore.getSize());
+        eventStore.removeAllEvents();
+        assertEquals(0, eventStore.getSize());
+        assertEquals(0, eventStore.getEmittableEvents(QUERY_LIMIT).size());
+
+        eventStore.add(getIndexedEvent(6));
+        assertEquals(1, eventStore.getSize());
+    }
+
+    public void testSizeFollowsInsertsAndRemovals() throws Exception {
+        LeasingEventStore eventStore = createEventStore();
+        for (int i = 0; i < 5; i++) {
+            eventStore.add(getIndexedEvent(i));
+        }
+        assertEquals(5, eventStore.getSize());
+        List<EmitterEvent> events = eventStore.getEmittableEvents(QUERY_LIMIT);
+        assertEquals(5, eventStore.getSize());
+
+        assertTrue(eventStore.removeEvent(events.get(0).eventId));
+        assertFalse(eventStore.removeEvent(events.get(0).eventId));
+        assertEquals(4, eventStore.getSize());
+        eventStore.removeEvents(Arrays.asList(events.get(1).eventId, events.get(2).eventId));
+        assertEquals(2, eventStore.getSize());
+        assertEquals(2, eventStore.getEmittableEvents(QUERY_LIMIT).size());
+    }
+
+    public void testEmittableEventsAreOldestFirst() throws Exception {
+        LeasingEventStore eventStore = createEventStore();
+        for (int i = 0; i < 5; i++) {
+            eventStore.add(getIndexedEvent(i));
+        }
+
+        List<EmitterEvent> events = eventStore.getEmittableEvents(3);
+        assertEquals(3, events.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.valueOf(i), events.get(i).payload.getMap().get("index"));
+        }
+        assertTrue(events.get(0).eventId < events.get(1).eventId);
+        assertTrue(events.get(1).eventId < events.get(2).eventId);
+    }
+
+    public void testLeasedEventsAreNotLeasedAgain() throws Exception {
+        LeasingEventStore eventStore = createEventStore();
+        for (int i = 0; i < 5; i++) {
+            eventStore.add(getIndexedEvent(i));
+        }
+        List<Long> ids = getEventIds(eventStore.getEmittableEvents(QUERY_LIMIT));
+
+        // The leases page through the events
+        List<EmitterEvent> first = eventStore.lease(2, 60000);
+        List<EmitterEvent> second = eventStore.lease(2, 60000);
+        assertEquals(ids.subList(0, 2), getEventIds(first));
+        assertEquals(ids.subList(2, 4), getEventIds(second));
+
+        assertTrue(eventStore.ack(Arrays.asList(ids.get(0), ids.get(1))));
+        eventStore.release(Arrays.asList(ids.get(2), ids.get(3)));
+        assertEquals(3, eventStore.getSize());
+
+        List<EmitterEvent> third = eventStore.lease(5, 60000);
+        assertEquals(ids.subList(2, 5), getEventIds(third));
+        assertEquals(0, eventStore.lease(5, 60000).size());
+    }
+
+    public void testExpiredLeasesAreLeasedAgain() throws Exception {
+        LeasingEventStore eventStore = createEventStore();
+        eventStore.add(getIndexedEvent(0));
+        long id = eventStore.getEmittableEvents(QUERY_LIMIT).get(0).eventId;
+
+        assertEquals(1, eventStore.lease(1, 100).size());
+        assertEquals(0, eventStore.lease(1, 100).size());
+        Thread.sleep(200);
+
+        List<EmitterEvent> events = eventStore.lease(1, 100);
+        assertEquals(1, events.size());
+        assertEquals(id, events.get(0).eventId);
+    }
+
+    // Helper Methods
+
+    protected static Payload getIndexedEvent(int index) {
+        TrackerPayload trackerPayload = new TrackerPayload();
+        trackerPayload.add("someKey", "someValue");
+        trackerPayload.add("anotherKey", "anotherValue");
+        SelfDescribingJson event = new SelfDescribingJson(
+                "iglu:com.snowplowanalytics.snowplow/example/jsonschema/1-0-0",
+                trackerPayload);
+        TrackerPayload result = new TrackerPayload();
+        result.addMap(event.getMap());
+        result.add("index", String.valueOf(index));
+        return result;
+    }
+
+    private static List<Long> getEventIds(List<EmitterEvent> events) {
+        List<Long> ids = new ArrayList<>();
+        for (EmitterEvent event : events) {
+            ids.add(event.eventId);
+        }
+        return ids;
+    }
+}
@@ -14,9 +14,10 @@
 package com.snowplowanalytics.snowplow.internal.emitter.storage;
 
 import android.content.Context;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
-import android.test.AndroidTestCase;
+import android.util.Log;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -25,13 +26,12 @@ import java.util.List;
 import java.util.Map;
 
 import com.snowplowanalytics.snowplow.emitter.EmitterEvent;
+import com.snowplowanalytics.snowplow.emitter.LeasingEventStore;
 import com.snowplowanalytics.snowplow.payload.Payload;
 import com.snowplowanalytics.snowplow.payload.SelfDescribingJson;
 import com.snowplowanalytics.snowplow.payload.TrackerPayload;
 
-public class EventStoreTest extends AndroidTestCase {
-
-    static int QUERY_LIMIT = 150;
+public class EventStoreTest extends EventStoreContractTest {
 
     private static List<SQLiteEventStore> openedEventStores = new ArrayList<>();
 
@@ -138,64 +138,15 @@ public class EventStoreTest extends AndroidTestCase {
         eventStore.insertEvent(getEvent());
     }
 
-    public void testRemoveAllEvents() throws InterruptedException {
-        SQLiteEventStore eventStore = getEventStore();
-
-        eventStore.add(getEvent());
-        eventStore.add(getEvent());
-        eventStore.add(getEvent());
-        eventStore.add(getEvent());
-        eventStore.add(getEvent());
-        eventStore.add(getEvent());
-
-        assertEquals(6, eventStore.getSize());
-        eventStore.removeAllEvents();
-        assertEquals(0, eventStore.getSize());
-    }
-
-    public void testRemoveIndividualEvent() throws InterruptedException {
+    public void testRemoveEventsOnClosedDatabase() throws InterruptedException {
         SQLiteEventStore eventStore = getEventStore();
 
         long id = eventStore.insertEvent(getEvent());
-        boolean res = eventStore.removeEvent(id);
-
-        assertEquals(0, eventStore.getSize());
-        assertTrue(res);
-
-        res = eventStore.removeEvent(id);
-        assertFalse(res);
-
+        List<Long> idList = Collections.singletonList(id);
         eventStore.close();
-        res = eventStore.removeEvent(id);
-        assertFalse(res);
-    }
-
-    public void testRemoveRangeOfEvents() throws InterruptedException {
-        SQLiteEventStore eventStore = getEventStore();
-
-        List<Long> idList = new ArrayList<>();
-
-        idList.add(eventStore.insertEvent(getEvent()));
-        idList.add(eventStore.insertEvent(getEvent()));
-        idList.add(eventStore.insertEvent(getEvent()));
 
-        assertEquals(3, idList.size());
-        assertEquals(3, eventStore.getSize());
-
-        boolean res = eventStore.removeEvents(idList);
-
-        assertEquals(0, eventStore.getSize());
-        assertEquals(true, res);
-
-        res = eventStore.removeEvents(idList);
-        assertEquals(false, res);
-
-        eventStore.close();
-        res = eventStore.removeEvents(idList);
-        assertEquals(false, res);
-
-        res = eventStore.removeEvents(new ArrayList<Long>());
-        assertEquals(false, res);
+        assertFalse(eventStore.removeEvent(id));
+        assertFalse(eventStore.removeEvents(idList));
     }
 
     public void testCloseDatabase() throws InterruptedException {
@@ -213,6 +164,33 @@ public class EventStoreTest extends AndroidTestCase {
         helper.close();
     }
 
+    public void testDowngradeKeepsEvents() throws InterruptedException {
+        SQLiteEventStore eventStore = getEventStore();
+        eventStore.insertEvent(getEvent());
+        eventStore.close();
+
+        EventStoreHelper helper = EventStoreHelper.getInstance(getContext(), "namespace");
+        SQLiteDatabase database = helper.getWritableDatabase();
+        helper.onDowngrade(database, 4, 3);
+        assertEquals(1, DatabaseUtils.queryNumEntries(database, EventStoreHelper.TABLE_EVENTS));
+        helper.close();
+        EventStoreHelper.removeInstance("namespace");
+    }
+
+    public void testOnlySmallLegacyDatabasesSwitchToIncrementalVacuum() {
+        SQLiteDatabase database = SQLiteDatabase.create(null);
+        database.execSQL("PRAGMA auto_vacuum = NONE");
+        database.execSQL("CREATE TABLE 'events' (id INTEGER PRIMARY KEY, eventData BLOB)");
+        assertFalse(EventStoreHelper.isIncrementalVacuumEnabled(database));
+
+        // The switch rewrites the whole file, it's skipped on the large databases
+        assertFalse(EventStoreHelper.enableIncrementalVacuum(database, 0));
+        assertFalse(EventStoreHelper.isIncrementalVacuumEnabled(database));
+        assertTrue(EventStoreHelper.enableIncrementalVacuum(database, 1024 * 1024));
+        assertTrue(EventStoreHelper.isIncrementalVacuumEnabled(database));
+        database.close();
+    }
+
     public void testEventStoreCreateDatabase() throws InterruptedException {
         Context context = getContext();
         SQLiteEventStore eventStore = new SQLiteEventStore(context, "namespace");
@@ -314,8 +292,224 @@ public class EventStoreTest extends AndroidTestCase {
         assertEquals(2, eventStore2.getSize());
     }
 
+    public void testGroupCommitInsertsEventsAfterWindow() throws InterruptedException {
+        SQLiteEventStore eventStore = getEventStore();
+        eventStore.setGroupCommitLimits(100, 50);
+        long lastRowId = eventStore.getLastInsertedRowId();
+
+        eventStore.add(getEvent());
+        eventStore.add(getEvent());
+        eventStore.add(getEvent());
+        assertEquals(lastRowId, eventStore.getLastInsertedRowId());
+
+        for (int i = 0; i < 10 && eventStore.getLastInsertedRowId() == lastRowId; i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(eventStore.getLastInsertedRowId() != lastRowId);
+        assertEquals(3, eventStore.getSize());
+    }
+
+    public void testGroupCommitInsertsEventsWhenLimitReached() throws InterruptedException {
+        SQLiteEventStore eventStore = getEventStore();
+        eventStore.setGroupCommitLimits(3, 60000);
+        long lastRowId = eventStore.getLastInsertedRowId();
+
+        eventStore.add(getEvent());
+        eventStore.add(getEvent());
+        assertEquals(lastRowId, eventStore.getLastInsertedRowId());
+        eventStore.add(getEvent());
+        assertTrue(eventStore.getLastInsertedRowId() != lastRowId);
+    }
+
+    public void testPendingEventsAreVisibleToReads() throws InterruptedException {
+        SQLiteEventStore eventStore = getEventStore();
+        eventStore.setGroupCommitLimits(100, 60000);
+
+        eventStore.add(getEvent());
+        eventStore.add(getEvent());
+        assertEquals(2, eventStore.getEmittableEvents(QUERY_LIMIT).size());
+        eventStore.add(getEvent());
+        assertEquals(3, eventStore.getSize());
+    }
+
+    public void testSizeFollowsPendingInsertsAndRemovals() throws InterruptedException {
+        SQLiteEventStore eventStore = getEventStore();
+        eventStore.setGroupCommitLimits(100, 60000);
+
+        for (int i = 0; i < 5; i++) {
+            eventStore.add(getEvent());
+        }
+        assertEquals(5, eventStore.getSize());
+        List<EmitterEvent> events = eventStore.getEmittableEvents(QUERY_LIMIT);
+        assertEquals(5, eventStore.getSize());
+        assertEquals(5, eventStore.getAllEvents().size());
+
+        assertTrue(eventStore.removeEvent(events.get(0).eventId));
+        assertFalse(eventStore.removeEvent(events.get(0).eventId));
+        assertEquals(4, eventStore.getSize());
+        eventStore.removeEvents(Arrays.asList(events.get(1).eventId, events.get(2).eventId));
+        assertEquals(2, eventStore.getSize());
+        assertEquals(2, eventStore.getAllEvents().size());
+
+        eventStore.add(getEvent());
+        eventStore.removeAllEvents();
+        assertEquals(0, eventStore.getSize());
+        assertEquals(0, eventStore.getAllEvents().size());
+    }
+
+    public void testSizeIsReconciledWhenDatabaseOpens() throws InterruptedException {
+        SQLiteEventStore eventStore = getEventStore();
+        for (int i = 0; i < 3; i++) {
+            eventStore.insertEvent(getEvent());
+        }
+        eventStore.close();
+        openedEventStores.remove(eventStore);
+
+        eventStore = new SQLiteEventStore(getContext(), "namespace");
+        openedEventStores.add(eventStore);
+        eventStore.add(getEvent());
+        waitUntilDatabaseOpen(eventStore);
+        assertEquals(4, eventStore.getSize());
+        assertEquals(4, eventStore.getEmittableEvents(QUERY_LIMIT).size());
+        assertEquals(4, eventStore.getSize());
+    }
+
+    public void testEmittableEventsArePagedAfterId() throws InterruptedException {
+        SQLiteEventStore eventStore = getEventStore();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(eventStore.insertEvent(getEvent()));
+        }
+
+        List<EmitterEvent> page = eventStore.getEmittableEvents(2, -1);
+        assertEquals(2, page.size());
+        assertEquals(ids.get(1).longValue(), page.get(1).eventId);
+
+        page = eventStore.getEmittableEvents(2, page.get(1).eventId);
+        assertEquals(2, page.size());
+        assertEquals(ids.get(2).longValue(), page.get(0).eventId);
+        assertEquals(ids.get(3).longValue(), page.get(1).eventId);
+
+        page = eventStore.getEmittableEvents(2, page.get(1).eventId);
+        assertEquals(1, page.size());
+        assertEquals(ids.get(4).longValue(), page.get(0).eventId);
+
+        assertEquals(0, eventStore.getEmittableEvents(2, ids.get(4)).size());
+    }
+
+    public void testEventsOverRetryBudgetAreMovedToDeadEvents() throws InterruptedException {
+        SQLiteEventStore eventStore = getEventStore();
+        long first = eventStore.insertEvent(getEvent());
+        long second = eventStore.insertEvent(getEvent());
+
+        assertEquals(0, eventStore.recordFailedAttempt(Arrays.asList(first, second), 500, 2));
+        assertEquals(2, eventStore.getSize());
+        assertEquals(1, eventStore.recordFailedAttempt(Collections.singletonList(first), 503, 2));
+        assertEquals(1, eventStore.getSize());
+        assertEquals(1, eventStore.getDeadEventCount());
+        assertEquals(second, eventStore.getEmittableEvents(10).get(0).eventId);
+
+        // The rejected events are moved straight away
+        assertEquals(1, eventStore.recordFailedAttempt(Collections.singletonList(second), 400, 1));
+        assertEquals(0, eventStore.getSize());
+        assertEquals(2, eventStore.getDeadEventCount());
+        assertEquals(2, eventStore.removeAllDeadEvents());
+        assertEquals(0, eventStore.getDeadEventCount());
+    }
+
+    public void testOldestEventsAreEvictedOverMaxCount() throws InterruptedException {
+        SQLiteEventStore eventStore = getEventStore();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(eventStore.insertEvent(getEvent()));
+        }
+
+        eventStore.setEvictionLimits(4, 0, 0);
+        assertEquals(6, eventStore.evictEvents());
+        assertEquals(0, eventStore.evictEvents());
+
+        assertEquals(4, eventStore.getSize());
+        assertEquals(6, eventStore.getEvictedEventCount());
+        List<EmitterEvent> events = eventStore.getEmittableEvents(QUERY_LIMIT);
+        assertEquals(ids.get(6).longValue(), events.get(0).eventId);
+    }
+
+    public void testStoreStaysBoundedWhenEventsAreAdded() throws InterruptedException {
+        SQLiteEventStore eventStore = getEventStore();
+        eventStore.setGroupCommitLimits(1, 0);
+        eventStore.setEvictionLimits(5, 0, 0);
+
+        // The eviction is triggered by the inserts, it's not called directly
+        for (int i = 0; i < 20; i++) {
+            eventStore.add(getEvent());
+            assertTrue(eventStore.getSize() <= 5);
+        }
+        assertEquals(5, eventStore.getSize());
+        assertEquals(15, eventStore.getEvictedEventCount());
+    }
+
+    public void testOldEventsAreEvictedOverMaxAge() throws InterruptedException {
+        SQLiteEventStore eventStore = getEventStore();
+        eventStore.insertEvent(getEvent());
+        eventStore.insertEvent(getEvent());
+        // The creation date is stored with a resolution of seconds
+        Thread.sleep(2100);
+        long newId = eventStore.insertEvent(getEvent());
+
+        eventStore.setEvictionLimits(0, 0, 1);
+        assertEquals(2, eventStore.evictEvents());
+
+        assertEquals(1, eventStore.getSize());
+        assertEquals(newId, eventStore.getEmittableEvents(QUERY_LIMIT).get(0).eventId);
+    }
+
+    public void testEventsAreEvictedOverMaxBytes() throws InterruptedException {
+        SQLiteEventStore eventStore = getEventStore();
+        for (int i = 0; i < 400; i++) {
+            eventStore.insertEvent(getEvent());
+        }
+
+        eventStore.setEvictionLimits(0, 24 * 1024, 0);
+        while (eventStore.evictEvents() > 0) {
+            assertTrue(eventStore.getEvictedEventCount() <= 400);
+        }
+        assertTrue(eventStore.getEvictedEventCount() > 0);
+        assertEquals(400 - eventStore.getEvictedEventCount(), eventStore.getSize());
+    }
+
+    public void testGroupCommitBenchmark() throws InterruptedException {
+        int count = 2000;
+        SQLiteEventStore eventStore = getEventStore();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            eventStore.insertEvent(getEvent());
+        }
+        long singleInsertTime = System.nanoTime() - start;
+        assertEquals(count, eventStore.getSize());
+        eventStore.removeAllEvents();
+
+        start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            eventStore.add(getEvent());
+        }
+        // The last group is committed within the timed section
+        eventStore.commitPendingEvents();
+        long groupCommitTime = System.nanoTime() - start;
+        assertEquals(count, eventStore.getSize());
+        assertEquals(count, eventStore.getEmittableEvents(count).size());
+
+        Log.i("EventStoreBenchmark", String.format("Single inserts: %.0f events/sec, group commit: %.0f events/sec",
+                count * 1e9 / singleInsertTime, count * 1e9 / groupCommitTime));
+    }
+
     // Helper Methods
 
+    @Override
+    protected LeasingEventStore createEventStore() throws InterruptedException {
+        return getEventStore();
+    }
+
     private SQLiteEventStore getEventStore() throws InterruptedException {
         SQLiteEventStore eventStore = new SQLiteEventStore(getContext(), "namespace");
         openedEventStores.add(eventStore);
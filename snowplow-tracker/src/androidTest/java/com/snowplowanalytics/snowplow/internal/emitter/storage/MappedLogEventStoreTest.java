@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.emitter.storage;
+
+import android.util.Log;
+
+import com.snowplowanalytics.snowplow.emitter.EmitterEvent;
+import com.snowplowanalytics.snowplow.emitter.EventStore;
+import com.snowplowanalytics.snowplow.emitter.LeasingEventStore;
+import com.snowplowanalytics.snowplow.payload.TrackerPayload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MappedLogEventStoreTest extends EventStoreContractTest {
+
+    private File directory;
+    private MappedLogEventStore contractEventStore;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = new File(getContext().getFilesDir(), "mappedLogEventStoreTest");
+        deleteDirectory(directory);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (contractEventStore != null) {
+            contractEventStore.close();
+            contractEventStore = null;
+        }
+        deleteDirectory(directory);
+        super.tearDown();
+    }
+
+    public void testRemoveAllEventsKeepsOneSegment() {
+        MappedLogEventStore eventStore = new MappedLogEventStore(directory, 256);
+        for (int i = 0; i < 10; i++) {
+            eventStore.add(getIndexedEvent(i));
+        }
+        assertTrue(eventStore.removeAllEvents());
+        assertEquals(0, eventStore.getSize());
+        assertEquals(0, eventStore.getEmittableEvents(QUERY_LIMIT).size());
+
+        eventStore.add(getIndexedEvent(10));
+        assertEquals(1, eventStore.getSize());
+        assertEquals(1, listSegments().length);
+    }
+
+    public void testEventsArePersistedWhenReopened() {
+        MappedLogEventStore eventStore = new MappedLogEventStore(directory, 512);
+        for (int i = 0; i < 10; i++) {
+            eventStore.add(getIndexedEvent(i));
+        }
+        List<EmitterEvent> events = eventStore.getEmittableEvents(QUERY_LIMIT);
+        eventStore.removeEvents(Arrays.asList(events.get(0).eventId, events.get(1).eventId, events.get(5).eventId));
+        eventStore.close();
+        assertFalse(eventStore.isOpen());
+
+        eventStore = new MappedLogEventStore(directory, 512);
+        assertEquals(7, eventStore.getSize());
+        events = eventStore.getEmittableEvents(QUERY_LIMIT);
+        assertEquals(7, events.size());
+        assertEquals("2", events.get(0).payload.getMap().get("index"));
+        assertEquals("6", events.get(3).payload.getMap().get("index"));
+    }
+
+    public void testAcknowledgedSegmentsAreDeleted() {
+        MappedLogEventStore eventStore = new MappedLogEventStore(directory, 512);
+        for (int i = 0; i < 20; i++) {
+            eventStore.add(getIndexedEvent(i));
+        }
+        int segmentCount = listSegments().length;
+        assertTrue(segmentCount > 2);
+
+        List<EmitterEvent> events = eventStore.getEmittableEvents(10);
+        List<Long> ids = new ArrayList<>();
+        for (EmitterEvent event : events) {
+            ids.add(event.eventId);
+        }
+        assertTrue(eventStore.removeEvents(ids));
+
+        assertTrue(listSegments().length < segmentCount);
+        assertEquals(10, eventStore.getSize());
+        assertEquals("10", eventStore.getEmittableEvents(1).get(0).payload.getMap().get("index"));
+    }
+
+    public void testBigEventGetsItsOwnSegment() {
+        MappedLogEventStore eventStore = new MappedLogEventStore(directory, 256);
+        TrackerPayload bigEvent = new TrackerPayload();
+        bigEvent.add("data", new String(new char[2000]).replace('\0', 'a'));
+        eventStore.add(getIndexedEvent(0));
+        eventStore.add(bigEvent);
+        eventStore.add(getIndexedEvent(2));
+
+        List<EmitterEvent> events = eventStore.getEmittableEvents(QUERY_LIMIT);
+        assertEquals(3, events.size());
+        assertEquals(2000, ((String) events.get(1).payload.getMap().get("data")).length());
+    }
+
+    public void testPartiallyWrittenEventIsDiscardedWhenReopened() throws IOException {
+        MappedLogEventStore eventStore = new MappedLogEventStore(directory, MappedLogEventStore.DEFAULT_SEGMENT_SIZE);
+        for (int i = 0; i < 3; i++) {
+            eventStore.add(getIndexedEvent(i));
+        }
+        long lastEventId = eventStore.getEmittableEvents(QUERY_LIMIT).get(2).eventId;
+        eventStore.close();
+
+        // Corrupts the data of the last event as if it was written partially
+        File segment = listSegments()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            long position = (int) lastEventId + 20;
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xff);
+        }
+
+        eventStore = new MappedLogEventStore(directory, MappedLogEventStore.DEFAULT_SEGMENT_SIZE);
+        assertEquals(2, eventStore.getSize());
+        eventStore.add(getIndexedEvent(3));
+        List<EmitterEvent> events = eventStore.getEmittableEvents(QUERY_LIMIT);
+        assertEquals(3, events.size());
+        assertEquals("3", events.get(2).payload.getMap().get("index"));
+    }
+
+    public void testBenchmarkAgainstSQLiteEventStore() throws InterruptedException {
+        int count = 2000;
+        EventStoreHelper.removeUnsentEventsExceptForNamespaces(getContext(), new ArrayList<>());
+        SQLiteEventStore sqliteEventStore = new SQLiteEventStore(getContext(), "benchmark");
+        while (!sqliteEventStore.isDatabaseOpen()) {
+            Thread.sleep(100);
+        }
+        sqliteEventStore.removeAllEvents();
+        sqliteEventStore.setGroupCommitLimits(1, 0);
+        MappedLogEventStore mappedEventStore = new MappedLogEventStore(directory, MappedLogEventStore.DEFAULT_SEGMENT_SIZE);
+
+        double[] sqliteResults = runBenchmark(sqliteEventStore, count);
+        double[] mappedResults = runBenchmark(mappedEventStore, count);
+
+        // Cold open with the events in the store
+        for (int i = 0; i < count; i++) {
+            sqliteEventStore.add(getIndexedEvent(i));
+            mappedEventStore.add(getIndexedEvent(i));
+        }
+        sqliteEventStore.close();
+        mappedEventStore.close();
+        long start = System.nanoTime();
+        sqliteEventStore = new SQLiteEventStore(getContext(), "benchmark");
+        while (!sqliteEventStore.isDatabaseOpen()) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, sqliteEventStore.getSize());
+        long sqliteOpenTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        mappedEventStore = new MappedLogEventStore(directory, MappedLogEventStore.DEFAULT_SEGMENT_SIZE);
+        assertEquals(count, mappedEventStore.getSize());
+        long mappedOpenTime = System.nanoTime() - start;
+        sqliteEventStore.close();
+        mappedEventStore.close();
+        EventStoreHelper.removeUnsentEventsExceptForNamespaces(getContext(), new ArrayList<>());
+
+        String format = "%s: insert %.0f events/sec, read %.0f events/sec, remove %.0f events/sec, cold open %.1f ms";
+        Log.i("EventStoreBenchmark", String.format(format, "SQLiteEventStore",
+                sqliteResults[0], sqliteResults[1], sqliteResults[2], sqliteOpenTime / 1e6));
+        Log.i("EventStoreBenchmark", String.format(format, "MappedLogEventStore",
+                mappedResults[0], mappedResults[1], mappedResults[2], mappedOpenTime / 1e6));
+    }
+
+    // Helper Methods
+
+    @Override
+    protected LeasingEventStore createEventStore() {
+        contractEventStore = new MappedLogEventStore(directory, 512);
+        return contractEventStore;
+    }
+
+    /**
+     * @return insert, read and remove throughput in events per second
+     */
+    private double[] runBenchmark(EventStore eventStore, int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            eventStore.add(getIndexedEvent(i));
+        }
+        assertEquals(count, eventStore.getSize());
+        long insertTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<List<Long>> batches = new ArrayList<>();
+        List<EmitterEvent> events = eventStore.getEmittableEvents(count);
+        for (int i = 0; i < events.size(); i += 100) {
+            List<Long> batch = new ArrayList<>();
+            for (EmitterEvent event : events.subList(i, Math.min(i + 100, events.size()))) {
+                batch.add(event.eventId);
+            }
+            batches.add(batch);
+        }
+        long readTime = System.nanoTime() - start;
+        assertEquals(count, events.size());
+
+        start = System.nanoTime();
+        for (List<Long> batch : batches) {
+            eventStore.removeEvents(batch);
+        }
+        long removeTime = System.nanoTime() - start;
+        assertEquals(0, eventStore.getSize());
+
+        return new double[]{count * 1e9 / insertTime, count * 1e9 / readTime, count * 1e9 / removeTime};
+    }
+
+    private File[] listSegments() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".log"));
+        assertNotNull(files);
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.tracker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.snowplowanalytics.snowplow.emitter.RejectionPolicy;
+import com.snowplowanalytics.snowplow.emitter.WaitStrategy;
+import com.snowplowanalytics.snowplow.event.Event;
+import com.snowplowanalytics.snowplow.event.SelfDescribing;
+import com.snowplowanalytics.snowplow.payload.Payload;
+import com.snowplowanalytics.snowplow.payload.TrackerPayload;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(AndroidJUnit4.class)
+public class RingBufferPipelineTest {
+
+    @Test
+    public void testEventsAreProcessedOnceInOrderWithEachWaitStrategy() throws InterruptedException {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            int producerCount = 4;
+            int eventCount = 1000;
+            MockHandler handler = new MockHandler();
+            RingBufferPipeline pipeline = new RingBufferPipeline("test", 100, waitStrategy, RejectionPolicy.Block, handler);
+
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < producerCount; p++) {
+                String schema = "producer" + p;
+                Thread producer = new Thread(() -> {
+                    for (int i = 0; i < eventCount; i++) {
+                        Map<String, Object> data = new HashMap<>();
+                        data.put("index", i);
+                        assertTrue(pipeline.publish(new SelfDescribing(schema, data)));
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            pipeline.shutdown();
+            assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+
+            assertEquals(waitStrategy.name(), producerCount * eventCount, handler.payloads.size());
+            assertEquals(0, pipeline.size());
+            // The events of each producer are appended in the order they were tracked
+            Map<String, Integer> lastIndexes = new HashMap<>();
+            for (Payload payload : handler.payloads) {
+                String schema = (String) payload.getMap().get("schema");
+                int index = Integer.parseInt((String) payload.getMap().get("index"));
+                Integer lastIndex = lastIndexes.get(schema);
+                assertEquals(lastIndex == null ? 0 : lastIndex + 1, index);
+                lastIndexes.put(schema, index);
+            }
+        }
+    }
+
+    @Test
+    public void testPayloadsAreAppendedInBatches() throws InterruptedException {
+        MockHandler handler = new MockHandler();
+        handler.appendDelay = 10;
+        RingBufferPipeline pipeline = new RingBufferPipeline("test", 64, WaitStrategy.Blocking, RejectionPolicy.Block, handler);
+        for (int i = 0; i < 200; i++) {
+            assertTrue(pipeline.publish(makeEvent("event", i)));
+        }
+        pipeline.shutdown();
+        assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(200, handler.payloads.size());
+        // The slow store append lets the enrichment stage accumulate the events
+        assertTrue(handler.appendCount.get() < 200);
+        assertFalse(pipeline.publish(makeEvent("event", 200)));
+    }
+
+    @Test
+    public void testStageDoesntBlockOnFullRingBuffer() throws InterruptedException {
+        RingBufferPipeline[] pipeline = new RingBufferPipeline[1];
+        MockHandler handler = new MockHandler() {
+            @Nullable
+            @Override
+            public Payload enrich(@NonNull Event event) {
+                // Like the transaction items tracked at the end of the processing
+                if (((SelfDescribing) event).getSchema().equals("transaction")) {
+                    for (int i = 0; i < 10; i++) {
+                        pipeline[0].publish(makeEvent("item", i));
+                    }
+                }
+                return super.enrich(event);
+            }
+        };
+        pipeline[0] = new RingBufferPipeline("test", 2, WaitStrategy.Sleeping, RejectionPolicy.Block, handler);
+        assertTrue(pipeline[0].publish(makeEvent("transaction", 0)));
+        for (int i = 0; i < 50 && handler.size() < 11; i++) {
+            Thread.sleep(100);
+        }
+        pipeline[0].shutdown();
+        assertTrue(pipeline[0].awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(11, handler.payloads.size());
+    }
+
+    @Test
+    public void testNewEventIsDroppedOnFullRingBuffer() throws InterruptedException {
+        CountDownLatch isEnrichmentReleased = new CountDownLatch(1);
+        MockHandler handler = new BlockedHandler(isEnrichmentReleased);
+        RingBufferPipeline pipeline = new RingBufferPipeline("test", 2, WaitStrategy.Blocking, RejectionPolicy.DropNewest, handler);
+        assertTrue(pipeline.publish(makeEvent("event", 0)));
+        assertTrue(pipeline.publish(makeEvent("event", 1)));
+        assertFalse(pipeline.publish(makeEvent("event", 2)));
+
+        isEnrichmentReleased.countDown();
+        pipeline.shutdown();
+        assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, handler.payloads.size());
+    }
+
+    @Test
+    public void testWaitingProducerStopsOnShutdown() throws InterruptedException {
+        CountDownLatch isEnrichmentReleased = new CountDownLatch(1);
+        MockHandler handler = new BlockedHandler(isEnrichmentReleased);
+        RingBufferPipeline pipeline = new RingBufferPipeline("test", 2, WaitStrategy.Blocking, RejectionPolicy.Block, handler);
+        assertTrue(pipeline.publish(makeEvent("event", 0)));
+        assertTrue(pipeline.publish(makeEvent("event", 1)));
+        AtomicBoolean isPublished = new AtomicBoolean(true);
+        Thread producer = new Thread(() -> isPublished.set(pipeline.publish(makeEvent("event", 2))));
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive());
+
+        pipeline.shutdown();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        assertFalse(isPublished.get());
+        isEnrichmentReleased.countDown();
+        assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, handler.payloads.size());
+    }
+
+    @Test
+    public void testIdleStagesBlockWithEachWaitStrategy() throws InterruptedException {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            MockHandler handler = new MockHandler();
+            String name = "idle" + waitStrategy.name();
+            RingBufferPipeline pipeline = new RingBufferPipeline(name, 16, waitStrategy, RejectionPolicy.Block, handler);
+            assertTrue(pipeline.publish(makeEvent("event", 0)));
+            for (int i = 0; i < 50 && handler.size() < 1; i++) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+
+            // Once the events are stored, the stages wait on the lock rather than spinning or sleeping
+            int blockedStages = 0;
+            for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+                if (!entry.getKey().getName().startsWith("snowplow-" + name + "-")) {
+                    continue;
+                }
+                for (StackTraceElement element : entry.getValue()) {
+                    if (element.getMethodName().equals("await")) {
+                        blockedStages++;
+                        break;
+                    }
+                }
+            }
+            assertEquals(waitStrategy.name(), 2, blockedStages);
+            pipeline.shutdown();
+            assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testThroughputAndLatencyBenchmark() throws InterruptedException {
+        int producerCount = 4;
+        int eventCount = 5000;
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        MockHandler queueHandler = new MockHandler();
+        TrackingQueue queue = new TrackingQueue(1024, RejectionPolicy.Block, executor, event -> {
+            Payload payload = queueHandler.enrich(event);
+            queueHandler.append(Arrays.asList(payload));
+        });
+        runBenchmark("Executor", producerCount, eventCount, queueHandler, queue::offer);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            MockHandler handler = new MockHandler();
+            RingBufferPipeline pipeline = new RingBufferPipeline("benchmark", 1024, waitStrategy, RejectionPolicy.Block, handler);
+            runBenchmark("RingBuffer " + waitStrategy.name(), producerCount, eventCount, handler, pipeline::publish);
+            pipeline.shutdown();
+            assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    // Helper Methods
+
+    private interface Publisher {
+        boolean publish(@NonNull Event event);
+    }
+
+    private void runBenchmark(String name, int producerCount, int eventCount, MockHandler handler, Publisher publisher) throws InterruptedException {
+        long[][] latencies = new long[producerCount][eventCount];
+        List<Thread> producers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int p = 0; p < producerCount; p++) {
+            long[] producerLatencies = latencies[p];
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < eventCount; i++) {
+                    Event event = makeEvent("benchmark", i);
+                    long enqueueStart = System.nanoTime();
+                    publisher.publish(event);
+                    producerLatencies[i] = System.nanoTime() - enqueueStart;
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        int total = producerCount * eventCount;
+        for (int i = 0; i < 500 && handler.size() < total; i++) {
+            Thread.sleep(10);
+        }
+        long duration = System.nanoTime() - start;
+        assertEquals(total, handler.size());
+
+        long[] allLatencies = new long[total];
+        for (int p = 0; p < producerCount; p++) {
+            System.arraycopy(latencies[p], 0, allLatencies, p * eventCount, eventCount);
+        }
+        Arrays.sort(allLatencies);
+        long p99 = allLatencies[(int) (total * 0.99) - 1];
+        long eventsPerSecond = total * TimeUnit.SECONDS.toNanos(1) / duration;
+        Log.i("RingBufferPipelineTest", name + ": " + eventsPerSecond + " events/s, p99 enqueue latency " + p99 + " ns");
+    }
+
+    private static Event makeEvent(String schema, int index) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("index", index);
+        return new SelfDescribing(schema, data);
+    }
+
+    // Handler whose enrichment waits for a latch, so that the ring buffer fills up
+    private static class BlockedHandler extends MockHandler {
+        private final CountDownLatch isReleased;
+
+        BlockedHandler(CountDownLatch isReleased) {
+            this.isReleased = isReleased;
+        }
+
+        @Nullable
+        @Override
+        public Payload enrich(@NonNull Event event) {
+            try {
+                isReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.enrich(event);
+        }
+    }
+
+    private static class MockHandler implements RingBufferPipeline.Handler {
+        final List<Payload> payloads = new ArrayList<>();
+        final AtomicInteger appendCount = new AtomicInteger(0);
+        long appendDelay = 0;
+
+        @Nullable
+        @Override
+        public Payload enrich(@NonNull Event event) {
+            Payload payload = new TrackerPayload();
+            payload.add("schema", ((SelfDescribing) event).getSchema());
+            payload.add("index", String.valueOf(event.getDataPayload().get("index")));
+            return payload;
+        }
+
+        @Override
+        public void append(@NonNull List<Payload> payloads) {
+            appendCount.incrementAndGet();
+            if (appendDelay > 0) {
+                try {
+                    Thread.sleep(appendDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized (this.payloads) {
+                this.payloads.addAll(payloads);
+            }
+        }
+
+        int size() {
+            synchronized (payloads) {
+                return payloads.size();
+            }
+        }
+    }
+}
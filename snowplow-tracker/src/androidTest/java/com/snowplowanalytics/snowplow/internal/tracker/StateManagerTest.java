@@ -5,7 +5,13 @@ import androidx.annotation.Nullable;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.platform.app.InstrumentationRegistry;
 
+import com.snowplowanalytics.snowplow.event.ConsentDocument;
+import com.snowplowanalytics.snowplow.event.ConsentGranted;
+import com.snowplowanalytics.snowplow.event.DeepLinkReceived;
+import com.snowplowanalytics.snowplow.event.EcommerceTransaction;
+import com.snowplowanalytics.snowplow.event.EcommerceTransactionItem;
 import com.snowplowanalytics.snowplow.event.Event;
+import com.snowplowanalytics.snowplow.event.Foreground;
 import com.snowplowanalytics.snowplow.event.ScreenView;
 import com.snowplowanalytics.snowplow.event.SelfDescribing;
 import com.snowplowanalytics.snowplow.event.Timing;
@@ -19,6 +25,7 @@ import com.snowplowanalytics.snowplow.tracker.MockEventStore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -29,6 +36,7 @@ import java.util.Map;
 import static org.junit.Assert.*;
 
 import android.content.Context;
+import android.util.Log;
 
 @RunWith(AndroidJUnit4.class)
 public class StateManagerTest {
@@ -230,10 +238,165 @@ public class StateManagerTest {
         assertNotNull(state1);
         assertNotSame(state1, state2);
     }
+
+    @Test
+    public void testDispatchTablesIncludeGeneralSubscribers() {
+        class SchemaStateMachine extends MockStateMachine {
+            @NonNull
+            @Override
+            public List<String> subscribedEventSchemasForEntitiesGeneration() {
+                return new LinkedList<>(Collections.singletonList("inc"));
+            }
+        }
+        StateManager stateManager = new StateManager();
+        stateManager.addOrReplaceStateMachine(new MockStateMachine(), "general");
+        stateManager.addOrReplaceStateMachine(new SchemaStateMachine(), "schema");
+
+        SelfDescribing eventInc = new SelfDescribing("inc", new HashMap() {{ put("value", 1); }});
+        InspectableEvent e = new TrackerEvent(eventInc, stateManager.trackerStateForProcessedEvent(eventInc));
+        assertEquals(2, stateManager.entitiesForProcessedEvent(e).size());
+
+        SelfDescribing event = new SelfDescribing("event", new HashMap() {{ put("value", 1); }});
+        e = new TrackerEvent(event, stateManager.trackerStateForProcessedEvent(event));
+        assertEquals(1, stateManager.entitiesForProcessedEvent(e).size());
+
+        stateManager.removeStateMachine("general");
+        e = new TrackerEvent(eventInc, stateManager.trackerStateForProcessedEvent(eventInc));
+        assertEquals(1, stateManager.entitiesForProcessedEvent(e).size());
+        e = new TrackerEvent(event, stateManager.trackerStateForProcessedEvent(event));
+        assertEquals(0, stateManager.entitiesForProcessedEvent(e).size());
+    }
+
+    @Test
+    public void testStatesAreComputedWhenObserved() {
+        CountingStateMachine stateMachine = new CountingStateMachine();
+        StateManager stateManager = new StateManager();
+        stateManager.addOrReplaceStateMachine(stateMachine, "identifier");
+
+        TrackerStateSnapshot trackerState = null;
+        for (int i = 0; i < 3; i++) {
+            trackerState = stateManager.trackerStateForProcessedEvent(new SelfDescribing("inc", new HashMap() {{ put("value", 1); }}));
+        }
+        assertEquals(0, stateMachine.transitionCount);
+
+        MockState mockState = (MockState) trackerState.getState("identifier");
+        assertEquals(3, mockState.value);
+        assertEquals(3, stateMachine.transitionCount);
+    }
+
+    @Test
+    public void testStateFutureChainIsBounded() {
+        CountingStateMachine stateMachine = new CountingStateMachine();
+        StateManager stateManager = new StateManager();
+        stateManager.addOrReplaceStateMachine(stateMachine, "identifier");
+
+        int count = StateManager.MAX_STATE_FUTURE_DEPTH * 3;
+        for (int i = 0; i < count; i++) {
+            stateManager.trackerStateForProcessedEvent(new SelfDescribing("inc", new HashMap() {{ put("value", 1); }}));
+            StateFuture stateFuture = stateManager.trackerState.getStateFuture("identifier");
+            assertTrue(stateFuture.getDepth() <= StateManager.MAX_STATE_FUTURE_DEPTH);
+        }
+        assertTrue(stateMachine.transitionCount > 0);
+
+        MockState mockState = (MockState) stateManager.trackerState.getState("identifier");
+        assertEquals(count, mockState.value);
+        assertEquals(count, stateMachine.transitionCount);
+    }
+
+    @Test
+    public void testEventSnapshotIsNotAffectedByEventReuse() {
+        SelfDescribingJson context1 = new SelfDescribingJson("iglu:com.snowplowanalytics.snowplow/context1/jsonschema/1-0-0");
+        SelfDescribingJson context2 = new SelfDescribingJson("iglu:com.snowplowanalytics.snowplow/context2/jsonschema/1-0-0");
+        ScreenView event = new ScreenView("screen1");
+        event.type("type1");
+        event.contexts(Collections.singletonList(context1));
+        ScreenView snapshot = (ScreenView) event.snapshot();
+        event.type("type2");
+        event.trueTimestamp(123L);
+        event.contexts(Collections.singletonList(context2));
+
+        assertNotSame(event, snapshot);
+        assertEquals("type1", snapshot.type);
+        assertNull(snapshot.getTrueTimestamp());
+        assertEquals(event.name, snapshot.name);
+        assertEquals(event.id, snapshot.id);
+        assertEquals(Collections.singletonList(context1), snapshot.getContexts());
+        event.customContexts.clear();
+        assertEquals(1, snapshot.getContexts().size());
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("key", "value1");
+        SelfDescribing selfDescribing = new SelfDescribing("iglu:com.snowplowanalytics.snowplow/event/jsonschema/1-0-0", data);
+        SelfDescribing selfDescribingSnapshot = (SelfDescribing) selfDescribing.snapshot();
+        data.put("key", "value2");
+        assertEquals("value1", selfDescribingSnapshot.getDataPayload().get("key"));
+
+        List<EcommerceTransactionItem> items = new ArrayList<>();
+        items.add(new EcommerceTransactionItem("sku1", 1.0, 1));
+        EcommerceTransaction transaction = new EcommerceTransaction("order", 1.0, items);
+        EcommerceTransaction transactionSnapshot = (EcommerceTransaction) transaction.snapshot();
+        transaction.items.clear();
+        assertEquals(1, transactionSnapshot.items.size());
+
+        ConsentGranted consent = new ConsentGranted("2021-01-01", "id1", "1.0");
+        consent.documents(Collections.singletonList(new ConsentDocument("id2", "2.0")));
+        ConsentGranted consentSnapshot = (ConsentGranted) consent.snapshot();
+        consent.consentDocuments.clear();
+        assertEquals(2, consentSnapshot.getDocuments().size());
+    }
+
+    @Test
+    public void testTrackLatencyBenchmark() throws InterruptedException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        MockEventStore eventStore = new MockEventStore();
+        Emitter emitter = new Emitter(context, "http://snowplow-fake-url.com", new Emitter.EmitterBuilder()
+                .eventStore(eventStore)
+        );
+        Tracker tracker = new Tracker(new Tracker.TrackerBuilder(emitter, "benchmark", "appId", context)
+                .screenContext(true)
+                .deepLinkContext(true)
+                .lifecycleEvents(true)
+                .base64(false)
+        );
+
+        int count = 2000;
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            Event event;
+            switch (i % 4) {
+                case 0: event = new ScreenView("screen" + i); break;
+                case 1: event = new DeepLinkReceived("http://snowplow.io/" + i); break;
+                case 2: event = new Foreground().foregroundIndex(i); break;
+                default: event = new Timing("category", "variable", i); break;
+            }
+            long start = System.nanoTime();
+            tracker.track(event);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        long total = 0;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        Log.i("StateManagerBenchmark", String.format("track() caller latency: avg %.1f us, p50 %.1f us, p99 %.1f us",
+                total / 1e3 / count, latencies[count / 2] / 1e3, latencies[count * 99 / 100] / 1e3));
+        tracker.close();
+    }
 }
 
 // Mock classes
 
+class CountingStateMachine extends MockStateMachine {
+    int transitionCount = 0;
+
+    @Nullable
+    @Override
+    public State transition(@NonNull Event event, @Nullable State currentState) {
+        transitionCount++;
+        return super.transition(event, currentState);
+    }
+}
+
 class MockState implements State {
     int value;
 
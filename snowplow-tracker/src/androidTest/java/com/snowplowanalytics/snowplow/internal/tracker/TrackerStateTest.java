@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.tracker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.snowplowanalytics.snowplow.event.SelfDescribing;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackerStateTest {
+
+    @Test
+    public void testSnapshotIsNotAffectedByUpdates() {
+        TrackerState trackerState = new TrackerState();
+        StateFuture stateFuture1 = makeStateFuture(null);
+        trackerState.put("identifier1", stateFuture1);
+
+        TrackerStateSnapshot snapshot = trackerState.getSnapshot();
+        StateFuture stateFuture2 = makeStateFuture(stateFuture1);
+        trackerState.put("identifier1", stateFuture2);
+        trackerState.put("identifier2", makeStateFuture(null));
+
+        assertEquals(1, ((MockState) snapshot.getState("identifier1")).value);
+        assertNull(snapshot.getState("identifier2"));
+        assertEquals(2, ((MockState) trackerState.getState("identifier1")).value);
+        assertNotNull(trackerState.getState("identifier2"));
+        assertSame(stateFuture2, trackerState.getStateFuture("identifier1"));
+    }
+
+    @Test
+    public void testRemoveState() {
+        TrackerState trackerState = new TrackerState();
+        for (int i = 0; i < 3; i++) {
+            trackerState.put("identifier" + i, makeStateFuture(null));
+        }
+        TrackerStateSnapshot snapshot = trackerState.getSnapshot();
+        trackerState.removeState("identifier1");
+        trackerState.removeState("missing");
+
+        assertNotNull(trackerState.getStateFuture("identifier0"));
+        assertNull(trackerState.getStateFuture("identifier1"));
+        assertNotNull(trackerState.getStateFuture("identifier2"));
+        assertNotNull(snapshot.getState("identifier1"));
+    }
+
+    @Test
+    public void testSnapshotAndLookupBenchmark() {
+        int stateCount = 6;
+        int count = 200000;
+        TrackerState trackerState = new TrackerState();
+        Map<String, StateFuture> hashMap = new HashMap<>();
+        String[] identifiers = new String[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            identifiers[i] = "identifier" + i;
+            StateFuture stateFuture = makeStateFuture(null);
+            stateFuture.getState();
+            trackerState.put(identifiers[i], stateFuture);
+            hashMap.put(identifiers[i], stateFuture);
+        }
+
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            TrackerStateSnapshot snapshot = trackerState.getSnapshot();
+            if (snapshot.getState(identifiers[i % stateCount]) != null) {
+                found++;
+            }
+        }
+        long stateMapTime = System.nanoTime() - start;
+
+        // Baseline: the copy of the HashMap previously taken at every snapshot
+        start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            Map<String, StateFuture> snapshot = new HashMap<>(hashMap);
+            if (snapshot.get(identifiers[i % stateCount]).getState() != null) {
+                found++;
+            }
+        }
+        long hashMapTime = System.nanoTime() - start;
+
+        assertEquals(2 * count, found);
+        Log.i("TrackerStateBenchmark", String.format("Snapshot and lookup: StateMap %.1f ns/op, HashMap copy %.1f ns/op",
+                (double) stateMapTime / count, (double) hashMapTime / count));
+    }
+
+    // Helper Methods
+
+    private StateFuture makeStateFuture(StateFuture previousState) {
+        SelfDescribing event = new SelfDescribing("inc", new HashMap<String, Object>());
+        return new StateFuture(event, previousState, new MockStateMachine());
+    }
+}
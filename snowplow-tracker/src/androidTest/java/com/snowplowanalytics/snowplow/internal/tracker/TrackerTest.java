@@ -377,7 +377,7 @@ public class TrackerTest extends AndroidTestCase {
         mockWebServer.shutdown();
     }
 
-    public void testTrackScreenView() {
+    public void testTrackScreenView() throws InterruptedException {
         String namespace = "myNamespace";
         TestUtils.createSessionSharedPreferences(getContext(), namespace);
 
@@ -412,8 +412,12 @@ public class TrackerTest extends AndroidTestCase {
         String screenId = (String) screenView.getDataPayload().get("id");
         tracker.track(screenView);
 
-        screenStateMapWrapper = tracker.getScreenState().getCurrentScreen(true).getMap();
-        screenStateMap = (Map<String, Object>) screenStateMapWrapper.get(Parameters.DATA);
+        // The screen state is updated on the thread processing the events
+        for (int i = 0; i < 10 && "Unknown".equals(screenStateMap.get(Parameters.SCREEN_NAME)); i++) {
+            Thread.sleep(100);
+            screenStateMapWrapper = tracker.getScreenState().getCurrentScreen(true).getMap();
+            screenStateMap = (Map<String, Object>) screenStateMapWrapper.get(Parameters.DATA);
+        }
         assertEquals("screen1", screenStateMap.get(Parameters.SCREEN_NAME));
         assertEquals(screenId, screenStateMap.get(Parameters.SCREEN_ID));
 
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.tracker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.snowplowanalytics.snowplow.emitter.RejectionPolicy;
+import com.snowplowanalytics.snowplow.event.Event;
+import com.snowplowanalytics.snowplow.event.SelfDescribing;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackingQueueTest {
+
+    @Test
+    public void testEventsAreProcessedOnceInOrderBySingleConsumer() throws InterruptedException {
+        int producerCount = 4;
+        int eventCount = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Event> processedEvents = new ArrayList<>();
+        AtomicInteger activeConsumers = new AtomicInteger(0);
+        AtomicBoolean hasConcurrentConsumers = new AtomicBoolean(false);
+        TrackingQueue queue = new TrackingQueue(100, RejectionPolicy.Block, executor, event -> {
+            if (activeConsumers.incrementAndGet() > 1) {
+                hasConcurrentConsumers.set(true);
+            }
+            synchronized (processedEvents) {
+                processedEvents.add(event);
+            }
+            activeConsumers.decrementAndGet();
+        });
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < producerCount; p++) {
+            String schema = "producer" + p;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < eventCount; i++) {
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("index", i);
+                    assertTrue(queue.offer(new SelfDescribing(schema, data)));
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        for (int i = 0; i < 50 && queue.size() > 0; i++) {
+            Thread.sleep(100);
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertFalse(hasConcurrentConsumers.get());
+        assertEquals(producerCount * eventCount, processedEvents.size());
+        // The events of each producer are processed in the order they were tracked
+        Map<String, Integer> lastIndexes = new HashMap<>();
+        for (Event event : processedEvents) {
+            String schema = ((SelfDescribing) event).getSchema();
+            int index = (Integer) event.getDataPayload().get("index");
+            Integer lastIndex = lastIndexes.get(schema);
+            assertEquals(lastIndex == null ? 0 : lastIndex + 1, index);
+            lastIndexes.put(schema, index);
+        }
+    }
+
+    @Test
+    public void testNewEventsAreDroppedWhenFull() {
+        List<Runnable> drainTasks = new ArrayList<>();
+        List<Event> processedEvents = new ArrayList<>();
+        TrackingQueue queue = new TrackingQueue(2, RejectionPolicy.DropNewest, drainTasks::add, processedEvents::add);
+
+        assertTrue(queue.offer(makeEvent("event1")));
+        assertTrue(queue.offer(makeEvent("event2")));
+        assertFalse(queue.offer(makeEvent("event3")));
+        assertEquals(1, drainTasks.size());
+
+        drainTasks.get(0).run();
+        assertEquals(2, processedEvents.size());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testOldestEventsAreDroppedWhenFull() {
+        List<Runnable> drainTasks = new ArrayList<>();
+        List<Event> processedEvents = new ArrayList<>();
+        TrackingQueue queue = new TrackingQueue(2, RejectionPolicy.DropOldest, drainTasks::add, processedEvents::add);
+
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(queue.offer(makeEvent("event" + i)));
+        }
+        drainTasks.get(0).run();
+        assertEquals(2, processedEvents.size());
+        assertEquals("event2", ((SelfDescribing) processedEvents.get(0)).getSchema());
+        assertEquals("event3", ((SelfDescribing) processedEvents.get(1)).getSchema());
+    }
+
+    @Test
+    public void testConsumerDoesntBlockOnItself() {
+        List<Event> processedEvents = new ArrayList<>();
+        TrackingQueue[] queue = new TrackingQueue[1];
+        queue[0] = new TrackingQueue(1, RejectionPolicy.Block, Runnable::run, event -> {
+            processedEvents.add(event);
+            // Like the transaction items tracked at the end of the processing
+            if (((SelfDescribing) event).getSchema().equals("transaction")) {
+                queue[0].offer(makeEvent("item1"));
+                queue[0].offer(makeEvent("item2"));
+            }
+        });
+
+        assertTrue(queue[0].offer(makeEvent("transaction")));
+        assertEquals(3, processedEvents.size());
+        assertEquals(0, queue[0].size());
+    }
+
+    @Test
+    public void testDrainIsScheduledAgainAfterRejection() {
+        List<Runnable> drainTasks = new ArrayList<>();
+        List<Event> processedEvents = new ArrayList<>();
+        AtomicBoolean isRejecting = new AtomicBoolean(true);
+        TrackingQueue queue = new TrackingQueue(10, RejectionPolicy.Block, runnable -> {
+            if (isRejecting.get()) {
+                throw new RejectedExecutionException("Executor is shut down.");
+            }
+            drainTasks.add(runnable);
+        }, processedEvents::add);
+
+        assertTrue(queue.offer(makeEvent("event1")));
+        assertEquals(0, drainTasks.size());
+        isRejecting.set(false);
+        assertTrue(queue.offer(makeEvent("event2")));
+        assertEquals(1, drainTasks.size());
+
+        drainTasks.get(0).run();
+        assertEquals(2, processedEvents.size());
+        assertEquals(0, queue.size());
+    }
+
+    // Helper Methods
+
+    private Event makeEvent(String schema) {
+        return new SelfDescribing(schema, new HashMap<String, Object>());
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.utils;
+
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.snowplowanalytics.snowplow.payload.SelfDescribingJson;
+import com.snowplowanalytics.snowplow.payload.TrackerPayload;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okio.Buffer;
+
+public class JsonStreamWriterTest extends AndroidTestCase {
+
+    public void testOutputMatchesJSONObject() {
+        Map<String, Object> map = makeComplexMap();
+        assertEquals(new JSONObject(map).toString(), JsonStreamWriter.toJsonString(map));
+    }
+
+    public void testEscapedStringsMatchJSONObject() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("quotes", "\"quoted\" \\ /path/");
+        map.put("control", "tab\tnew\nline\rfeed\fback\b\u0001\u001f");
+        map.put("unicode", "foo€♥£\uD800\uDF48\uD83C\uDF44");
+        map.put("separators", "\u2028\u2029");
+        map.put("key \"with\" quotes", "value");
+        assertEquals(new JSONObject(map).toString(), JsonStreamWriter.toJsonString(map));
+    }
+
+    public void testByteSizeMatchesOutput() {
+        Map<String, Object> map = makeComplexMap();
+        map.put("unicode", "foo€♥£\uD800\uDF48\uD83C\uDF44");
+        assertEquals(JsonStreamWriter.toJsonBytes(map).length, JsonStreamWriter.getByteSize(map));
+        assertEquals(Util.getUTF8Length(new JSONObject(map).toString()), JsonStreamWriter.getByteSize(map));
+    }
+
+    public void testBase64MatchesLegacyEncoding() {
+        Map<String, Object> map = makeComplexMap();
+        // Bigger than the writer buffer, so the JSON is encoded in several chunks
+        List<Object> contexts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            contexts.add(makeComplexMap());
+        }
+        map.put("contexts", contexts);
+        assertEquals(Util.base64Encode(new JSONObject(map).toString()), JsonStreamWriter.toBase64(map));
+    }
+
+    public void testWriteToOkioSink() throws IOException {
+        Map<String, Object> map = makeComplexMap();
+        Buffer buffer = new Buffer();
+        JsonStreamWriter writer = new JsonStreamWriter(buffer.outputStream());
+        writer.writeObject(map);
+        writer.flush();
+        assertEquals(new JSONObject(map).toString(), buffer.readUtf8());
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testAllocationBenchmark() {
+        int iterations = 1000;
+        // Warm up both paths
+        for (int i = 0; i < 100; i++) {
+            trackWithJSONObject();
+            trackWithStreamWriter();
+        }
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocSize();
+        for (int i = 0; i < iterations; i++) {
+            trackWithJSONObject();
+        }
+        long legacyBytes = Debug.getThreadAllocSize() / iterations;
+
+        Debug.resetThreadAllocSize();
+        for (int i = 0; i < iterations; i++) {
+            trackWithStreamWriter();
+        }
+        long streamBytes = Debug.getThreadAllocSize() / iterations;
+
+        // Allocations of the maps of the event, common to both
+        Debug.resetThreadAllocSize();
+        for (int i = 0; i < iterations; i++) {
+            makeEventPayload();
+            makeSelfDescribingEvent();
+            makeContexts();
+        }
+        long eventBytes = Debug.getThreadAllocSize() / iterations;
+        Debug.stopAllocCounting();
+
+        assertTrue(streamBytes < legacyBytes);
+
+        Log.i("AllocationBenchmark", String.format(
+                "Event maps: %d bytes allocated per event", eventBytes));
+        Log.i("AllocationBenchmark", String.format(
+                "JSONObject: %d bytes allocated per event", legacyBytes));
+        Log.i("AllocationBenchmark", String.format(
+                "JsonStreamWriter: %d bytes allocated per event", streamBytes));
+    }
+
+    // Service methods
+
+    /**
+     * Encodes an event as the tracker did with org.json: contexts and self-describing event
+     * in base64, JSON of the payload for the request and its size for the batching.
+     */
+    private long trackWithJSONObject() {
+        TrackerPayload payload = makeEventPayload();
+        payload.add("ue_px", Util.base64Encode(new JSONObject(makeSelfDescribingEvent()).toString()));
+        payload.add("cx", Util.base64Encode(new JSONObject(makeContexts()).toString()));
+        String json = new JSONObject(payload.getMap()).toString();
+        return json.getBytes().length + Util.getUTF8Length(new JSONObject(payload.getMap()).toString());
+    }
+
+    private long trackWithStreamWriter() {
+        TrackerPayload payload = makeEventPayload();
+        payload.add("ue_px", JsonStreamWriter.toBase64(makeSelfDescribingEvent()));
+        payload.add("cx", JsonStreamWriter.toBase64(makeContexts()));
+        byte[] json = JsonStreamWriter.toJsonBytes(payload.getMap());
+        return json.length + JsonStreamWriter.getByteSize(payload.getMap());
+    }
+
+    private TrackerPayload makeEventPayload() {
+        TrackerPayload payload = new TrackerPayload();
+        payload.add("e", "ue");
+        payload.add("eid", "f4a8e5c6-8fbd-4c4a-9f1e-cd3b6e0b1a41");
+        payload.add("tv", "andr-2.0.0");
+        payload.add("p", "mob");
+        payload.add("aid", "app-id");
+        payload.add("tna", "namespace");
+        payload.add("dtm", "1626279405000");
+        payload.add("stm", "1626279406000");
+        payload.add("tz", "Europe/London");
+        payload.add("lang", "English");
+        payload.add("res", "1080x1920");
+        payload.add("uid", "user-id");
+        return payload;
+    }
+
+    private Map<String, Object> makeSelfDescribingEvent() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("name", "screen name");
+        data.put("id", "0d9a3b1c-5d5e-4c1f-9b9a-6b3f2b8d4e7a");
+        data.put("type", "activity");
+        data.put("previousName", "previous screen");
+        data.put("transitionType", "push");
+        SelfDescribingJson event = new SelfDescribingJson("iglu:com.snowplowanalytics.mobile/screen_view/jsonschema/1-0-0", data);
+        return new SelfDescribingJson("iglu:com.snowplowanalytics.snowplow/unstruct_event/jsonschema/1-0-0", event).getMap();
+    }
+
+    private Map<String, Object> makeContexts() {
+        List<Map<String, Object>> contexts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("osType", "android");
+            data.put("osVersion", "11");
+            data.put("deviceManufacturer", "Google");
+            data.put("deviceModel", "Pixel 5");
+            data.put("networkType", "wifi");
+            data.put("batteryLevel", 80);
+            data.put("availableStorage", 27012345678L);
+            contexts.add(new SelfDescribingJson("iglu:com.snowplowanalytics.snowplow/mobile_context/jsonschema/1-0-2", data).getMap());
+        }
+        return new SelfDescribingJson("iglu:com.snowplowanalytics.snowplow/contexts/jsonschema/1-0-1", contexts).getMap();
+    }
+
+    private Map<String, Object> makeComplexMap() {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("string", "value");
+        nested.put("int", 42);
+        nested.put("long", 9876543210L);
+        nested.put("double", 1.5);
+        nested.put("integralDouble", 2.0);
+        nested.put("float", 0.25f);
+        nested.put("boolean", true);
+        nested.put("null", null);
+        Map<String, Object> map = new HashMap<>();
+        map.put("nested", nested);
+        map.put("list", Arrays.asList("a", 1, false, null, nested));
+        map.put("array", new int[]{1, 2, 3});
+        map.put("empty", new HashMap<>());
+        map.put("pojo", new Object());
+        return map;
+    }
+}
@@ -1,12 +1,15 @@
 package com.snowplowanalytics.snowplow.internal.utils;
 
 import android.test.AndroidTestCase;
+import android.util.Log;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.snowplowanalytics.snowplow.payload.TrackerPayload;
+
 public class UtilTest extends AndroidTestCase {
 
     public void testGetTimestamp() {
@@ -41,13 +44,13 @@ public class UtilTest extends AndroidTestCase {
     }
 
     public void testDeserialize() {
-        Map<String, String> testMap = new HashMap<>();
-        testMap.put("foo", "bar");
+        TrackerPayload payload = new TrackerPayload();
+        payload.add("foo", "bar");
 
-        byte[] testMapBytes = Util.serialize(testMap);
-        assertNotNull(testMapBytes);
+        byte[] payloadBytes = Util.serializePayload(payload);
+        assertNotNull(payloadBytes);
 
-        Map<String, String> testMap2 = Util.deserializer(testMapBytes);
+        Map<String, String> testMap2 = Util.deserializer(payloadBytes);
         assertNotNull(testMap2);
         assertEquals("bar", testMap2.get("foo"));
 
@@ -55,6 +58,103 @@ public class UtilTest extends AndroidTestCase {
         assertNull(d);
     }
 
+    public void testDeserializeCompactFormat() {
+        // {"foo": "bar"} stored with the compact format: version, entry count, length-prefixed strings
+        byte[] compactBytes = {0x01, 0x01, 0x03, 'f', 'o', 'o', 0x03, 'b', 'a', 'r'};
+
+        Map<String, String> testMap = Util.deserializer(compactBytes);
+        assertNotNull(testMap);
+        assertEquals(1, testMap.size());
+        assertEquals("bar", testMap.get("foo"));
+        assertEquals("bar", Util.deserializePayload(compactBytes).getMap().get("foo"));
+    }
+
+    public void testDeserializeLegacyFormat() {
+        Map<String, String> testMap = new HashMap<>();
+        testMap.put("foo", "bar");
+
+        byte[] legacyBytes = Util.serializeWithJava(testMap);
+        assertNotNull(legacyBytes);
+
+        Map<String, String> testMap2 = Util.deserializer(legacyBytes);
+        assertNotNull(testMap2);
+        assertEquals(testMap, testMap2);
+    }
+
+    public void testSerializeUnicodeAndLongValues() {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            longValue.append("é€\uD83D\uDE00");
+        }
+        Map<String, String> testMap = new HashMap<>();
+        testMap.put("long", longValue.toString());
+        testMap.put("empty", "");
+        testMap.put("ключ", "значение");
+        TrackerPayload payload = new TrackerPayload();
+        payload.addMap(new HashMap<String, Object>(testMap));
+
+        Map<String, String> testMap2 = Util.deserializer(Util.serializePayload(payload));
+        assertEquals(testMap, testMap2);
+    }
+
+    public void testDeserializeLegacyNonStringValues() {
+        Map<String, Object> testMap = new HashMap<>();
+        testMap.put("foo", "bar");
+        testMap.put("number", 42);
+
+        byte[] bytes = Util.serializeWithJava(testMap);
+        Map<String, ?> testMap2 = Util.deserializer(bytes);
+        assertEquals(testMap, testMap2);
+    }
+
+    public void testSerializationBenchmark() {
+        Map<String, String> event = new HashMap<>();
+        event.put("e", "ue");
+        event.put("eid", Util.getUUIDString());
+        event.put("tv", "andr-2.0.0");
+        event.put("p", "mob");
+        event.put("aid", "app-id");
+        event.put("dtm", Util.getTimestamp());
+        event.put("tna", "namespace");
+        event.put("ue_px", "eyJzY2hlbWEiOiJpZ2x1OmNvbS5zbm93cGxvd2FuYWx5dGljcy5zbm93cGxvdy91bnN0cnVjdF9ldmVudC9qc29uc2NoZW1hLzEtMC0wIn0");
+        event.put("cx", "eyJzY2hlbWEiOiJpZ2x1OmNvbS5zbm93cGxvd2FuYWx5dGljcy5zbm93cGxvdy9jb250ZXh0cy9qc29uc2NoZW1hLzEtMC0xIn0");
+        TrackerPayload payload = new TrackerPayload();
+        payload.addMap(new HashMap<String, Object>(event));
+        int iterations = 5000;
+
+        long start = System.nanoTime();
+        byte[] legacyBytes = null;
+        for (int i = 0; i < iterations; i++) {
+            legacyBytes = Util.serializeWithJava(event);
+        }
+        long legacyEncode = (System.nanoTime() - start) / iterations;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Util.deserializer(legacyBytes);
+        }
+        long legacyDecode = (System.nanoTime() - start) / iterations;
+
+        // The format written by the event stores
+        start = System.nanoTime();
+        byte[] jsonBytes = null;
+        for (int i = 0; i < iterations; i++) {
+            jsonBytes = Util.serializePayload(payload);
+        }
+        long jsonEncode = (System.nanoTime() - start) / iterations;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Util.deserializePayload(jsonBytes);
+        }
+        long jsonDecode = (System.nanoTime() - start) / iterations;
+
+        assertNotNull(legacyBytes);
+        assertTrue(jsonBytes.length < legacyBytes.length);
+        Log.i("SerializationBenchmark", String.format(
+                "Java serialization: %d bytes/row, encode %d ns/op, decode %d ns/op", legacyBytes.length, legacyEncode, legacyDecode));
+        Log.i("SerializationBenchmark", String.format(
+                "JSON format: %d bytes/row, encode %d ns/op, decode %d ns/op", jsonBytes.length, jsonEncode, jsonDecode));
+    }
+
     public void testMapHasKeys() {
         Map<String, Object> map = new HashMap<>();
         map.put("key", "value");
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.payload;
+
+import android.test.AndroidTestCase;
+
+import com.snowplowanalytics.snowplow.internal.constants.TrackerConstants;
+import com.snowplowanalytics.snowplow.internal.utils.Util;
+import com.snowplowanalytics.snowplow.network.Request;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class SerializedPayloadTest extends AndroidTestCase {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    public void testAppendParameterWithoutParsing() throws JSONException {
+        SerializedPayload payload = new SerializedPayload("{\"e\":\"pv\",\"ué\":\"ü\"}".getBytes(UTF_8), null);
+        payload.add("stm", "123");
+
+        JSONObject json = new JSONObject(payload.toString());
+        assertEquals("pv", json.getString("e"));
+        assertEquals("ü", json.getString("ué"));
+        assertEquals("123", json.getString("stm"));
+        assertEquals(payload.getJsonBytes().length, payload.getByteSize());
+    }
+
+    public void testAppendParameterToEmptyPayload() throws JSONException {
+        SerializedPayload payload = new SerializedPayload("{}".getBytes(UTF_8), null);
+        payload.add("stm", "123");
+
+        assertEquals("{\"stm\":\"123\"}", payload.toString());
+        assertEquals(payload.getJsonBytes().length, payload.getByteSize());
+    }
+
+    public void testReplaceExistingParameter() {
+        SerializedPayload payload = new SerializedPayload("{\"e\":\"pv\",\"stm\":\"1\"}".getBytes(UTF_8), null);
+        payload.add("stm", "2");
+
+        Map map = payload.getMap();
+        assertEquals(2, map.size());
+        assertEquals("2", map.get("stm"));
+    }
+
+    public void testGetMapIncludesAppendedParameters() {
+        SerializedPayload payload = new SerializedPayload("{\"e\":\"pv\",\"co\":{\"a\":[1,2]}}".getBytes(UTF_8), null);
+        payload.add("stm", "123");
+
+        Map map = payload.getMap();
+        assertEquals("pv", map.get("e"));
+        assertEquals("123", map.get("stm"));
+        assertEquals(Arrays.asList(1, 2), ((Map) map.get("co")).get("a"));
+    }
+
+    public void testStoredPayloadKeepsUserAgent() {
+        TrackerPayload trackerPayload = new TrackerPayload();
+        trackerPayload.add("e", "pv");
+        trackerPayload.add("ua", "Custom UA");
+
+        Payload payload = Util.deserializePayload(Util.serializePayload(trackerPayload));
+        assertTrue(payload instanceof SerializedPayload);
+        assertEquals("Custom UA", ((SerializedPayload) payload).getUserAgent());
+        assertEquals(trackerPayload.getMap(), payload.getMap());
+    }
+
+    public void testRequestConcatenatesPayloads() throws JSONException {
+        List<Payload> payloads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            TrackerPayload trackerPayload = new TrackerPayload();
+            trackerPayload.add("e", "pv");
+            trackerPayload.add("eid", String.valueOf(i));
+            payloads.add(Util.deserializePayload(Util.serializePayload(trackerPayload)));
+        }
+        Request request = new Request(payloads, Arrays.asList(0L, 1L, 2L));
+
+        JSONObject json = new JSONObject(request.payload.toString());
+        assertEquals(TrackerConstants.SCHEMA_PAYLOAD_DATA, json.getString("schema"));
+        JSONArray data = json.getJSONArray("data");
+        assertEquals(3, data.length());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.valueOf(i), data.getJSONObject(i).getString("eid"));
+        }
+    }
+}
@@ -17,7 +17,9 @@ import android.net.Uri;
 import androidx.annotation.NonNull;
 import android.test.AndroidTestCase;
 
+import com.snowplowanalytics.snowplow.internal.constants.Parameters;
 import com.snowplowanalytics.snowplow.internal.emitter.Emitter;
+import com.snowplowanalytics.snowplow.internal.emitter.ExecutorGroup;
 import com.snowplowanalytics.snowplow.network.NetworkConnection;
 import com.snowplowanalytics.snowplow.emitter.BufferOption;
 import com.snowplowanalytics.snowplow.network.HttpMethod;
@@ -31,7 +33,9 @@ import com.snowplowanalytics.snowplow.network.RequestResult;
 import com.snowplowanalytics.snowplow.internal.tracker.Logger;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -276,9 +280,12 @@ public class EmitterTest extends AndroidTestCase {
             Thread.sleep(600);
         }
 
-        assertEquals(1, networkConnection.previousResults.size());
-        assertEquals(1, networkConnection.previousResults.get(0).size());
-        assertFalse(networkConnection.previousResults.get(0).get(0).getSuccess());
+        // The failed event may have been retried already after the backoff
+        assertTrue(networkConnection.previousResults.size() >= 1);
+        for (List<RequestResult> results : networkConnection.previousResults) {
+            assertEquals(1, results.size());
+            assertFalse(results.get(0).getSuccess());
+        }
         assertEquals(1, emitter.getEventStore().getSize());
 
         emitter.flush();
@@ -349,6 +356,372 @@ public class EmitterTest extends AndroidTestCase {
         emitter.flush();
     }
 
+    public void testEmitLargeBacklogWithoutStackGrowth() throws InterruptedException {
+        MockNetworkConnection networkConnection = new MockNetworkConnection(POST, true);
+        MockEventStore eventStore = new MockEventStore();
+        for (Payload payload : generatePayloads(100000)) {
+            eventStore.add(payload);
+        }
+        Emitter emitter = new Emitter(getContext(), "com.acme", new Emitter.EmitterBuilder()
+                .networkConnection(networkConnection)
+                .option(HeavyGroup)
+                .tick(0)
+                .emptyLimit(0)
+                .sendLimit(250)
+                .byteLimitPost(25000)
+                .eventStore(eventStore)
+        );
+        emitter.flush();
+
+        for (int i = 0; i < 120 && (eventStore.getSize() > 0 || emitter.getEmitterStatus()); i++) {
+            Thread.sleep(500);
+        }
+
+        assertEquals(0, eventStore.getSize());
+        assertEquals(400, networkConnection.sendingCount());
+        // Each batch is sent from a fresh scheduled task, so the stack doesn't grow with the backlog.
+        assertTrue(networkConnection.maxStackDepth - networkConnection.minStackDepth < 10);
+
+        emitter.flush();
+    }
+
+    public void testPipelinedEmissionSendsEachEventOnce() throws InterruptedException {
+        List<Long> sentEventIds = Collections.synchronizedList(new ArrayList<>());
+        MockNetworkConnection networkConnection = new MockNetworkConnection(POST, true) {
+            @NonNull
+            @Override
+            public List<RequestResult> sendRequests(@NonNull List<Request> requests) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (Request request : requests) {
+                    sentEventIds.addAll(request.emitterEventIds);
+                }
+                return super.sendRequests(requests);
+            }
+        };
+        MockEventStore eventStore = new MockEventStore();
+        for (Payload payload : generatePayloads(2000)) {
+            eventStore.add(payload);
+        }
+        Emitter emitter = new Emitter(getContext(), "com.acme", new Emitter.EmitterBuilder()
+                .networkConnection(networkConnection)
+                .option(HeavyGroup)
+                .tick(0)
+                .emptyLimit(0)
+                .sendLimit(100)
+                .pipelineDepth(3)
+                .byteLimitPost(25000)
+                .eventStore(eventStore)
+        );
+        emitter.flush();
+        for (int i = 0; i < 60 && (eventStore.getSize() > 0 || emitter.getEmitterStatus()); i++) {
+            Thread.sleep(500);
+        }
+        assertEquals(0, eventStore.getSize());
+        assertEquals(2000, sentEventIds.size());
+        assertEquals(2000, new HashSet<>(sentEventIds).size());
+        emitter.flush();
+    }
+
+    public void testPostRequestsAreGroupedByUserAgent() throws InterruptedException {
+        List<Request> sentRequests = Collections.synchronizedList(new ArrayList<>());
+        MockNetworkConnection networkConnection = new MockNetworkConnection(POST, true) {
+            @NonNull
+            @Override
+            public List<RequestResult> sendRequests(@NonNull List<Request> requests) {
+                sentRequests.addAll(requests);
+                return super.sendRequests(requests);
+            }
+        };
+        MockEventStore eventStore = new MockEventStore();
+        List<Payload> payloads = generatePayloads(6);
+        for (int i = 0; i < payloads.size(); i++) {
+            Payload payload = payloads.get(i);
+            payload.add(Parameters.USERAGENT, i % 2 == 0 ? "agent-a" : "agent-b");
+            eventStore.add(payload);
+        }
+        Emitter emitter = new Emitter(getContext(), "com.acme", new Emitter.EmitterBuilder()
+                .networkConnection(networkConnection)
+                .option(HeavyGroup)
+                .tick(0)
+                .emptyLimit(0)
+                .byteLimitPost(25000)
+                .eventStore(eventStore)
+        );
+        emitter.flush();
+        for (int i = 0; i < 10 && (eventStore.getSize() > 0 || emitter.getEmitterStatus()); i++) {
+            Thread.sleep(500);
+        }
+        assertEquals(0, eventStore.getSize());
+        assertEquals(2, sentRequests.size());
+        for (Request request : sentRequests) {
+            assertEquals(3, request.emitterEventIds.size());
+            assertTrue(request.payload.toString().contains(request.customUserAgent));
+        }
+        assertTrue(!sentRequests.get(0).customUserAgent.equals(sentRequests.get(1).customUserAgent));
+        emitter.flush();
+    }
+
+    public void testPostRequestsArePackedUnderByteLimit() throws InterruptedException {
+        List<Request> sentRequests = Collections.synchronizedList(new ArrayList<>());
+        MockNetworkConnection networkConnection = new MockNetworkConnection(POST, true) {
+            @NonNull
+            @Override
+            public List<RequestResult> sendRequests(@NonNull List<Request> requests) {
+                sentRequests.addAll(requests);
+                return super.sendRequests(requests);
+            }
+        };
+        MockEventStore eventStore = new MockEventStore();
+        for (Payload payload : generatePayloads(20)) {
+            eventStore.add(payload);
+        }
+        Emitter emitter = new Emitter(getContext(), "com.acme", new Emitter.EmitterBuilder()
+                .networkConnection(networkConnection)
+                .option(HeavyGroup)
+                .tick(0)
+                .emptyLimit(0)
+                .byteLimitPost(300)
+                .eventStore(eventStore)
+        );
+        emitter.flush();
+        for (int i = 0; i < 10 && (eventStore.getSize() > 0 || emitter.getEmitterStatus()); i++) {
+            Thread.sleep(500);
+        }
+        assertEquals(0, eventStore.getSize());
+        int sentEvents = 0;
+        for (Request request : sentRequests) {
+            assertFalse(request.oversize);
+            assertTrue(request.payload.getByteSize() <= 300);
+            sentEvents += request.emitterEventIds.size();
+        }
+        assertEquals(20, sentEvents);
+        assertTrue(sentRequests.size() < 20);
+        emitter.flush();
+    }
+
+    public void testRejectedEventsAreNotRetried() throws InterruptedException {
+        MockEventStore eventStore = new MockEventStore();
+        MockNetworkConnection networkConnection = new MockNetworkConnection(POST, true) {
+            @NonNull
+            @Override
+            public List<RequestResult> sendRequests(@NonNull List<Request> requests) {
+                List<RequestResult> results = new ArrayList<>();
+                for (Request request : requests) {
+                    results.add(new RequestResult(false, request.emitterEventIds, 400, 0));
+                }
+                previousResults.add(results);
+                return results;
+            }
+        };
+        Emitter emitter = new Emitter(getContext(), "com.acme", new Emitter.EmitterBuilder()
+                .networkConnection(networkConnection)
+                .eventStore(eventStore)
+                .emptyLimit(0)
+        );
+
+        for (Payload payload : generatePayloads(3)) {
+            emitter.add(payload);
+        }
+        for (int i = 0; i < 10 && (eventStore.getSize() > 0 || emitter.getEmitterStatus()); i++) {
+            Thread.sleep(500);
+        }
+        assertEquals(0, eventStore.getSize());
+        emitter.flush();
+    }
+
+    public void testRetryAfterDelaysTheNextAttempt() throws InterruptedException {
+        MockEventStore eventStore = new MockEventStore();
+        MockNetworkConnection networkConnection = new MockNetworkConnection(POST, true) {
+            @NonNull
+            @Override
+            public List<RequestResult> sendRequests(@NonNull List<Request> requests) {
+                List<RequestResult> results = new ArrayList<>();
+                for (Request request : requests) {
+                    results.add(new RequestResult(false, request.emitterEventIds, 503, 3000));
+                }
+                previousResults.add(results);
+                return results;
+            }
+        };
+        Emitter emitter = new Emitter(getContext(), "com.acme", new Emitter.EmitterBuilder()
+                .networkConnection(networkConnection)
+                .eventStore(eventStore)
+                .emptyLimit(0)
+        );
+
+        emitter.add(generatePayloads(1).get(0));
+        for (int i = 0; i < 10 && (networkConnection.sendingCount() < 1 || emitter.getEmitterStatus()); i++) {
+            Thread.sleep(200);
+        }
+        assertEquals(1, networkConnection.sendingCount());
+
+        // The flush doesn't restart the emission before the Retry-After delay
+        emitter.flush();
+        Thread.sleep(1000);
+        assertEquals(1, networkConnection.sendingCount());
+        assertEquals(1, eventStore.getSize());
+        for (int i = 0; i < 10 && networkConnection.sendingCount() < 2; i++) {
+            Thread.sleep(500);
+        }
+        assertEquals(2, networkConnection.sendingCount());
+        emitter.shutdown();
+    }
+
+    public void testFailedEventsAreRetriedWithoutNewEvents() throws InterruptedException {
+        MockEventStore eventStore = new MockEventStore();
+        MockNetworkConnection networkConnection = new MockNetworkConnection(POST, true) {
+            @NonNull
+            @Override
+            public List<RequestResult> sendRequests(@NonNull List<Request> requests) {
+                if (sendingCount() > 0) {
+                    return super.sendRequests(requests);
+                }
+                List<RequestResult> results = new ArrayList<>();
+                for (Request request : requests) {
+                    results.add(new RequestResult(false, request.emitterEventIds, 503, 0));
+                }
+                previousResults.add(results);
+                return results;
+            }
+        };
+        Emitter emitter = new Emitter(getContext(), "com.acme", new Emitter.EmitterBuilder()
+                .networkConnection(networkConnection)
+                .eventStore(eventStore)
+                .emptyLimit(0)
+        );
+
+        for (Payload payload : generatePayloads(2)) {
+            emitter.add(payload);
+        }
+        // The emission restarts by itself after the backoff (up to 1 second after the first failure)
+        for (int i = 0; i < 10 && (eventStore.getSize() > 0 || networkConnection.sendingCount() < 2); i++) {
+            Thread.sleep(500);
+        }
+        assertEquals(2, networkConnection.sendingCount());
+        assertFalse(networkConnection.previousResults.get(0).get(0).getSuccess());
+        assertTrue(networkConnection.previousResults.get(1).get(0).getSuccess());
+        assertEquals(0, eventStore.getSize());
+        emitter.shutdown();
+    }
+
+    public void testAdaptiveBatchingGrowsRequestsOnFullRounds() throws InterruptedException {
+        MockEventStore eventStore = new MockEventStore();
+        MockNetworkConnection networkConnection = new MockNetworkConnection(POST, true);
+        Emitter emitter = new Emitter(getContext(), "com.acme", new Emitter.EmitterBuilder()
+                .networkConnection(networkConnection)
+                .eventStore(eventStore)
+                .option(Single)
+                .adaptiveBatching(true)
+                .minEventsPerRequest(1)
+                .maxEventsPerRequest(17)
+                .maxConcurrentRequests(2)
+                .emptyLimit(0)
+        );
+        assertEquals(1, emitter.getCurrentEventsPerRequest());
+
+        for (Payload payload : generatePayloads(100)) {
+            eventStore.add(payload);
+        }
+        emitter.flush();
+        for (int i = 0; i < 10 && (eventStore.getSize() > 0 || emitter.getEmitterStatus()); i++) {
+            Thread.sleep(500);
+        }
+        assertEquals(0, eventStore.getSize());
+        // The events per request grow by one per full round, the requests don't grow before 17 events
+        assertTrue(emitter.getCurrentEventsPerRequest() > 10);
+        assertTrue(emitter.getCurrentEventsPerRequest() <= 17);
+        assertEquals(1, emitter.getCurrentRequestsPerRound());
+        emitter.shutdown();
+    }
+
+    public void testMaxFlushDelaySendsPartialBatchOnDeadline() throws InterruptedException {
+        MockEventStore eventStore = new MockEventStore();
+        MockNetworkConnection networkConnection = new MockNetworkConnection(POST, true);
+        Emitter emitter = new Emitter(getContext(), "com.acme", new Emitter.EmitterBuilder()
+                .networkConnection(networkConnection)
+                .eventStore(eventStore)
+                .option(DefaultGroup)
+                .maxFlushDelay(1000)
+                .emptyLimit(0)
+        );
+
+        // The events don't fill a request, they wait for the deadline
+        for (Payload payload : generatePayloads(3)) {
+            emitter.add(payload);
+        }
+        Thread.sleep(500);
+        assertEquals(0, networkConnection.sendingCount());
+        assertEquals(3, eventStore.getSize());
+
+        for (int i = 0; i < 10 && networkConnection.sendingCount() < 1; i++) {
+            Thread.sleep(300);
+        }
+        assertEquals(1, networkConnection.sendingCount());
+        assertEquals(1, networkConnection.previousResults.get(0).size());
+        assertEquals(3, networkConnection.previousResults.get(0).get(0).getEventIds().size());
+        assertTrue(emitter.getLastSendLatency() >= 0);
+        assertEquals(emitter.getLastSendLatency(), emitter.getAverageSendLatency());
+
+        // A full request is sent straight away
+        for (int i = 0; i < 10 && emitter.getEmitterStatus(); i++) {
+            Thread.sleep(300);
+        }
+        for (Payload payload : generatePayloads(10)) {
+            emitter.add(payload);
+        }
+        for (int i = 0; i < 3 && networkConnection.sendingCount() < 2; i++) {
+            Thread.sleep(200);
+        }
+        assertEquals(2, networkConnection.sendingCount());
+        emitter.shutdown();
+    }
+
+    public void testRequestResultIsRetryableOnServerErrors() {
+        List<Long> ids = Collections.singletonList(1L);
+        assertTrue(new RequestResult(false, ids).isRetryable());
+        assertTrue(new RequestResult(false, ids, 500, 0).isRetryable());
+        assertTrue(new RequestResult(false, ids, 429, 1000).isRetryable());
+        assertFalse(new RequestResult(false, ids, 404, 0).isRetryable());
+        assertFalse(new RequestResult(true, ids, 200, 0).isRetryable());
+    }
+
+    public void testPausedEmitterRestartsOnFlush() throws InterruptedException {
+        MockNetworkConnection networkConnection = new MockNetworkConnection(POST, true);
+        Emitter emitter = getEmitter(networkConnection, Single);
+        ExecutorGroup executorGroup = emitter.getExecutorGroup();
+
+        emitter.pauseEmission();
+        assertFalse(emitter.getEmitterStatus());
+        emitter.add(generatePayloads(1).get(0));
+        emitter.flush();
+        for (int i = 0; i < 10 && (emitter.getEventStore().getSize() > 0 || emitter.getEmitterStatus()); i++) {
+            Thread.sleep(500);
+        }
+        assertEquals(1, networkConnection.sendingCount());
+        assertSame(executorGroup, emitter.getExecutorGroup());
+        emitter.shutdown();
+    }
+
+    public void testShutdownEmitterIsNotRestarted() throws InterruptedException {
+        MockNetworkConnection networkConnection = new MockNetworkConnection(POST, true);
+        Emitter emitter = getEmitter(networkConnection, Single);
+        ExecutorGroup executorGroup = emitter.getExecutorGroup();
+
+        emitter.shutdown();
+        emitter.add(generatePayloads(1).get(0));
+        emitter.flush();
+        Thread.sleep(500);
+        // The tasks are rejected by the pools shut down, they are not recreated
+        assertSame(executorGroup, emitter.getExecutorGroup());
+        assertEquals(0, emitter.getEventStore().getSize());
+        assertEquals(0, networkConnection.sendingCount());
+        assertFalse(emitter.getEmitterStatus());
+    }
+
     // Emitter Builder
 
     public Emitter getEmitter(NetworkConnection networkConnection, BufferOption option) {
@@ -407,6 +780,8 @@ class MockNetworkConnection implements NetworkConnection {
     public HttpMethod httpMethod;
 
     public final List<List<RequestResult>> previousResults = new ArrayList<>();
+    public int minStackDepth = Integer.MAX_VALUE;
+    public int maxStackDepth = 0;
 
     public MockNetworkConnection(HttpMethod httpMethod, boolean successfulConnection) {
         this.httpMethod = httpMethod;
@@ -420,6 +795,9 @@ class MockNetworkConnection implements NetworkConnection {
     @NonNull
     @Override
     public List<RequestResult> sendRequests(@NonNull List<Request> requests) {
+        int stackDepth = Thread.currentThread().getStackTrace().length;
+        minStackDepth = Math.min(minStackDepth, stackDepth);
+        maxStackDepth = Math.max(maxStackDepth, stackDepth);
         List<RequestResult> requestResults = new ArrayList<>(requests.size());
         for (Request request : requests) {
             boolean isSuccessful = request.oversize || successfulConnection;
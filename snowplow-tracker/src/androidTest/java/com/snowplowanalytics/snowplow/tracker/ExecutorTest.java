@@ -2,11 +2,16 @@ package com.snowplowanalytics.snowplow.tracker;
 
 import android.test.AndroidTestCase;
 
+import com.snowplowanalytics.snowplow.emitter.RejectionPolicy;
 import com.snowplowanalytics.snowplow.internal.emitter.Executor;
+import com.snowplowanalytics.snowplow.internal.emitter.ExecutorGroup;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ExecutorTest extends AndroidTestCase {
 
@@ -33,4 +38,57 @@ public class ExecutorTest extends AndroidTestCase {
         }
         assertTrue(exceptionRaised.get());
     }
+
+    public void testExecutorGroupUsesNamedThreads() throws InterruptedException {
+        ExecutorGroup group = new ExecutorGroup("ns", 2, 10, RejectionPolicy.Block);
+        AtomicReference<String> processingThread = new AtomicReference<>();
+        AtomicReference<String> storeThread = new AtomicReference<>();
+        AtomicReference<String> emissionThread = new AtomicReference<>();
+        group.executeEventProcessing(false, null, () -> processingThread.set(Thread.currentThread().getName()));
+        group.executeEventStore(null, () -> storeThread.set(Thread.currentThread().getName()));
+        group.scheduleEmission(null, () -> emissionThread.set(Thread.currentThread().getName()), 0, TimeUnit.SECONDS);
+        group.shutdown();
+        assertTrue(group.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(processingThread.get().startsWith("snowplow-ns-processing"));
+        assertTrue(storeThread.get().startsWith("snowplow-ns-store"));
+        assertTrue(emissionThread.get().startsWith("snowplow-ns-emission"));
+    }
+
+    public void testExecutorGroupDropNewestWhenQueueIsFull() throws InterruptedException {
+        ExecutorGroup group = new ExecutorGroup("ns", 1, 2, RejectionPolicy.DropNewest);
+        CountDownLatch blocker = new CountDownLatch(1);
+        AtomicInteger executed = new AtomicInteger();
+        group.executeEventStore(null, () -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            group.executeEventStore(null, executed::incrementAndGet);
+        }
+        blocker.countDown();
+        group.shutdown();
+        assertTrue(group.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(2, executed.get());
+    }
+
+    public void testExecutorGroupBlockWhenQueueIsFull() throws InterruptedException {
+        ExecutorGroup group = new ExecutorGroup("ns", 1, 2, RejectionPolicy.Block);
+        AtomicInteger executed = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            group.executeEventStore(null, () -> {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                executed.incrementAndGet();
+            });
+        }
+        group.shutdown();
+        assertTrue(group.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(100, executed.get());
+    }
 }
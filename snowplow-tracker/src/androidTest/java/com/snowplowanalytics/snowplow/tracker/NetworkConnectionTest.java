@@ -14,11 +14,14 @@
 package com.snowplowanalytics.snowplow.tracker;
 
 import android.annotation.SuppressLint;
+import android.net.TrafficStats;
 import android.test.AndroidTestCase;
 
 import androidx.annotation.NonNull;
 
+import com.snowplowanalytics.snowplow.internal.emitter.Emitter;
 import com.snowplowanalytics.snowplow.network.OkHttpNetworkConnection;
+import com.snowplowanalytics.snowplow.network.RequestCompression;
 import com.snowplowanalytics.snowplow.network.RequestResult;
 import com.snowplowanalytics.snowplow.internal.emitter.TLSVersion;
 import com.snowplowanalytics.snowplow.network.Request;
@@ -28,12 +31,19 @@ import com.snowplowanalytics.snowplow.payload.TrackerPayload;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
@@ -42,6 +52,7 @@ import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
 
+import static com.snowplowanalytics.snowplow.emitter.BufferOption.HeavyGroup;
 import static com.snowplowanalytics.snowplow.network.HttpMethod.GET;
 import static com.snowplowanalytics.snowplow.network.HttpMethod.POST;
 import static com.snowplowanalytics.snowplow.network.Protocol.HTTP;
@@ -100,6 +111,33 @@ public class NetworkConnectionTest extends AndroidTestCase {
         mockServer.shutdown();
     }
 
+    public void testRetryAfterIsReadOnRateLimiting() throws IOException {
+        MockWebServer mockServer = new MockWebServer();
+        mockServer.start();
+        mockServer.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "120"));
+        mockServer.enqueue(new MockResponse().setResponseCode(400));
+        OkHttpNetworkConnection connection =
+                new OkHttpNetworkConnection.OkHttpNetworkConnectionBuilder(getMockServerURI(mockServer))
+                        .method(GET)
+                        .emitTimeout(10)
+                        .build();
+
+        Payload payload = new TrackerPayload();
+        payload.add("key", "value");
+        RequestResult result = connection.sendRequests(Collections.singletonList(new Request(payload, 1))).get(0);
+        assertFalse(result.getSuccess());
+        assertEquals(429, result.getStatusCode());
+        assertEquals(120000, result.getRetryAfter());
+        assertTrue(result.isRetryable());
+
+        result = connection.sendRequests(Collections.singletonList(new Request(payload, 2))).get(0);
+        assertEquals(400, result.getStatusCode());
+        assertEquals(0, result.getRetryAfter());
+        assertFalse(result.isRetryable());
+
+        mockServer.shutdown();
+    }
+
     public void testPostRequestWithSuccess() throws IOException, InterruptedException {
         MockWebServer mockServer = getMockServer(200);
         OkHttpNetworkConnection connection =
@@ -193,6 +231,192 @@ public class NetworkConnectionTest extends AndroidTestCase {
         mockServer.shutdown();
     }
 
+    public void testRequestsAreSentOnDedicatedDispatcher() throws IOException {
+        MockWebServer mockServer = new MockWebServer();
+        mockServer.start();
+        for (int i = 0; i < 3; i++) {
+            mockServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+        }
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> trafficStatsTags = Collections.synchronizedList(new ArrayList<>());
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    threads.add(Thread.currentThread());
+                    trafficStatsTags.add(TrafficStats.getThreadStatsTag());
+                    return chain.proceed(chain.request());
+                })
+                .build();
+        OkHttpNetworkConnection connection =
+                new OkHttpNetworkConnection.OkHttpNetworkConnectionBuilder(getMockServerURI(mockServer))
+                        .method(POST)
+                        .emitTimeout(10)
+                        .maxConcurrentRequests(2)
+                        .client(client)
+                        .build();
+        assertEquals(2, connection.getMaxConcurrentRequests());
+
+        List<Request> requests = new ArrayList<>(3);
+        for (int i = 0; i < 3; i++) {
+            Payload payload = new TrackerPayload();
+            payload.add("key", "value");
+            requests.add(new Request(payload, i));
+        }
+
+        List<RequestResult> results = connection.sendRequests(requests);
+
+        assertEquals(3, results.size());
+        for (RequestResult result : results) {
+            assertTrue(result.getSuccess());
+        }
+        // Requests run on the connection's own threads, tagged for TrafficStats
+        assertEquals(3, threads.size());
+        assertFalse(threads.contains(Thread.currentThread()));
+        for (Integer tag : trafficStatsTags) {
+            assertEquals(1, tag.intValue());
+        }
+
+        mockServer.shutdown();
+    }
+
+    public void testPostRequestWithGzipCompression() throws IOException, InterruptedException, JSONException {
+        MockWebServer mockServer = getMockServer(200);
+        OkHttpNetworkConnection connection =
+                new OkHttpNetworkConnection.OkHttpNetworkConnectionBuilder(getMockServerURI(mockServer))
+                        .method(POST)
+                        .emitTimeout(10)
+                        .requestCompression(RequestCompression.GZIP)
+                        .build();
+
+        List<RequestResult> results = connection.sendRequests(Collections.singletonList(makeBundleRequest(20)));
+        RecordedRequest req = mockServer.takeRequest(60, TimeUnit.SECONDS);
+        assertNotNull(req);
+        assertEquals("gzip", req.getHeader("Content-Encoding"));
+        byte[] body = req.getBody().readByteArray();
+        JSONObject payload = new JSONObject(readUtf8(new GZIPInputStream(new ByteArrayInputStream(body))));
+        assertEquals(20, payload.getJSONArray("data").length());
+        assertTrue(results.get(0).getSuccess());
+
+        mockServer.shutdown();
+    }
+
+    public void testPostRequestWithDeflateCompression() throws IOException, InterruptedException, JSONException {
+        MockWebServer mockServer = getMockServer(200);
+        OkHttpNetworkConnection connection =
+                new OkHttpNetworkConnection.OkHttpNetworkConnectionBuilder(getMockServerURI(mockServer))
+                        .method(POST)
+                        .emitTimeout(10)
+                        .requestCompression(RequestCompression.DEFLATE)
+                        .build();
+
+        List<RequestResult> results = connection.sendRequests(Collections.singletonList(makeBundleRequest(20)));
+        RecordedRequest req = mockServer.takeRequest(60, TimeUnit.SECONDS);
+        assertNotNull(req);
+        assertEquals("deflate", req.getHeader("Content-Encoding"));
+        byte[] body = req.getBody().readByteArray();
+        JSONObject payload = new JSONObject(readUtf8(new InflaterInputStream(new ByteArrayInputStream(body))));
+        assertEquals(20, payload.getJSONArray("data").length());
+        assertTrue(results.get(0).getSuccess());
+
+        mockServer.shutdown();
+    }
+
+    public void testCompressedRequestsHoldMoreEventsUnderByteLimit() throws IOException, InterruptedException, JSONException {
+        MockWebServer mockServer = new MockWebServer();
+        mockServer.start();
+        for (int i = 0; i < 50; i++) {
+            mockServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+        }
+        MockEventStore eventStore = new MockEventStore();
+        for (int i = 0; i < 50; i++) {
+            Payload payload = new TrackerPayload();
+            payload.add("e", "ue");
+            payload.add("ue_px", "eyJzY2hlbWEiOiJpZ2x1OmNvbS5zbm93cGxvd2FuYWx5dGljcy5zbm93cGxvdy91bnN0cnVjdF9ldmVudC9qc29uc2NoZW1hLzEtMC0wIn0");
+            payload.add("eid", String.valueOf(i));
+            eventStore.add(payload);
+        }
+        Emitter emitter = new Emitter(getContext(), getMockServerURI(mockServer), new Emitter.EmitterBuilder()
+                .method(POST)
+                .option(HeavyGroup)
+                .tick(0)
+                .emptyLimit(0)
+                .byteLimitPost(1000)
+                .requestCompression(RequestCompression.GZIP)
+                .eventStore(eventStore)
+        );
+        emitter.flush();
+        for (int i = 0; i < 20 && (eventStore.getSize() > 0 || emitter.getEmitterStatus()); i++) {
+            Thread.sleep(500);
+        }
+        assertEquals(0, eventStore.getSize());
+
+        int receivedEvents = 0;
+        boolean isOverUncompressedLimit = false;
+        while (mockServer.getRequestCount() > 0 && receivedEvents < 50) {
+            RecordedRequest req = mockServer.takeRequest(10, TimeUnit.SECONDS);
+            assertNotNull(req);
+            byte[] body = req.getBody().readByteArray();
+            assertTrue(body.length <= 1000);
+            String json = readUtf8(new GZIPInputStream(new ByteArrayInputStream(body)));
+            isOverUncompressedLimit |= json.length() > 1000;
+            receivedEvents += new JSONObject(json).getJSONArray("data").length();
+        }
+        assertEquals(50, receivedEvents);
+        assertTrue(isOverUncompressedLimit);
+
+        emitter.shutdown();
+        mockServer.shutdown();
+    }
+
+    public void testCompressedRequestsAreFilledUpToByteLimit() throws IOException, InterruptedException, JSONException {
+        MockWebServer mockServer = new MockWebServer();
+        mockServer.start();
+        for (int i = 0; i < 50; i++) {
+            mockServer.enqueue(new MockResponse().setResponseCode(200).setBody("{}"));
+        }
+        // Payloads with random values, which compress poorly
+        Random random = new Random(42);
+        MockEventStore eventStore = new MockEventStore();
+        for (int i = 0; i < 50; i++) {
+            Payload payload = new TrackerPayload();
+            payload.add("e", "pv");
+            payload.add("url", "https://www.snowplowanalytics.com/" + Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()));
+            payload.add("eid", Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()));
+            eventStore.add(payload);
+        }
+        Emitter emitter = new Emitter(getContext(), getMockServerURI(mockServer), new Emitter.EmitterBuilder()
+                .method(POST)
+                .option(HeavyGroup)
+                .tick(0)
+                .emptyLimit(0)
+                .byteLimitPost(500)
+                .requestCompression(RequestCompression.GZIP)
+                .eventStore(eventStore)
+        );
+        emitter.flush();
+        for (int i = 0; i < 20 && (eventStore.getSize() > 0 || emitter.getEmitterStatus()); i++) {
+            Thread.sleep(500);
+        }
+        assertEquals(0, eventStore.getSize());
+
+        int receivedEvents = 0;
+        int requestCount = 0;
+        while (receivedEvents < 50) {
+            RecordedRequest req = mockServer.takeRequest(10, TimeUnit.SECONDS);
+            assertNotNull(req);
+            byte[] body = req.getBody().readByteArray();
+            assertTrue(body.length <= 500);
+            String json = readUtf8(new GZIPInputStream(new ByteArrayInputStream(body)));
+            receivedEvents += new JSONObject(json).getJSONArray("data").length();
+            requestCount++;
+        }
+        assertEquals(50, receivedEvents);
+        // Comparing the compressed bundle with the uncompressed size of the payloads took 17 requests
+        assertTrue(requestCount <= 13);
+
+        emitter.shutdown();
+        mockServer.shutdown();
+    }
+
     public void testFreeEndpoint_GetHttpsUrl() {
         OkHttpNetworkConnection connection =
                 new OkHttpNetworkConnection.OkHttpNetworkConnectionBuilder("acme.test.url.com")
@@ -245,6 +469,29 @@ public class NetworkConnectionTest extends AndroidTestCase {
 
 
 
+    private Request makeBundleRequest(int count) {
+        List<Payload> payloads = new ArrayList<>(count);
+        List<Long> eventIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Payload payload = new TrackerPayload();
+            payload.add("key", "value");
+            payloads.add(payload);
+            eventIds.add((long) i);
+        }
+        return new Request(payloads, eventIds);
+    }
+
+    private String readUtf8(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, length);
+        }
+        inputStream.close();
+        return outputStream.toString("UTF-8");
+    }
+
     // Mock Server
 
     public MockWebServer getMockServer(int responseCode) throws IOException {
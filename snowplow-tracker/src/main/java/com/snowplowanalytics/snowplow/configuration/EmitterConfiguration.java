@@ -7,6 +7,11 @@ import com.snowplowanalytics.snowplow.emitter.BufferOption;
 import com.snowplowanalytics.snowplow.internal.emitter.EmitterConfigurationInterface;
 import com.snowplowanalytics.snowplow.network.RequestCallback;
 import com.snowplowanalytics.snowplow.emitter.EventStore;
+import com.snowplowanalytics.snowplow.emitter.RejectionPolicy;
+import com.snowplowanalytics.snowplow.emitter.WaitStrategy;
+import com.snowplowanalytics.snowplow.util.TimeMeasure;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * It allows the tracker configuration from the emission perspective.
@@ -31,6 +36,33 @@ public class EmitterConfiguration implements Configuration, EmitterConfiguration
      */
     public int threadPoolSize;
 
+    /**
+     * @see #workQueueCapacity(int)
+     */
+    public int workQueueCapacity;
+
+    /**
+     * @see #rejectionPolicy(RejectionPolicy)
+     */
+    @NonNull
+    public RejectionPolicy rejectionPolicy;
+
+    /**
+     * @see #ringBufferSize(int)
+     */
+    public int ringBufferSize;
+
+    /**
+     * @see #waitStrategy(WaitStrategy)
+     */
+    @NonNull
+    public WaitStrategy waitStrategy;
+
+    /**
+     * @see #pipelineDepth(int)
+     */
+    public int pipelineDepth;
+
     /**
      * @see #byteLimitGet(int) 
      */
@@ -41,6 +73,59 @@ public class EmitterConfiguration implements Configuration, EmitterConfiguration
      */
     public long byteLimitPost;
 
+    /**
+     * @see #maxEventStoreSize(long)
+     */
+    public long maxEventStoreSize;
+
+    /**
+     * @see #maxEventStoreBytes(long)
+     */
+    public long maxEventStoreBytes;
+
+    /**
+     * @see #maxEventAge(TimeMeasure)
+     */
+    @Nullable
+    public TimeMeasure maxEventAge;
+
+    /**
+     * @see #maxRetryAttempts(int)
+     */
+    public int maxRetryAttempts;
+
+    /**
+     * @see #maxMeteredBacklog(long)
+     */
+    public long maxMeteredBacklog;
+
+    /**
+     * @see #adaptiveBatching(boolean)
+     */
+    public boolean adaptiveBatching;
+
+    /**
+     * @see #minEventsPerRequest(int)
+     */
+    public int minEventsPerRequest;
+
+    /**
+     * @see #maxEventsPerRequest(int)
+     */
+    public int maxEventsPerRequest;
+
+    /**
+     * @see #targetLatency(TimeMeasure)
+     */
+    @NonNull
+    public TimeMeasure targetLatency;
+
+    /**
+     * @see #maxFlushDelay(TimeMeasure)
+     */
+    @Nullable
+    public TimeMeasure maxFlushDelay;
+
     /**
      * @see #requestCallback(RequestCallback) 
      */
@@ -61,15 +146,38 @@ public class EmitterConfiguration implements Configuration, EmitterConfiguration
      *         bufferOption = BufferOption.Single;
      *         emitRange = 150;
      *         threadPoolSize = 15;
+     *         workQueueCapacity = 5000;
+     *         rejectionPolicy = RejectionPolicy.Block;
+     *         ringBufferSize = 0; (ring buffer pipeline disabled)
+     *         waitStrategy = WaitStrategy.Blocking;
      *         byteLimitGet = 40000;
      *         byteLimitPost = 40000;
+     *         pipelineDepth = 2;
+     *         maxEventStoreSize = 0; (no limit)
+     *         maxEventStoreBytes = 0; (no limit)
+     *         maxEventAge = null; (no limit)
+     *         maxRetryAttempts = 10;
+     *         maxMeteredBacklog = 0; (no limit)
+     *         adaptiveBatching = false;
+     *         minEventsPerRequest = 1;
+     *         maxEventsPerRequest = 500;
+     *         targetLatency = 2 seconds;
+     *         maxFlushDelay = null; (events sent straight away)
      */
     public EmitterConfiguration() {
         bufferOption = BufferOption.Single;
         emitRange = 150;
         threadPoolSize = 15;
+        workQueueCapacity = 5000;
+        rejectionPolicy = RejectionPolicy.Block;
+        waitStrategy = WaitStrategy.Blocking;
         byteLimitGet = 40000;
         byteLimitPost = 40000;
+        pipelineDepth = 2;
+        maxRetryAttempts = 10;
+        minEventsPerRequest = 1;
+        maxEventsPerRequest = 500;
+        targetLatency = new TimeMeasure(2, TimeUnit.SECONDS);
     }
 
     // Getters and Setters
@@ -110,6 +218,53 @@ public class EmitterConfiguration implements Configuration, EmitterConfiguration
         this.threadPoolSize = threadPoolSize;
     }
 
+    @Override
+    public int getWorkQueueCapacity() {
+        return workQueueCapacity;
+    }
+
+    public void setWorkQueueCapacity(int workQueueCapacity) {
+        this.workQueueCapacity = workQueueCapacity;
+    }
+
+    @Override
+    @NonNull
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    public void setRejectionPolicy(@NonNull RejectionPolicy rejectionPolicy) {
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    @Override
+    public int getRingBufferSize() {
+        return ringBufferSize;
+    }
+
+    public void setRingBufferSize(int ringBufferSize) {
+        this.ringBufferSize = ringBufferSize;
+    }
+
+    @Override
+    @NonNull
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public void setWaitStrategy(@NonNull WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    @Override
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    public void setPipelineDepth(int pipelineDepth) {
+        this.pipelineDepth = pipelineDepth;
+    }
+
     @Override
     public long getByteLimitGet() {
         return byteLimitGet;
@@ -130,6 +285,99 @@ public class EmitterConfiguration implements Configuration, EmitterConfiguration
         this.byteLimitPost = byteLimitPost;
     }
 
+    @Override
+    public long getMaxEventStoreSize() {
+        return maxEventStoreSize;
+    }
+
+    public void setMaxEventStoreSize(long maxEventStoreSize) {
+        this.maxEventStoreSize = maxEventStoreSize;
+    }
+
+    @Override
+    public long getMaxEventStoreBytes() {
+        return maxEventStoreBytes;
+    }
+
+    public void setMaxEventStoreBytes(long maxEventStoreBytes) {
+        this.maxEventStoreBytes = maxEventStoreBytes;
+    }
+
+    @Override
+    @Nullable
+    public TimeMeasure getMaxEventAge() {
+        return maxEventAge;
+    }
+
+    public void setMaxEventAge(@Nullable TimeMeasure maxEventAge) {
+        this.maxEventAge = maxEventAge;
+    }
+
+    @Override
+    public int getMaxRetryAttempts() {
+        return maxRetryAttempts;
+    }
+
+    public void setMaxRetryAttempts(int maxRetryAttempts) {
+        this.maxRetryAttempts = maxRetryAttempts;
+    }
+
+    @Override
+    public long getMaxMeteredBacklog() {
+        return maxMeteredBacklog;
+    }
+
+    public void setMaxMeteredBacklog(long maxMeteredBacklog) {
+        this.maxMeteredBacklog = maxMeteredBacklog;
+    }
+
+    @Override
+    public boolean isAdaptiveBatching() {
+        return adaptiveBatching;
+    }
+
+    public void setAdaptiveBatching(boolean adaptiveBatching) {
+        this.adaptiveBatching = adaptiveBatching;
+    }
+
+    @Override
+    public int getMinEventsPerRequest() {
+        return minEventsPerRequest;
+    }
+
+    public void setMinEventsPerRequest(int minEventsPerRequest) {
+        this.minEventsPerRequest = minEventsPerRequest;
+    }
+
+    @Override
+    public int getMaxEventsPerRequest() {
+        return maxEventsPerRequest;
+    }
+
+    public void setMaxEventsPerRequest(int maxEventsPerRequest) {
+        this.maxEventsPerRequest = maxEventsPerRequest;
+    }
+
+    @Override
+    @NonNull
+    public TimeMeasure getTargetLatency() {
+        return targetLatency;
+    }
+
+    public void setTargetLatency(@NonNull TimeMeasure targetLatency) {
+        this.targetLatency = targetLatency;
+    }
+
+    @Override
+    @Nullable
+    public TimeMeasure getMaxFlushDelay() {
+        return maxFlushDelay;
+    }
+
+    public void setMaxFlushDelay(@Nullable TimeMeasure maxFlushDelay) {
+        this.maxFlushDelay = maxFlushDelay;
+    }
+
     @Override
     @Nullable
     public RequestCallback getRequestCallback() {
@@ -172,6 +420,65 @@ public class EmitterConfiguration implements Configuration, EmitterConfiguration
         return this;
     }
 
+    /**
+     * Maximum number of tasks waiting in each of the tracker's work queues
+     * (event processing and event store).
+     */
+    @NonNull
+    public EmitterConfiguration workQueueCapacity(int workQueueCapacity) {
+        this.workQueueCapacity = workQueueCapacity;
+        return this;
+    }
+
+    /**
+     * Behaviour of the tracker when a work queue is full.
+     * By default (RejectionPolicy Block) the caller waits until there is room in the queue,
+     * except on the main thread where the oldest task is discarded.
+     * With RejectionPolicy DropOldest or DropNewest the caller never waits but the tasks
+     * discarded can include the insertion of events in the event store.
+     */
+    @NonNull
+    public EmitterConfiguration rejectionPolicy(@NonNull RejectionPolicy rejectionPolicy) {
+        this.rejectionPolicy = rejectionPolicy;
+        return this;
+    }
+
+    /**
+     * Number of slots of the ring buffer event pipeline (rounded up to a power of 2).
+     * When it's set, the tracked events are published to a preallocated ring buffer
+     * and processed by two dedicated threads (enrichment and serialization, then
+     * store append) instead of the event processing work queue.
+     * When the ring buffer is full, the callers of `track` wait with RejectionPolicy Block,
+     * except on the main thread; otherwise the new event is dropped.
+     * By default (0) the ring buffer pipeline is disabled.
+     */
+    @NonNull
+    public EmitterConfiguration ringBufferSize(int ringBufferSize) {
+        this.ringBufferSize = ringBufferSize;
+        return this;
+    }
+
+    /**
+     * Behaviour of the stages of the ring buffer event pipeline waiting for events.
+     * By default, they wait on a lock (WaitStrategy Blocking).
+     */
+    @NonNull
+    public EmitterConfiguration waitStrategy(@NonNull WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        return this;
+    }
+
+    /**
+     * Maximum number of batches of events in the emission pipeline.
+     * With a depth greater than 1 the next batches are read from the EventStore
+     * while the current one is being sent to the collector.
+     */
+    @NonNull
+    public EmitterConfiguration pipelineDepth(int pipelineDepth) {
+        this.pipelineDepth = pipelineDepth;
+        return this;
+    }
+
     /**
      * Maximum amount of bytes allowed to be sent in a payload in a GET request.
      */
@@ -190,9 +497,119 @@ public class EmitterConfiguration implements Configuration, EmitterConfiguration
         return this;
     }
 
+    /**
+     * Maximum number of events kept in the default EventStore.
+     * When the limit is exceeded the oldest events are dropped.
+     * By default (0) there is no limit.
+     */
+    @NonNull
+    public EmitterConfiguration maxEventStoreSize(long maxEventStoreSize) {
+        this.maxEventStoreSize = maxEventStoreSize;
+        return this;
+    }
+
+    /**
+     * Maximum size (in bytes) of the database of the default EventStore.
+     * When the limit is exceeded the oldest events are dropped.
+     * By default (0) there is no limit.
+     */
+    @NonNull
+    public EmitterConfiguration maxEventStoreBytes(long maxEventStoreBytes) {
+        this.maxEventStoreBytes = maxEventStoreBytes;
+        return this;
+    }
+
+    /**
+     * Maximum time an event is kept in the default EventStore waiting to be sent.
+     * Older events are dropped. By default (null) there is no limit.
+     */
+    @NonNull
+    public EmitterConfiguration maxEventAge(@Nullable TimeMeasure maxEventAge) {
+        this.maxEventAge = maxEventAge;
+        return this;
+    }
+
+    /**
+     * Maximum number of failed attempts to send an event of the default EventStore.
+     * The events over the limit, and the events rejected by the collector with a
+     * client error (4xx), are moved to a dead-letter table so that they don't block
+     * the other events. A limit of 0 retries the events forever.
+     */
+    @NonNull
+    public EmitterConfiguration maxRetryAttempts(int maxRetryAttempts) {
+        this.maxRetryAttempts = maxRetryAttempts;
+        return this;
+    }
+
+    /**
+     * Maximum number of events in the EventStore that can be sent on a metered network.
+     * Larger backlogs are sent only when an unmetered network (e.g. Wi-Fi) is available.
+     * By default (0) the events are sent on any network.
+     */
+    @NonNull
+    public EmitterConfiguration maxMeteredBacklog(long maxMeteredBacklog) {
+        this.maxMeteredBacklog = maxMeteredBacklog;
+        return this;
+    }
+
+    /**
+     * Whether the emitter tunes the number of events per request and the number of
+     * requests sent together on the latency and the failures of the collector.
+     * In adaptive mode the bufferOption and the emitRange are replaced by the
+     * bounds of the events per request and by the maximum concurrent requests.
+     */
+    @NonNull
+    public EmitterConfiguration adaptiveBatching(boolean adaptiveBatching) {
+        this.adaptiveBatching = adaptiveBatching;
+        return this;
+    }
+
+    /**
+     * Minimum number of events in a POST request in adaptive mode.
+     */
+    @NonNull
+    public EmitterConfiguration minEventsPerRequest(int minEventsPerRequest) {
+        this.minEventsPerRequest = minEventsPerRequest;
+        return this;
+    }
+
+    /**
+     * Maximum number of events in a POST request in adaptive mode.
+     */
+    @NonNull
+    public EmitterConfiguration maxEventsPerRequest(int maxEventsPerRequest) {
+        this.maxEventsPerRequest = maxEventsPerRequest;
+        return this;
+    }
+
+    /**
+     * Maximum time to send the requests of a round in adaptive mode.
+     * Above it the events per request and the requests are reduced.
+     */
+    @NonNull
+    public EmitterConfiguration targetLatency(@NonNull TimeMeasure targetLatency) {
+        this.targetLatency = targetLatency;
+        return this;
+    }
+
+    /**
+     * Maximum time an event waits to be sent while the emitter is idle.
+     * When it's set, the events are collected until they fill a request, or until
+     * the oldest unsent event has waited for the delay, so that they are sent in
+     * fewer requests with a bounded latency.
+     * By default (null) the events are sent as soon as they are tracked.
+     */
+    @NonNull
+    public EmitterConfiguration maxFlushDelay(@Nullable TimeMeasure maxFlushDelay) {
+        this.maxFlushDelay = maxFlushDelay;
+        return this;
+    }
+
     /**
      * Custom component with full ownership for persisting events before to be sent to the collector.
      * If it's not set the tracker will use a SQLite database as default EventStore.
+     * Alternatively, the tracker provides MappedLogEventStore, a log of memory-mapped files,
+     * and MemoryEventStore, a memory buffer that spills the events to a persistent EventStore.
      */
     @NonNull
     public EmitterConfiguration eventStore(@Nullable EventStore eventStore) {
@@ -218,8 +635,23 @@ public class EmitterConfiguration implements Configuration, EmitterConfiguration
         copy.bufferOption = bufferOption;
         copy.emitRange = emitRange;
         copy.threadPoolSize = threadPoolSize;
+        copy.workQueueCapacity = workQueueCapacity;
+        copy.rejectionPolicy = rejectionPolicy;
+        copy.ringBufferSize = ringBufferSize;
+        copy.waitStrategy = waitStrategy;
+        copy.pipelineDepth = pipelineDepth;
         copy.byteLimitGet = byteLimitGet;
         copy.byteLimitPost = byteLimitPost;
+        copy.maxEventStoreSize = maxEventStoreSize;
+        copy.maxEventStoreBytes = maxEventStoreBytes;
+        copy.maxEventAge = maxEventAge;
+        copy.maxRetryAttempts = maxRetryAttempts;
+        copy.maxMeteredBacklog = maxMeteredBacklog;
+        copy.adaptiveBatching = adaptiveBatching;
+        copy.minEventsPerRequest = minEventsPerRequest;
+        copy.maxEventsPerRequest = maxEventsPerRequest;
+        copy.targetLatency = targetLatency;
+        copy.maxFlushDelay = maxFlushDelay;
         copy.eventStore = eventStore;
         copy.requestCallback = requestCallback;
         return copy;
@@ -10,6 +10,7 @@ import com.snowplowanalytics.snowplow.internal.tracker.Logger;
 import com.snowplowanalytics.snowplow.network.NetworkConnection;
 import com.snowplowanalytics.snowplow.network.HttpMethod;
 import com.snowplowanalytics.snowplow.network.Protocol;
+import com.snowplowanalytics.snowplow.network.RequestCompression;
 
 import org.json.JSONObject;
 
@@ -55,6 +56,18 @@ public class NetworkConfiguration implements NetworkConfigurationInterface, Conf
     @Nullable
     public OkHttpClient okHttpClient;
 
+    /**
+     * @see #maxConcurrentRequests(Integer)
+     */
+    @Nullable
+    public Integer maxConcurrentRequests;
+
+    /**
+     * @see #requestCompression(RequestCompression)
+     */
+    @Nullable
+    public RequestCompression requestCompression;
+
     // Constructors
 
     /**
@@ -162,6 +175,18 @@ public class NetworkConfiguration implements NetworkConfigurationInterface, Conf
         return okHttpClient;
     }
 
+    @Override
+    @Nullable
+    public Integer getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    @Override
+    @Nullable
+    public RequestCompression getRequestCompression() {
+        return requestCompression;
+    }
+
     // Builder methods
 
     /**
@@ -194,6 +219,29 @@ public class NetworkConfiguration implements NetworkConfigurationInterface, Conf
         return this;
     }
 
+    /**
+     * The maximum number of requests sent in parallel to the collector.
+     * Requests are executed on a dispatcher dedicated to the network connection,
+     * so they never hold the threads used for the event processing.
+     */
+    @NonNull
+    public NetworkConfiguration maxConcurrentRequests(@NonNull Integer maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        return this;
+    }
+
+    /**
+     * The compression of the body of the POST requests (by default, uncompressed).
+     * The collector must accept the matching Content-Encoding.
+     * When the requests are compressed, the byte limit of the POST requests
+     * is applied to the compressed body, so each request can hold more events.
+     */
+    @NonNull
+    public NetworkConfiguration requestCompression(@NonNull RequestCompression requestCompression) {
+        this.requestCompression = requestCompression;
+        return this;
+    }
+
     // Copyable
 
     @NonNull
@@ -211,6 +259,8 @@ public class NetworkConfiguration implements NetworkConfigurationInterface, Conf
         }
         copy.customPostPath = customPostPath;
         copy.timeout = timeout;
+        copy.maxConcurrentRequests = maxConcurrentRequests;
+        copy.requestCompression = requestCompression;
         return copy;
     }
 
@@ -9,6 +9,41 @@ public interface EmitterController extends EmitterConfigurationInterface {
      */
     long getDbCount();
 
+    /**
+     * Number of events dropped from the EventStore because they exceeded
+     * the maximum size or age of the store.
+     */
+    long getEvictedEventCount();
+
+    /**
+     * Number of events moved to the dead-letter table of the EventStore because
+     * they were rejected by the collector or exceeded the maximum number of attempts.
+     */
+    long getDeadEventCount();
+
+    /**
+     * Number of events currently sent in a POST request.
+     * In adaptive mode it's tuned on the latency and the failures of the collector.
+     */
+    int getCurrentEventsPerRequest();
+
+    /**
+     * Number of requests currently sent together in a round of the emission.
+     * In adaptive mode it's tuned on the latency and the failures of the collector.
+     */
+    int getCurrentRequestsPerRound();
+
+    /**
+     * Time (in milliseconds) taken by the last round of requests to the collector.
+     */
+    long getLastSendLatency();
+
+    /**
+     * Moving average of the time (in milliseconds) taken by the rounds of requests
+     * to the collector.
+     */
+    long getAverageSendLatency();
+
     /**
      * Whether the emitter is currently sending events.
      */
@@ -60,6 +60,7 @@ public interface EventStore {
     /**
      * Returns a list of EmittableEvent objects which
      * contains events and related ids.
+     * The oldest events are expected to be returned first.
      * @return EmittableEvent objects containing
      * eventIds and event payloads.
      */
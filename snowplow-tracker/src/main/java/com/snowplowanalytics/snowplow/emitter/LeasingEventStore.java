@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.emitter;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Interface for the EventStore that can lease its events,
+ * so that concurrent emission workers never pick the same events.
+ * A leased event is not returned by other leases until it's
+ * acknowledged, released or its lease expires.
+ * The EventStores not implementing it are leased by the Emitter.
+ */
+public interface LeasingEventStore extends EventStore {
+
+    /**
+     * Leases the oldest events not already leased.
+     * @param limit the maximum number of events to lease.
+     * @param leaseDuration the time (in milliseconds) after which the events
+     *                      are leased again if not acknowledged or released.
+     * @return the leased events.
+     */
+    @NonNull List<EmitterEvent> lease(int limit, long leaseDuration);
+
+    /**
+     * Removes leased events from the store, as they have been sent.
+     * @param ids the events' identifiers in the store.
+     * @return a boolean of success to remove.
+     */
+    boolean ack(@NonNull List<Long> ids);
+
+    /**
+     * Releases the lease on events not sent, so that they can be leased again.
+     * @param ids the events' identifiers in the store.
+     */
+    void release(@NonNull List<Long> ids);
+}
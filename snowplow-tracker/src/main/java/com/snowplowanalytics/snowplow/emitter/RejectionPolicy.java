@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.emitter;
+
+/**
+ * RejectionPolicy is used to set how the tracker behaves when the work queue
+ * of one of its executors (event processing, event store, emission) is full.
+ */
+public enum RejectionPolicy {
+    /**
+     * The thread submitting the task waits until there is space in the queue.
+     * No events are lost but the caller of `track` can be slowed down during
+     * long bursts of events or while the collector is unreachable.
+     * The main thread never waits: on the main thread the oldest task is discarded.
+     * This is the default policy.
+     */
+    Block,
+
+    /**
+     * The oldest task in the queue is discarded to make room for the new one.
+     */
+    DropOldest,
+
+    /**
+     * The new task is discarded.
+     */
+    DropNewest
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.emitter;
+
+/**
+ * WaitStrategy is used to set how the stages of the ring buffer event pipeline
+ * wait for new events (see `EmitterConfiguration.ringBufferSize`).
+ */
+public enum WaitStrategy {
+    /**
+     * The stages wait on a lock until they are signalled.
+     * It uses the least CPU but it adds the cost of the signal to `track`.
+     */
+    Blocking,
+
+    /**
+     * The stages spin briefly, then yield, then sleep for short periods
+     * (about 10 ms in total) before waiting on a lock like `Blocking`.
+     * It trades some CPU during the bursts of events for a lower latency.
+     */
+    Sleeping,
+
+    /**
+     * The stages spin and yield the thread for a while before waiting on a lock
+     * like `Blocking`. It has the lowest latency but it keeps a core busy during
+     * the bursts of events, use it only when the events are tracked in bursts.
+     */
+    Yielding
+}
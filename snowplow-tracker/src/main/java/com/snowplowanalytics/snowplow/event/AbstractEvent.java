@@ -30,14 +30,27 @@ import java.util.List;
  * - Timestamp: user defined event timestamp or 0
  * - AbstractEvent Id: a unique id for the event
  */
-public abstract class AbstractEvent implements Event {
+public abstract class AbstractEvent implements Event, Cloneable {
 
     /** List of custom contexts associated to the event. */
+    @NonNull
     public final List<SelfDescribingJson> customContexts = new LinkedList<>();
     /** Custom timestamp of the event. */
     @Nullable
     public Long trueTimestamp;
 
+    protected AbstractEvent() {}
+
+    /**
+     * Creates a copy of the event.
+     * The custom contexts list is duplicated, the contexts it contains are shared.
+     * @param event The event to copy.
+     */
+    protected AbstractEvent(@NonNull AbstractEvent event) {
+        customContexts.addAll(event.customContexts);
+        trueTimestamp = event.trueTimestamp;
+    }
+
     // Builder methods
 
     /** Adds a list of contexts. */
@@ -73,6 +86,27 @@ public abstract class AbstractEvent implements Event {
         return this.trueTimestamp;
     }
 
+    /**
+     * Internal use only.
+     * Copy of the event taken when it's tracked, so that the event
+     * is processed with the values it had at that time even if the event
+     * object is reused and modified afterwards.
+     * The events of the tracker override it with their copy constructor,
+     * which duplicates the mutable containers (contexts, data, items),
+     * so their subclasses have to override it to keep their own class.
+     * The default implementation is a shallow clone of the event.
+     *
+     * @return the copy of the event
+     */
+    @NonNull
+    public AbstractEvent snapshot() {
+        try {
+            return (AbstractEvent) clone();
+        } catch (CloneNotSupportedException e) {
+            return this; // Unreachable as the event is Cloneable
+        }
+    }
+
     @Override
     public void beginProcessing(@NonNull Tracker tracker) {}
 
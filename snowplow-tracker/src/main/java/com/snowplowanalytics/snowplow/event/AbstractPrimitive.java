@@ -19,6 +19,8 @@ public abstract class AbstractPrimitive extends AbstractEvent {
 
     protected AbstractPrimitive() { super(); }
 
+    protected AbstractPrimitive(@NonNull AbstractPrimitive event) { super(event); }
+
     /**
      * @return The name of the event.
      */
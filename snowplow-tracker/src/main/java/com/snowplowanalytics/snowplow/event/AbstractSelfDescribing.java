@@ -19,6 +19,8 @@ public abstract class AbstractSelfDescribing extends AbstractEvent {
 
     protected AbstractSelfDescribing() { super(); }
 
+    protected AbstractSelfDescribing(@NonNull AbstractSelfDescribing event) { super(event); }
+
     /**
      * @return The schema of the event.
      */
@@ -30,6 +30,18 @@ public class Background extends AbstractSelfDescribing {
     @Nullable
     public Integer backgroundIndex;
 
+    /** Creates a background transition event. */
+    public Background() {}
+
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected Background(@NonNull Background event) {
+        super(event);
+        this.backgroundIndex = event.backgroundIndex;
+    }
+
     // Builder methods
 
     /** Index indicating the current transition. */
@@ -56,4 +68,10 @@ public class Background extends AbstractSelfDescribing {
         }
         return payload;
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new Background(this);
+    }
 }
@@ -55,6 +55,18 @@ public class ConsentDocument extends AbstractSelfDescribing {
         this.documentVersion = documentVersion;
     }
 
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected ConsentDocument(@NonNull ConsentDocument event) {
+        super(event);
+        this.documentId = event.documentId;
+        this.documentVersion = event.documentVersion;
+        this.documentName = event.documentName;
+        this.documentDescription = event.documentDescription;
+    }
+
     // Builder methods
 
     /** Name of the document. */
@@ -87,4 +99,10 @@ public class ConsentDocument extends AbstractSelfDescribing {
     public @NonNull String getSchema() {
         return TrackerConstants.SCHEMA_CONSENT_DOCUMENT;
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new ConsentDocument(this);
+    }
 }
@@ -68,6 +68,20 @@ public class ConsentGranted extends AbstractSelfDescribing {
         this.documentVersion = documentVersion;
     }
 
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected ConsentGranted(@NonNull ConsentGranted event) {
+        super(event);
+        this.expiry = event.expiry;
+        this.documentId = event.documentId;
+        this.documentVersion = event.documentVersion;
+        this.documentName = event.documentName;
+        this.documentDescription = event.documentDescription;
+        this.consentDocuments.addAll(event.consentDocuments);
+    }
+
     // Builder methods
 
     /** Name of the first document. */
@@ -126,4 +140,10 @@ public class ConsentGranted extends AbstractSelfDescribing {
             customContexts.add(context);  // TODO: Only the user should modify the public customContexts property
         }
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new ConsentGranted(this);
+    }
 }
\ No newline at end of file
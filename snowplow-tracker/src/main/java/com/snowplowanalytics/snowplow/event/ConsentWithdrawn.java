@@ -65,6 +65,20 @@ public class ConsentWithdrawn extends AbstractSelfDescribing {
         this.documentVersion = documentVersion;
     }
 
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected ConsentWithdrawn(@NonNull ConsentWithdrawn event) {
+        super(event);
+        this.all = event.all;
+        this.documentId = event.documentId;
+        this.documentVersion = event.documentVersion;
+        this.documentName = event.documentName;
+        this.documentDescription = event.documentDescription;
+        this.consentDocuments.addAll(event.consentDocuments);
+    }
+
     // Builder methods
 
     /** Name of the first document. */
@@ -120,4 +134,10 @@ public class ConsentWithdrawn extends AbstractSelfDescribing {
             customContexts.add(context); // TODO: Only the user should modify the public customContexts property
         }
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new ConsentWithdrawn(this);
+    }
 }
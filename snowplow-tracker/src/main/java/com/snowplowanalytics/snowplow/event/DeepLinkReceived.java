@@ -48,6 +48,16 @@ public class DeepLinkReceived extends AbstractSelfDescribing {
         this.url = url;
     }
 
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected DeepLinkReceived(@NonNull DeepLinkReceived event) {
+        super(event);
+        this.url = event.url;
+        this.referrer = event.referrer;
+    }
+
     /**
      * Convenient factory method that generates the event from the Intent received by the Activity.
      * The Activity can store in the Intent the deep link url and the referrer url (if available).
@@ -119,5 +129,11 @@ public class DeepLinkReceived extends AbstractSelfDescribing {
     public @NonNull String getSchema() {
         return SCHEMA;
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new DeepLinkReceived(this);
+    }
 }
 
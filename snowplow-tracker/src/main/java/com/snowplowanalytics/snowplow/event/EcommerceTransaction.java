@@ -76,6 +76,24 @@ public class EcommerceTransaction extends AbstractPrimitive {
         this.items = new ArrayList<>(items);
     }
 
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected EcommerceTransaction(@NonNull EcommerceTransaction event) {
+        super(event);
+        this.orderId = event.orderId;
+        this.totalValue = event.totalValue;
+        this.items = new ArrayList<>(event.items);
+        this.affiliation = event.affiliation;
+        this.taxValue = event.taxValue;
+        this.shipping = event.shipping;
+        this.city = event.city;
+        this.state = event.state;
+        this.country = event.country;
+        this.currency = event.currency;
+    }
+
     // Builder methods
 
     /** Identifies an affiliation. */
@@ -162,4 +180,10 @@ public class EcommerceTransaction extends AbstractPrimitive {
             tracker.track(item);
         }
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new EcommerceTransaction(this);
+    }
 }
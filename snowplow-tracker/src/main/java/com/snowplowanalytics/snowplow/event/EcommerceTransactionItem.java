@@ -62,6 +62,21 @@ public class EcommerceTransactionItem extends AbstractPrimitive {
         this.quantity = quantity;
     }
 
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected EcommerceTransactionItem(@NonNull EcommerceTransactionItem event) {
+        super(event);
+        this.sku = event.sku;
+        this.price = event.price;
+        this.quantity = event.quantity;
+        this.name = event.name;
+        this.category = event.category;
+        this.currency = event.currency;
+        this.orderId = event.orderId;
+    }
+
     // Builder methods
 
     /** Name of the item. */
@@ -111,4 +126,10 @@ public class EcommerceTransactionItem extends AbstractPrimitive {
     public @NonNull String getName() {
         return TrackerConstants.EVENT_ECOMM_ITEM;
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new EcommerceTransactionItem(this);
+    }
 }
@@ -30,6 +30,18 @@ public class Foreground extends AbstractSelfDescribing {
     @Nullable
     public Integer foregroundIndex;
 
+    /** Creates a foreground transition event. */
+    public Foreground() {}
+
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected Foreground(@NonNull Foreground event) {
+        super(event);
+        this.foregroundIndex = event.foregroundIndex;
+    }
+
     // Builder methods
 
     /** Index indicating the current transition. */
@@ -56,4 +68,10 @@ public class Foreground extends AbstractSelfDescribing {
         }
         return payload;
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new Foreground(this);
+    }
 }
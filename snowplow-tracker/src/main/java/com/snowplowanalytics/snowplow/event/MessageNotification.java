@@ -16,6 +16,7 @@ package com.snowplowanalytics.snowplow.event;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -116,6 +117,33 @@ public class MessageNotification extends AbstractSelfDescribing {
         this.trigger = trigger;
     }
 
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected MessageNotification(@NonNull MessageNotification event) {
+        super(event);
+        this.title = event.title;
+        this.body = event.body;
+        this.trigger = event.trigger;
+        this.action = event.action;
+        this.attachments = event.attachments == null ? null : new ArrayList<>(event.attachments);
+        this.bodyLocArgs = event.bodyLocArgs == null ? null : new ArrayList<>(event.bodyLocArgs);
+        this.bodyLocKey = event.bodyLocKey;
+        this.category = event.category;
+        this.contentAvailable = event.contentAvailable;
+        this.group = event.group;
+        this.icon = event.icon;
+        this.notificationCount = event.notificationCount;
+        this.notificationTimestamp = event.notificationTimestamp;
+        this.sound = event.sound;
+        this.subtitle = event.subtitle;
+        this.tag = event.tag;
+        this.threadIdentifier = event.threadIdentifier;
+        this.titleLocArgs = event.titleLocArgs == null ? null : new ArrayList<>(event.titleLocArgs);
+        this.titleLocKey = event.titleLocKey;
+    }
+
     // Builder methods
 
     /** The action associated with the notification. */
@@ -293,5 +321,11 @@ public class MessageNotification extends AbstractSelfDescribing {
     public @NonNull String getSchema() {
         return SCHEMA;
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new MessageNotification(this);
+    }
 }
 
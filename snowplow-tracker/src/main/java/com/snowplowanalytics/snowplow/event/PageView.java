@@ -49,6 +49,17 @@ public class PageView extends AbstractPrimitive {
         this.pageUrl = pageUrl;
     }
 
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected PageView(@NonNull PageView event) {
+        super(event);
+        this.pageUrl = event.pageUrl;
+        this.pageTitle = event.pageTitle;
+        this.referrer = event.referrer;
+    }
+
     // Builder methods
 
     /** Page title. */
@@ -80,4 +91,10 @@ public class PageView extends AbstractPrimitive {
     public @NonNull String getName() {
         return TrackerConstants.EVENT_PAGE_VIEW;
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new PageView(this);
+    }
 }
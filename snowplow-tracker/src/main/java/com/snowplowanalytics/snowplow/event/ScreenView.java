@@ -123,6 +123,25 @@ public class ScreenView extends AbstractSelfDescribing {
         }
     }
 
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected ScreenView(@NonNull ScreenView event) {
+        super(event);
+        this.name = event.name;
+        this.id = event.id;
+        this.type = event.type;
+        this.previousName = event.previousName;
+        this.previousId = event.previousId;
+        this.previousType = event.previousType;
+        this.transitionType = event.transitionType;
+        this.fragmentClassName = event.fragmentClassName;
+        this.fragmentTag = event.fragmentTag;
+        this.activityClassName = event.activityClassName;
+        this.activityTag = event.activityTag;
+    }
+
     // Builder methods
 
     /** Type of screen. */
@@ -239,4 +258,10 @@ public class ScreenView extends AbstractSelfDescribing {
         }
         return "Unknown";
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new ScreenView(this);
+    }
 }
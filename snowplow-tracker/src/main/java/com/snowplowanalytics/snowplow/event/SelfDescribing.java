@@ -19,6 +19,7 @@ import com.snowplowanalytics.snowplow.internal.constants.Parameters;
 import com.snowplowanalytics.snowplow.payload.SelfDescribingJson;
 import com.snowplowanalytics.snowplow.internal.utils.Preconditions;
 
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -70,6 +71,17 @@ public class SelfDescribing extends AbstractSelfDescribing {
         this.eventData = new SelfDescribingJson(schema, payload);
     }
 
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected SelfDescribing(@NonNull SelfDescribing event) {
+        super(event);
+        this.schema = event.schema;
+        this.payload = new HashMap<>(event.payload);
+        this.eventData = new SelfDescribingJson(schema, payload);
+    }
+
     // Tracker methods
 
     @Override
@@ -81,4 +93,10 @@ public class SelfDescribing extends AbstractSelfDescribing {
     public @NonNull String getSchema() {
         return schema;
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new SelfDescribing(this);
+    }
 }
@@ -46,6 +46,19 @@ public class Structured extends AbstractPrimitive {
         this.action = action;
     }
 
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected Structured(@NonNull Structured event) {
+        super(event);
+        this.category = event.category;
+        this.action = event.action;
+        this.label = event.label;
+        this.property = event.property;
+        this.value = event.value;
+    }
+
     // Builder methods
 
     @NonNull
@@ -85,4 +98,10 @@ public class Structured extends AbstractPrimitive {
     public String getName() {
         return TrackerConstants.EVENT_STRUCTURED;
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new Structured(this);
+    }
 }
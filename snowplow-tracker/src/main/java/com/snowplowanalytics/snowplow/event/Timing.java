@@ -45,6 +45,18 @@ public class Timing extends AbstractSelfDescribing {
         this.timing = timing;
     }
 
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected Timing(@NonNull Timing event) {
+        super(event);
+        this.category = event.category;
+        this.variable = event.variable;
+        this.timing = event.timing;
+        this.label = event.label;
+    }
+
     // Builder methods
 
     @NonNull
@@ -71,4 +83,10 @@ public class Timing extends AbstractSelfDescribing {
     public @NonNull String getSchema() {
         return TrackerConstants.SCHEMA_USER_TIMINGS;
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new Timing(this);
+    }
 }
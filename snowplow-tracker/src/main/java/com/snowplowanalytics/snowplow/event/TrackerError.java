@@ -44,6 +44,17 @@ public class TrackerError extends AbstractSelfDescribing {
         this.throwable = throwable;
     }
 
+    /**
+     * Creates a copy of the event.
+     * @param event The event to copy.
+     */
+    protected TrackerError(@NonNull TrackerError event) {
+        super(event);
+        this.source = event.source;
+        this.message = event.message;
+        this.throwable = event.throwable;
+    }
+
     // Tracker methods
 
     @Override
@@ -77,4 +88,10 @@ public class TrackerError extends AbstractSelfDescribing {
         if (s == null) return null;
         return s.substring(0, Math.min(s.length(), maxLength));
     }
+
+    @Override
+    @NonNull
+    public AbstractEvent snapshot() {
+        return new TrackerError(this);
+    }
 }
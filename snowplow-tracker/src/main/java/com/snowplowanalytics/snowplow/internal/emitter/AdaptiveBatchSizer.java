@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.emitter;
+
+import androidx.annotation.RestrictTo;
+
+/**
+ * Tunes the number of events per request and of requests per round of
+ * the emission with AIMD (additive increase, multiplicative decrease).
+ * The sizes grow a step at a time while the rounds are full and the
+ * collector responds within the target latency; they are halved when
+ * the requests fail or the latency exceeds the target.
+ * The events per request grow first, then the requests per round.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public class AdaptiveBatchSizer {
+    // Number of additive steps to go from the minimum to the maximum events per request
+    private static final int INCREASE_STEPS = 16;
+
+    private final int minEventsPerRequest;
+    private final int maxEventsPerRequest;
+    private final int maxRequestsPerRound;
+    private final long targetLatency;
+    private final int increaseStep;
+    private int eventsPerRequest;
+    private int requestsPerRound;
+
+    /**
+     * @param minEventsPerRequest the minimum number of events in a request
+     * @param maxEventsPerRequest the maximum number of events in a request
+     * @param maxRequestsPerRound the maximum number of requests sent in a round
+     * @param targetLatency the maximum latency (in milliseconds) of a round before the sizes are decreased
+     * @param initialEventsPerRequest the number of events in a request at start
+     */
+    public AdaptiveBatchSizer(int minEventsPerRequest, int maxEventsPerRequest, int maxRequestsPerRound, long targetLatency, int initialEventsPerRequest) {
+        this.minEventsPerRequest = Math.max(minEventsPerRequest, 1);
+        this.maxEventsPerRequest = Math.max(maxEventsPerRequest, this.minEventsPerRequest);
+        this.maxRequestsPerRound = Math.max(maxRequestsPerRound, 1);
+        this.targetLatency = Math.max(targetLatency, 1);
+        this.increaseStep = Math.max((this.maxEventsPerRequest - this.minEventsPerRequest) / INCREASE_STEPS, 1);
+        this.eventsPerRequest = Math.min(Math.max(initialEventsPerRequest, this.minEventsPerRequest), this.maxEventsPerRequest);
+        this.requestsPerRound = 1;
+    }
+
+    /**
+     * Updates the sizes with the outcome of a round of requests.
+     *
+     * @param isFull whether the round had as many events as allowed when it was read
+     * @param failureCount the number of requests failed for timeouts or server errors
+     * @param latency the duration (in milliseconds) of the round
+     */
+    public synchronized void onRoundCompleted(boolean isFull, int failureCount, long latency) {
+        if (failureCount > 0 || latency > targetLatency) {
+            eventsPerRequest = Math.max(eventsPerRequest / 2, minEventsPerRequest);
+            requestsPerRound = Math.max(requestsPerRound / 2, 1);
+            return;
+        }
+        // A round not full doesn't tell whether the collector can take more events
+        if (!isFull) {
+            return;
+        }
+        if (eventsPerRequest < maxEventsPerRequest) {
+            eventsPerRequest = Math.min(eventsPerRequest + increaseStep, maxEventsPerRequest);
+        } else if (requestsPerRound < maxRequestsPerRound) {
+            requestsPerRound++;
+        }
+    }
+
+    /**
+     * @return the current number of events in a request
+     */
+    public synchronized int getEventsPerRequest() {
+        return eventsPerRequest;
+    }
+
+    /**
+     * @return the current number of requests sent in a round
+     */
+    public synchronized int getRequestsPerRound() {
+        return requestsPerRound;
+    }
+
+    /**
+     * @return the current number of events read for a round
+     */
+    public synchronized int getEventsPerRound() {
+        return eventsPerRequest * requestsPerRound;
+    }
+}
@@ -22,24 +22,40 @@ import com.snowplowanalytics.snowplow.emitter.EmitterEvent;
 import com.snowplowanalytics.snowplow.network.NetworkConnection;
 import com.snowplowanalytics.snowplow.internal.constants.Parameters;
 import com.snowplowanalytics.snowplow.emitter.BufferOption;
+import com.snowplowanalytics.snowplow.emitter.RejectionPolicy;
+import com.snowplowanalytics.snowplow.emitter.WaitStrategy;
 import com.snowplowanalytics.snowplow.network.HttpMethod;
 import com.snowplowanalytics.snowplow.network.OkHttpNetworkConnection;
 import com.snowplowanalytics.snowplow.network.RequestCallback;
 import com.snowplowanalytics.snowplow.network.Protocol;
 import com.snowplowanalytics.snowplow.network.Request;
+import com.snowplowanalytics.snowplow.network.RequestCompression;
 import com.snowplowanalytics.snowplow.payload.Payload;
+import com.snowplowanalytics.snowplow.payload.SerializedPayload;
+import com.snowplowanalytics.snowplow.internal.emitter.storage.LeasingEventStoreAdapter;
 import com.snowplowanalytics.snowplow.internal.emitter.storage.SQLiteEventStore;
 import com.snowplowanalytics.snowplow.emitter.EventStore;
+import com.snowplowanalytics.snowplow.emitter.LeasingEventStore;
 import com.snowplowanalytics.snowplow.internal.tracker.Logger;
 import com.snowplowanalytics.snowplow.network.RequestResult;
 import com.snowplowanalytics.snowplow.internal.utils.Util;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.EnumSet;
-import java.util.concurrent.ExecutorService;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
 
 import okhttp3.OkHttpClient;
 
@@ -53,6 +69,10 @@ import static com.snowplowanalytics.snowplow.network.HttpMethod.POST;
 public class Emitter {
     private final String TAG = Emitter.class.getSimpleName();
 
+    private static final long LEASE_DURATION = 5 * 60 * 1000; // Events not completed are sent again after 5 minutes
+    private static final long MIN_RETRY_BACKOFF = 1000; // Backoff (in milliseconds) after the first failure
+    private static final long MAX_RETRY_BACKOFF = 10 * 60 * 1000; // Cap of the exponential backoff
+    private static final long NETWORK_DEBOUNCE = 2000; // Wait (in milliseconds) for the new networks to settle
     private static final int POST_WRAPPER_BYTES = 88; // "schema":"iglu:com.snowplowanalytics.snowplow/payload_data/jsonschema/1-0-3","data":[]
 
     private Context context;
@@ -69,16 +89,53 @@ public class Emitter {
     private long byteLimitGet;
     private long byteLimitPost;
     private int emitTimeout;
+    private int maxConcurrentRequests;
+    private RequestCompression requestCompression;
+    private int threadPoolSize;
+    private int workQueueCapacity;
+    private RejectionPolicy rejectionPolicy;
+    private int ringBufferSize;
+    private WaitStrategy waitStrategy;
+    private int pipelineDepth;
+    private long maxEventStoreSize;
+    private long maxEventStoreBytes;
+    private long maxEventAge;
+    private int maxRetryAttempts;
+    private long maxMeteredBacklog;
+    private boolean adaptiveBatching;
+    private int minEventsPerRequest;
+    private int maxEventsPerRequest;
+    private long targetLatency;
+    private long maxFlushDelay;
+    @Nullable
+    private AdaptiveBatchSizer batchSizer;
     private TimeUnit timeUnit;
     private String customPostPath;
     private OkHttpClient client;
 
     private boolean isCustomNetworkConnection;
     private NetworkConnection networkConnection;
+    private final NetworkMonitor networkMonitor;
+    private ScheduledFuture<?> networkDebounce;
     private EventStore eventStore;
-    private int emptyCount;
+    private LeasingEventStore leasingEventStore;
+    private volatile int emptyCount;
 
     private AtomicBoolean isRunning = new AtomicBoolean(false);
+    private final AtomicBoolean isWakeUpRequested = new AtomicBoolean(false);
+    private volatile boolean isWaitingForNetwork = false;
+    private final Random random = new Random();
+    private volatile int consecutiveFailureCount = 0;
+    private volatile long retryTime = 0; // System.nanoTime() before which the emission is not restarted
+    private ScheduledFuture<?> scheduledEmission;
+    private ScheduledFuture<?> flushDeadline;
+    private ScheduledFuture<?> scheduledRetry;
+    private volatile long lastSendLatency = 0;
+    private volatile long averageSendLatency = 0;
+    private ExecutorGroup executorGroup;
+    private boolean isShutdown = false;
+    private final Set<Long> leasedEventIds = new HashSet<>();
+    private final Deque<Future<EmissionBatch>> prefetchedBatches = new ArrayDeque<>();
 
     /**
      * Builder for the Emitter.
@@ -95,7 +152,24 @@ public class Emitter {
         long byteLimitGet = 40000; // Optional
         long byteLimitPost = 40000; // Optional
         private int emitTimeout = 5; // Optional
+        int maxConcurrentRequests = 4; // Optional
+        @NonNull RequestCompression requestCompression = RequestCompression.NONE; // Optional
         int threadPoolSize = 2; // Optional
+        int workQueueCapacity = 5000; // Optional
+        @NonNull RejectionPolicy rejectionPolicy = RejectionPolicy.Block; // Optional
+        int ringBufferSize = 0; // Optional
+        @NonNull WaitStrategy waitStrategy = WaitStrategy.Blocking; // Optional
+        int pipelineDepth = 2; // Optional
+        long maxEventStoreSize = 0; // Optional
+        long maxEventStoreBytes = 0; // Optional
+        long maxEventAge = 0; // Optional
+        int maxRetryAttempts = 10; // Optional
+        long maxMeteredBacklog = 0; // Optional
+        boolean adaptiveBatching = false; // Optional
+        int minEventsPerRequest = 1; // Optional
+        int maxEventsPerRequest = 500; // Optional
+        long targetLatency = 2000; // Optional
+        long maxFlushDelay = 0; // Optional
         @NonNull TimeUnit timeUnit = TimeUnit.SECONDS;
         @Nullable OkHttpClient client = null; //Optional
         @Nullable String customPostPath = null; //Optional
@@ -246,6 +320,28 @@ public class Emitter {
             return this;
         }
 
+        /**
+         * @param maxConcurrentRequests The maximum number of requests sent in parallel to the collector
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder maxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * @param requestCompression The compression of the body of the POST requests.
+         *                           When the requests are compressed, byteLimitPost is applied
+         *                           to the compressed body.
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder requestCompression(@NonNull RequestCompression requestCompression) {
+            this.requestCompression = requestCompression;
+            return this;
+        }
+
         /**
          * @param timeUnit a valid TimeUnit
          * @return itself
@@ -287,6 +383,174 @@ public class Emitter {
             this.threadPoolSize = threadPoolSize;
             return this;
         }
+
+        /**
+         * @param workQueueCapacity The maximum number of tasks waiting in each of the tracker's work queues.
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder workQueueCapacity(int workQueueCapacity) {
+            this.workQueueCapacity = workQueueCapacity;
+            return this;
+        }
+
+        /**
+         * @param rejectionPolicy The behaviour when a work queue of the tracker is full.
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder rejectionPolicy(@NonNull RejectionPolicy rejectionPolicy) {
+            this.rejectionPolicy = rejectionPolicy;
+            return this;
+        }
+
+        /**
+         * @param ringBufferSize The number of slots of the ring buffer event pipeline of the tracker,
+         *                       0 to process the events on the event processing work queue.
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder ringBufferSize(int ringBufferSize) {
+            this.ringBufferSize = ringBufferSize;
+            return this;
+        }
+
+        /**
+         * @param waitStrategy The behaviour of the stages of the ring buffer event pipeline
+         *                     waiting for events.
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder waitStrategy(@NonNull WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        /**
+         * @param pipelineDepth The maximum number of batches of events in the emission pipeline.
+         *                      With 1 the next batch is read only after the current one has been sent,
+         *                      with higher values the next batches are read from the EventStore
+         *                      while the current one is sent.
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder pipelineDepth(int pipelineDepth) {
+            this.pipelineDepth = pipelineDepth;
+            return this;
+        }
+
+        /**
+         * @param maxEventStoreSize The maximum number of events kept in the default EventStore,
+         *                          the oldest events are dropped over the limit (0 for no limit).
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder maxEventStoreSize(long maxEventStoreSize) {
+            this.maxEventStoreSize = maxEventStoreSize;
+            return this;
+        }
+
+        /**
+         * @param maxEventStoreBytes The maximum size in bytes of the database of the default EventStore,
+         *                           the oldest events are dropped over the limit (0 for no limit).
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder maxEventStoreBytes(long maxEventStoreBytes) {
+            this.maxEventStoreBytes = maxEventStoreBytes;
+            return this;
+        }
+
+        /**
+         * @param maxEventAge The maximum time in seconds an event is kept in the default EventStore,
+         *                    older events are dropped (0 for no limit).
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder maxEventAge(long maxEventAge) {
+            this.maxEventAge = maxEventAge;
+            return this;
+        }
+
+        /**
+         * @param maxRetryAttempts The maximum number of failed attempts to send an event of the
+         *                         default EventStore, then the event is moved to the dead-letter
+         *                         table (0 for no limit).
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder maxRetryAttempts(int maxRetryAttempts) {
+            this.maxRetryAttempts = maxRetryAttempts;
+            return this;
+        }
+
+        /**
+         * @param maxMeteredBacklog The maximum number of events in the EventStore that can be sent
+         *                          on a metered network, larger backlogs wait for an unmetered
+         *                          network (0 for no limit).
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder maxMeteredBacklog(long maxMeteredBacklog) {
+            this.maxMeteredBacklog = maxMeteredBacklog;
+            return this;
+        }
+
+        /**
+         * @param adaptiveBatching Whether the events per request and the requests per round are tuned
+         *                         on the latency and the failures of the collector, instead of
+         *                         the buffer option and the send limit.
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder adaptiveBatching(boolean adaptiveBatching) {
+            this.adaptiveBatching = adaptiveBatching;
+            return this;
+        }
+
+        /**
+         * @param minEventsPerRequest The minimum number of events in a POST request in adaptive mode.
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder minEventsPerRequest(int minEventsPerRequest) {
+            this.minEventsPerRequest = minEventsPerRequest;
+            return this;
+        }
+
+        /**
+         * @param maxEventsPerRequest The maximum number of events in a POST request in adaptive mode.
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder maxEventsPerRequest(int maxEventsPerRequest) {
+            this.maxEventsPerRequest = maxEventsPerRequest;
+            return this;
+        }
+
+        /**
+         * @param targetLatency The maximum time in milliseconds to send the requests of a round
+         *                      in adaptive mode, above it the sizes are reduced.
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder targetLatency(long targetLatency) {
+            this.targetLatency = targetLatency;
+            return this;
+        }
+
+        /**
+         * @param maxFlushDelay The maximum time in milliseconds an event waits to be sent while
+         *                      the emitter is idle. The events are sent when they fill a request
+         *                      or when the oldest one has waited for the delay (0 to send the
+         *                      events straight away).
+         * @return itself
+         */
+        @NonNull
+        public EmitterBuilder maxFlushDelay(long maxFlushDelay) {
+            this.maxFlushDelay = maxFlushDelay;
+            return this;
+        }
     }
 
     /**
@@ -307,9 +571,34 @@ public class Emitter {
         this.byteLimitGet = builder.byteLimitGet;
         this.byteLimitPost = builder.byteLimitPost;
         this.emitTimeout = builder.emitTimeout;
+        this.maxConcurrentRequests = builder.maxConcurrentRequests;
+        this.requestCompression = builder.requestCompression;
+        this.threadPoolSize = Math.max(builder.threadPoolSize, 2);
+        this.workQueueCapacity = Math.max(builder.workQueueCapacity, 1);
+        this.rejectionPolicy = builder.rejectionPolicy;
+        this.ringBufferSize = Math.max(builder.ringBufferSize, 0);
+        this.waitStrategy = builder.waitStrategy;
+        this.pipelineDepth = Math.max(builder.pipelineDepth, 1);
+        this.maxEventStoreSize = Math.max(builder.maxEventStoreSize, 0);
+        this.maxEventStoreBytes = Math.max(builder.maxEventStoreBytes, 0);
+        this.maxEventAge = Math.max(builder.maxEventAge, 0);
+        this.maxRetryAttempts = Math.max(builder.maxRetryAttempts, 0);
+        this.maxMeteredBacklog = Math.max(builder.maxMeteredBacklog, 0);
+        this.adaptiveBatching = builder.adaptiveBatching;
+        this.minEventsPerRequest = Math.max(builder.minEventsPerRequest, 1);
+        this.maxEventsPerRequest = Math.max(builder.maxEventsPerRequest, this.minEventsPerRequest);
+        this.targetLatency = Math.max(builder.targetLatency, 1);
+        this.maxFlushDelay = Math.max(builder.maxFlushDelay, 0);
+        if (adaptiveBatching) {
+            this.batchSizer = new AdaptiveBatchSizer(minEventsPerRequest, maxEventsPerRequest,
+                    builder.maxConcurrentRequests, targetLatency, builder.bufferOption.getCode());
+        }
         this.timeUnit = builder.timeUnit;
         this.client = builder.client;
         this.eventStore = builder.eventStore;
+        if (eventStore != null) {
+            this.leasingEventStore = LeasingEventStoreAdapter.of(eventStore);
+        }
 
         this.uri = collectorUri;
         this.httpMethod = builder.httpMethod;
@@ -328,15 +617,16 @@ public class Emitter {
                     .emitTimeout(builder.emitTimeout)
                     .customPostPath(builder.customPostPath)
                     .client(builder.client)
+                    .maxConcurrentRequests(builder.maxConcurrentRequests)
+                    .requestCompression(builder.requestCompression)
                     .build();
         } else {
             isCustomNetworkConnection = true;
             this.networkConnection = builder.networkConnection;
         }
 
-        if (builder.threadPoolSize > 2) {
-            Executor.setThreadCount(builder.threadPoolSize);
-        }
+        // The callback is registered by setNamespace, once the EventStore exists
+        this.networkMonitor = new NetworkMonitor(context);
 
         Logger.v(TAG, "Emitter created successfully!");
     }
@@ -347,21 +637,34 @@ public class Emitter {
      * Adds a payload to the EventStore and
      * then attempts to start the emitter
      * if it is not currently running.
+     * With a max flush delay the idle emitter is started only
+     * when the events fill a request or when the delay expires.
      *
      * @param payload the event payload
      *                to be added.
      */
     public void add(final @NonNull Payload payload) {
-        Executor.execute(TAG, () -> {
+        getExecutorGroup().executeEventStore(TAG, () -> {
             eventStore.add(payload);
-            if (isRunning.compareAndSet(false, true)) {
-                try {
-                    attemptEmit();
-                } catch (Throwable t) {
-                    isRunning.set(false);
-                    Logger.e(TAG, "Received error during emission process: %s", t);
-                }
+            onEventsAdded();
+        });
+    }
+
+    /**
+     * Adds a batch of payloads to the EventStore with a single
+     * task and then attempts to start the emitter once.
+     *
+     * @param payloads the event payloads to be added.
+     */
+    public void addAll(final @NonNull List<Payload> payloads) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+        getExecutorGroup().executeEventStore(TAG, () -> {
+            for (Payload payload : payloads) {
+                eventStore.add(payload);
             }
+            onEventsAdded();
         });
     }
 
@@ -370,16 +673,7 @@ public class Emitter {
      * is not currently running.
      */
     public void flush() {
-        Executor.execute(TAG, () -> {
-            if (isRunning.compareAndSet(false, true)) {
-                try {
-                    attemptEmit();
-                } catch (Throwable t) {
-                    isRunning.set(false);
-                    Logger.e(TAG, "Received error during emission process: %s", t);
-                }
-            }
-        });
+        wakeUpEmission();
     }
 
     /**
@@ -391,18 +685,37 @@ public class Emitter {
 
     /**
      * Resets the `isRunning` truth to false and shutdown.
+     * The emitter can't be restarted: the tasks submitted afterwards
+     * (e.g. adding events) are rejected.
      *
      * @param timeout the amount of seconds to wait for the termination of the running threads.
      */
     public boolean shutdown(long timeout) {
         Logger.d(TAG, "Shutting down emitter.");
-        isRunning.compareAndSet(true, false);
-        ExecutorService es = Executor.shutdown();
-        if (es == null || timeout <= 0) {
+        networkMonitor.unregister();
+        pauseEmission();
+        ExecutorGroup group;
+        synchronized (this) {
+            if (isShutdown) {
+                return true;
+            }
+            isShutdown = true;
+            group = executorGroup;
+        }
+        if (group == null) {
+            return true;
+        }
+        // The delayed group commit is discarded by the shutdown, the pending events are inserted now
+        EventStore store = eventStore;
+        if (store instanceof SQLiteEventStore) {
+            group.executeEventStore(TAG, ((SQLiteEventStore) store)::commitPendingEvents);
+        }
+        group.shutdown();
+        if (timeout <= 0) {
             return true;
         }
         try {
-            boolean isTerminated = es.awaitTermination(timeout, TimeUnit.SECONDS);
+            boolean isTerminated = group.awaitTermination(timeout, TimeUnit.SECONDS);
             Logger.d(TAG, "Executor is terminated: " + isTerminated);
             return isTerminated;
         } catch (InterruptedException e) {
@@ -412,53 +725,253 @@ public class Emitter {
     }
 
     /**
-     * Attempts to send events in the database to
-     * a collector.
+     * Stops the emission loop and cancels its pending restarts, keeping the thread pools.
+     * The emission starts again with the next events added or with a flush.
+     */
+    public void pauseEmission() {
+        isRunning.set(false);
+        isWaitingForNetwork = false;
+        synchronized (this) {
+            if (networkDebounce != null) {
+                networkDebounce.cancel(false);
+                networkDebounce = null;
+            }
+        }
+        cancelFlushDeadline();
+        cancelScheduledRetry();
+        cancelScheduledEmission();
+        discardPrefetchedBatches();
+    }
+
+    /**
+     * Starts the emission loop if it is not running.
+     * If the loop is already running and it's waiting for the
+     * next emitter tick, the wait is cut short so that the new
+     * events are sent straight away.
+     * After a failure the loop is not restarted before the backoff expires.
+     */
+    private void wakeUpEmission() {
+        cancelFlushDeadline();
+        long retryDelay = getRetryDelay();
+        if (isRunning.compareAndSet(false, true)) {
+            emptyCount = 0;
+            scheduleEmission(retryDelay, TimeUnit.MILLISECONDS);
+            return;
+        }
+        isWakeUpRequested.set(true);
+        if (retryDelay == 0 && cancelScheduledEmission()) {
+            scheduleEmission(0, timeUnit);
+        }
+    }
+
+    /**
+     * Starts the emission after new events have been added to the EventStore.
+     * With a max flush delay the idle emitter waits for the events to fill a request.
+     */
+    private void onEventsAdded() {
+        if (maxFlushDelay > 0 && !isRunning.get()) {
+            int eventsPerRequest = httpMethod == GET ? 1 : getCurrentEventsPerRequest();
+            if (eventStore.getSize() < eventsPerRequest) {
+                scheduleFlushDeadline();
+                return;
+            }
+        }
+        wakeUpEmission();
+    }
+
+    /**
+     * Restarts the emission when a network becomes available.
+     * The restart is delayed so that the network can settle and
+     * the consecutive network changes cause a single restart.
+     */
+    private void onNetworkAvailable() {
+        // The callback reports the current network when it's registered:
+        // the emission is restarted only if it stopped for the network
+        if (!isWaitingForNetwork || eventStore == null) {
+            return;
+        }
+        synchronized (this) {
+            if (networkDebounce != null) {
+                networkDebounce.cancel(false);
+            }
+            networkDebounce = getExecutorGroup().scheduleEmission(TAG, () -> {
+                isWaitingForNetwork = false;
+                flush();
+            }, NETWORK_DEBOUNCE, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Schedules the start of the emission after the max flush delay.
+     * The deadline is set by the oldest unsent event: it's not
+     * postponed by the events added while it's pending.
+     */
+    private synchronized void scheduleFlushDeadline() {
+        if (flushDeadline != null) {
+            return;
+        }
+        flushDeadline = getExecutorGroup().scheduleEmission(TAG, () -> {
+            synchronized (this) {
+                flushDeadline = null;
+            }
+            wakeUpEmission();
+        }, maxFlushDelay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the pending flush deadline, if any.
+     */
+    private synchronized void cancelFlushDeadline() {
+        if (flushDeadline != null) {
+            flushDeadline.cancel(false);
+            flushDeadline = null;
+        }
+    }
+
+    /**
+     * Schedules the restart of the emission loop once the retry backoff expires,
+     * so that the failed events are sent again without waiting for new events.
+     *
+     * @param backoff the delay (in milliseconds) before the restart
+     */
+    private synchronized void scheduleRetry(long backoff) {
+        cancelScheduledRetry();
+        scheduledRetry = getExecutorGroup().scheduleEmission(TAG, () -> {
+            synchronized (this) {
+                scheduledRetry = null;
+            }
+            wakeUpEmission();
+        }, backoff, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the pending restart after a failure, if any.
+     */
+    private synchronized void cancelScheduledRetry() {
+        if (scheduledRetry != null) {
+            scheduledRetry.cancel(false);
+            scheduledRetry = null;
+        }
+    }
+
+    /**
+     * Schedules the next iteration of the emission loop.
+     * There is at most one iteration scheduled or running at a time.
+     *
+     * @param delay the delay before the iteration starts
+     * @param unit the time unit of the delay
+     */
+    private synchronized void scheduleEmission(long delay, @NonNull TimeUnit unit) {
+        scheduledEmission = getExecutorGroup().scheduleEmission(TAG, this::runEmission, delay, unit);
+        if (scheduledEmission == null) {
+            isRunning.set(false);
+        }
+    }
+
+    /**
+     * Cancels the scheduled iteration of the emission loop if it's not started yet.
      *
-     * - If the emitter is not online it will not send
+     * @return whether the scheduled iteration has been cancelled
+     */
+    private synchronized boolean cancelScheduledEmission() {
+        ScheduledFuture<?> future = scheduledEmission;
+        scheduledEmission = null;
+        return future != null && future.cancel(false);
+    }
+
+    /**
+     * Runs a single iteration of the emission loop and
+     * schedules the next one, if needed.
+     */
+    private void runEmission() {
+        synchronized (this) {
+            scheduledEmission = null;
+        }
+        if (!isRunning.get()) {
+            return;
+        }
+        isWakeUpRequested.set(false);
+        long delay;
+        try {
+            delay = attemptEmit();
+        } catch (Throwable t) {
+            Logger.e(TAG, "Received error during emission process: %s", t);
+            delay = -1;
+        }
+        if (delay >= 0 && isRunning.get()) {
+            scheduleEmission(delay, timeUnit);
+        } else {
+            discardPrefetchedBatches();
+            isRunning.set(false);
+            // A wake-up requested while the loop was stopping couldn't restart it
+            if (isWakeUpRequested.get() && isRunning.compareAndSet(false, true)) {
+                emptyCount = 0;
+                scheduleEmission(getRetryDelay(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Attempts to send a batch of events in the database
+     * to a collector.
+     *
+     * - If the emitter is not online it will not send, the emission is
+     *   restarted when a network becomes available
+     * - If the backlog is too large for a metered network it will not send
+     *   until an unmetered network becomes available
      * - If the emitter is online but there are no events:
      *   + Increment empty counter until emptyLimit reached
      *   + Incurs a backoff period between empty counters
      * - If the emitter is online and we have events:
      *   + Pulls allowed amount of events from database and
      *     attempts to send.
-     *   + If there are failures resets running state
+     *   + If there are failures resets running state, the loop
+     *     restarts by itself once the retry backoff expires
      *   + Otherwise will attempt to emit again
+     *
+     * @return the delay (in `timeUnit`) before the next attempt,
+     *         or -1 if the emission loop has to stop.
      */
-    @SuppressWarnings("all")
-    private void attemptEmit() {
-        if (!Util.isOnline(this.context)) {
+    private long attemptEmit() throws Exception {
+        if (!networkMonitor.isOnline()) {
             Logger.d(TAG, "Emitter loop stopping: emitter offline.");
-            isRunning.compareAndSet(true, false);
-            return;
+            isWaitingForNetwork = true;
+            return -1;
         }
-        if (eventStore.getSize() <= 0) {
+        if (maxMeteredBacklog > 0 && eventStore.getSize() > maxMeteredBacklog && !networkMonitor.isUnmetered()) {
+            Logger.d(TAG, "Emitter loop stopping: backlog waiting for an unmetered network.");
+            isWaitingForNetwork = true;
+            return -1;
+        }
+        EmissionBatch batch = nextBatch();
+        if (batch.eventIds.isEmpty()) {
             if (emptyCount >= this.emptyLimit) {
+                if (isWakeUpRequested.get()) {
+                    return 0;
+                }
                 Logger.d(TAG, "Emitter loop stopping: empty limit reached.");
-                isRunning.compareAndSet(true, false);
-                return;
+                return -1;
             }
             emptyCount++;
             Logger.e(TAG, "Emitter database empty: " + emptyCount);
-            try {
-                this.timeUnit.sleep(this.emitterTick);
-            } catch (InterruptedException e) {
-                Logger.e(TAG, "Emitter thread sleep interrupted: " + e.toString());
-            }
-            attemptEmit();
-            return;
+            return this.emitterTick;
         }
         emptyCount = 0;
 
-        List<EmitterEvent> events = eventStore.getEmittableEvents(sendLimit);
-        List<Request> requests = buildRequests(events);
-        List<RequestResult> results = networkConnection.sendRequests(requests);
+        prefetchBatches();
+        long startTime = System.nanoTime();
+        List<RequestResult> results = networkConnection.sendRequests(batch.requests);
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        recordSendLatency(latency);
 
         Logger.v(TAG, "Processing emitter results.");
 
         int successCount = 0;
         int failureCount = 0;
+        int retryableFailureCount = 0;
+        long retryAfter = 0;
         List<Long> removableEvents = new ArrayList<>();
+        List<RequestResult> failedResults = new ArrayList<>();
 
         for (RequestResult res : results) {
             if (res.getSuccess()) {
@@ -466,10 +979,26 @@ public class Emitter {
                 successCount += res.getEventIds().size();
             } else {
                 failureCount += res.getEventIds().size();
-                Logger.e(TAG, "Request sending failed but we will retry later.");
+                failedResults.add(res);
+                if (res.isRetryable()) {
+                    retryableFailureCount += res.getEventIds().size();
+                    retryAfter = Math.max(retryAfter, res.getRetryAfter());
+                    Logger.e(TAG, "Request sending failed but we will retry later.");
+                } else {
+                    Logger.e(TAG, "Request rejected by the collector (status code: %s), it won't be retried.", res.getStatusCode());
+                }
+            }
+        }
+        completeBatch(batch, removableEvents, failedResults);
+        if (batchSizer != null) {
+            int congestionCount = 0;
+            for (RequestResult res : failedResults) {
+                if (res.isRetryable()) {
+                    congestionCount++;
+                }
             }
+            batchSizer.onRoundCompleted(batch.eventIds.size() >= batch.limit, congestionCount, latency);
         }
-        eventStore.removeEvents(removableEvents);
 
         Logger.d(TAG, "Success Count: %s", successCount);
         Logger.d(TAG, "Failure Count: %s", failureCount);
@@ -483,13 +1012,226 @@ public class Emitter {
         }
 
         if (failureCount > 0 && successCount == 0) {
-            if (Util.isOnline(this.context)) {
+            if (networkMonitor.isOnline()) {
                 Logger.e(TAG, "Ensure collector path is valid: %s", getEmitterUri());
+            } else {
+                isWaitingForNetwork = true;
+            }
+        }
+        if (retryableFailureCount > 0 && successCount == 0) {
+            long backoff = startRetryBackoff(retryAfter);
+            Logger.e(TAG, "Emitter loop stopping: failures. Retrying in %s ms.", backoff);
+            scheduleRetry(backoff);
+            return -1;
+        }
+        consecutiveFailureCount = 0;
+        return 0;
+    }
+
+    /**
+     * Computes the backoff after a failed attempt and sets the time
+     * before which the emission loop is not restarted.
+     * The backoff grows exponentially with the consecutive failures and
+     * it's randomised (full jitter) so that many clients failing together
+     * don't retry at the same time. The Retry-After delay requested by
+     * the collector is honoured when it's longer.
+     *
+     * @param retryAfter the delay (in milliseconds) requested by the collector
+     * @return the backoff in milliseconds
+     */
+    private long startRetryBackoff(long retryAfter) {
+        consecutiveFailureCount++;
+        int exponent = Math.min(consecutiveFailureCount - 1, 30);
+        long maxBackoff = Math.min(MIN_RETRY_BACKOFF << exponent, MAX_RETRY_BACKOFF);
+        long backoff = Math.max((long) (random.nextDouble() * maxBackoff), retryAfter);
+        retryTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+        return backoff;
+    }
+
+    /**
+     * @return the time (in milliseconds) left before the emission can be retried
+     */
+    private long getRetryDelay() {
+        long delay = TimeUnit.NANOSECONDS.toMillis(retryTime - System.nanoTime());
+        return consecutiveFailureCount > 0 ? Math.max(delay, 0) : 0;
+    }
+
+    // Emission pipeline
+
+    /**
+     * Returns the next batch to send, taking it from the prefetched ones if available.
+     * Empty prefetched batches are discarded as new events could have been added
+     * in the meantime.
+     *
+     * @return the batch of events to send
+     */
+    @NonNull
+    private EmissionBatch nextBatch() throws Exception {
+        while (true) {
+            Future<EmissionBatch> future;
+            synchronized (prefetchedBatches) {
+                future = prefetchedBatches.poll();
+            }
+            if (future == null) {
+                return loadBatch();
+            }
+            EmissionBatch batch = future.get();
+            if (!batch.eventIds.isEmpty()) {
+                return batch;
+            }
+        }
+    }
+
+    /**
+     * Reads the next batches from the EventStore in the background
+     * until the pipeline is full.
+     * The batches are read while the current one is being sent.
+     */
+    private void prefetchBatches() {
+        synchronized (prefetchedBatches) {
+            while (prefetchedBatches.size() < pipelineDepth - 1) {
+                Future<EmissionBatch> future = getExecutorGroup().submitEmission(TAG, this::loadBatch);
+                if (future == null) {
+                    return;
+                }
+                prefetchedBatches.add(future);
+            }
+        }
+    }
+
+    /**
+     * Leases a batch of events from the EventStore and builds the requests.
+     * The events are leased until the batch is completed, so that they
+     * are not picked up again by the batches read in the meantime or by
+     * other emitters sharing the EventStore.
+     *
+     * @return the batch of events read
+     */
+    @NonNull
+    private EmissionBatch loadBatch() {
+        List<EmitterEvent> events;
+        List<Long> eventIds = new ArrayList<>();
+        int limit = getEventsPerRound();
+        synchronized (leasedEventIds) {
+            if (!hasEmittableEvents()) {
+                return new EmissionBatch(new ArrayList<>(), eventIds, limit);
+            }
+            events = leasingEventStore.lease(limit, LEASE_DURATION);
+            for (EmitterEvent event : events) {
+                eventIds.add(event.eventId);
+            }
+            leasedEventIds.addAll(eventIds);
+        }
+        try {
+            return new EmissionBatch(buildRequests(events), eventIds, limit);
+        } catch (RuntimeException e) {
+            releaseEvents(eventIds);
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if the EventStore has events that are not already in a batch of this emitter.
+     * It relies on the count of the EventStore, so that the store is not
+     * queried when it has nothing to send.
+     * It has to be called holding the lock on the leased events.
+     *
+     * @return whether there are events to send
+     */
+    private boolean hasEmittableEvents() {
+        return eventStore.getSize() > leasedEventIds.size();
+    }
+
+    /**
+     * Acknowledges the events sent successfully, removing them from the
+     * EventStore, and releases the lease on the failed ones.
+     * The failed attempts are recorded in the default EventStore, which
+     * moves to the dead-letter table the events rejected by the collector
+     * and the events over the retry budget. Other EventStores drop the
+     * events rejected by the collector.
+     * The removal runs in the background so that the emission loop can
+     * proceed with the next batch straight away.
+     *
+     * @param batch the batch sent
+     * @param removableEvents the ids of the events sent successfully
+     * @param failedResults the results of the failed requests
+     */
+    private void completeBatch(@NonNull EmissionBatch batch, @NonNull List<Long> removableEvents, @NonNull List<RequestResult> failedResults) {
+        Callable<Void> completion = () -> {
+            synchronized (leasedEventIds) {
+                try {
+                    leasingEventStore.ack(removableEvents);
+                    recordFailedAttempts(failedResults);
+                    if (removableEvents.size() < batch.eventIds.size()) {
+                        List<Long> failedEvents = new ArrayList<>(batch.eventIds);
+                        failedEvents.removeAll(removableEvents);
+                        leasingEventStore.release(failedEvents);
+                    }
+                } finally {
+                    leasedEventIds.removeAll(batch.eventIds);
+                }
+            }
+            return null;
+        };
+        if (getExecutorGroup().submitEmission(TAG, completion) == null) {
+            try {
+                completion.call();
+            } catch (Exception e) {
+                Logger.e(TAG, "Unable to remove the sent events: %s", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Records the failed attempts of the requests in the EventStore.
+     *
+     * @param failedResults the results of the failed requests
+     */
+    private void recordFailedAttempts(@NonNull List<RequestResult> failedResults) {
+        for (RequestResult result : failedResults) {
+            if (eventStore instanceof SQLiteEventStore) {
+                int maxAttempts = result.isRetryable() ? maxRetryAttempts : 1;
+                ((SQLiteEventStore) eventStore).recordFailedAttempt(result.getEventIds(), result.getStatusCode(), maxAttempts);
+            } else if (!result.isRetryable()) {
+                Logger.e(TAG, "Dropping %s events rejected by the collector.", result.getEventIds().size());
+                eventStore.removeEvents(result.getEventIds());
             }
-            Logger.e(TAG, "Emitter loop stopping: failures.");
-            isRunning.compareAndSet(true, false);
-        } else {
-            attemptEmit();
+        }
+    }
+
+    /**
+     * Drops the batches read in advance and releases the lease on their events.
+     */
+    private void discardPrefetchedBatches() {
+        List<Future<EmissionBatch>> futures;
+        synchronized (prefetchedBatches) {
+            futures = new ArrayList<>(prefetchedBatches);
+            prefetchedBatches.clear();
+        }
+        for (Future<EmissionBatch> future : futures) {
+            if (future.cancel(false)) {
+                continue;
+            }
+            try {
+                releaseEvents(future.get().eventIds);
+            } catch (Exception e) {
+                Logger.e(TAG, "Unable to discard a prefetched batch: %s", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Releases the lease on events that won't be sent by this batch.
+     *
+     * @param eventIds the ids of the events to release
+     */
+    private void releaseEvents(@NonNull List<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        synchronized (leasedEventIds) {
+            leasingEventStore.release(eventIds);
+            leasedEventIds.removeAll(eventIds);
         }
     }
 
@@ -497,6 +1239,7 @@ public class Emitter {
      * Returns a list of ReadyRequests which can
      * all be sent regardless of if it is GET or POST.
      * - Checks if the event is over-sized.
+     * - Groups the POST events by custom user agent.
      * - Stores all of the relevant event ids.
      *
      * @param events a list of EmittableEvents pulled
@@ -513,87 +1256,146 @@ public class Emitter {
             for (EmitterEvent event : events) {
                 Payload payload = event.payload;
                 addSendingTimeToPayload(payload, sendingTime);
-                boolean isOversize = isOversize(payload);
+                boolean isOversize = payload.getByteSize() > byteLimitGet;
                 Request request = new Request(payload, event.eventId, isOversize);
                 requests.add(request);
             }
         } else {
-            for (int i = 0; i < events.size(); i += bufferOption.getCode()) {
-                List<Long> reqEventIds = new ArrayList<>();
-                List<Payload> postPayloadMaps = new ArrayList<>();
-
-                for (int j = i; j < (i + bufferOption.getCode()) && j < events.size(); j++) {
-                    EmitterEvent event = events.get(j);
-                    Payload payload = event.payload;
-                    Long eventId = event.eventId;
-                    addSendingTimeToPayload(payload, sendingTime);
-
-                    if (isOversize(payload)) {
-                        Request request = new Request(payload, eventId, true);
-                        requests.add(request);
-
-                    } else if (isOversize(payload, postPayloadMaps)) {
-                        Request request = new Request(postPayloadMaps, reqEventIds);
-                        requests.add(request);
-
-                        // Clear collections and build a new POST
-                        postPayloadMaps = new ArrayList<>();
-                        reqEventIds = new ArrayList<>();
-
-                        // Build and store the request
-                        postPayloadMaps.add(payload);
-                        reqEventIds.add(eventId);
-
-                    } else {
-                        postPayloadMaps.add(payload);
-                        reqEventIds.add(eventId);
-                    }
-                }
+            // With compressed requests the byte limit applies to the compressed body
+            boolean isCompressed = networkConnection instanceof OkHttpNetworkConnection
+                    && ((OkHttpNetworkConnection) networkConnection).getRequestCompression() != RequestCompression.NONE;
+            int eventsPerRequest = batchSizer != null ? batchSizer.getEventsPerRequest() : bufferOption.getCode();
+            // Payloads with different user agents can't share the same request
+            Map<String, PayloadBundle> bundles = new LinkedHashMap<>();
+            for (EmitterEvent event : events) {
+                Payload payload = event.payload;
+                addSendingTimeToPayload(payload, sendingTime);
+                long byteSize = payload.getByteSize();
 
-                // Check if all payloads have been processed
-                if (!postPayloadMaps.isEmpty()) {
-                    Request request = new Request(postPayloadMaps, reqEventIds);
-                    requests.add(request);
+                if (byteSize > byteLimitPost
+                        && (!isCompressed || PayloadBundle.compressedByteSize(payload) > byteLimitPost)) {
+                    requests.add(new Request(payload, event.eventId, true));
+                    continue;
+                }
+                String userAgent = Request.getUserAgent(payload);
+                PayloadBundle bundle = bundles.get(userAgent);
+                if (bundle != null && bundle.add(payload, event.eventId, byteSize, eventsPerRequest, byteLimitPost)) {
+                    continue;
                 }
+                if (bundle != null) {
+                    requests.add(bundle.build());
+                }
+                bundle = new PayloadBundle(isCompressed);
+                bundles.put(userAgent, bundle);
+                bundle.add(payload, event.eventId, byteSize, eventsPerRequest, byteLimitPost);
+            }
+            for (PayloadBundle bundle : bundles.values()) {
+                requests.add(bundle.build());
             }
         }
         return requests;
     }
 
     /**
-     * Calculate if the payload exceeds the maximum amount of bytes allowed on configuration.
-     * @param payload to send.
-     * @return weather the payload exceeds the maximum size allowed.
+     * Payloads collected for a POST request with the running total of their size.
+     * For compressed requests the total is the size of the payloads compressed
+     * one after the other, which is an upper bound of the size of the compressed body.
      */
-    private boolean isOversize(@NonNull Payload payload) {
-        return isOversize(payload, new ArrayList<>());
-    }
+    private static class PayloadBundle {
+        private static final int COMPRESSION_OVERHEAD_BYTES = 18; // gzip header and trailer
+        private static final int DEFLATE_BLOCK_BYTES = 5; // framing of a stored deflate block
+
+        final List<Payload> payloads = new ArrayList<>();
+        final List<Long> eventIds = new ArrayList<>();
+        long byteSize = 0;
+        boolean isFull = false;
+        @Nullable Deflater deflater;
+        @Nullable byte[] deflaterBuffer;
+
+        PayloadBundle(boolean isCompressed) {
+            if (isCompressed) {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+                deflaterBuffer = new byte[4096];
+                byteSize = COMPRESSION_OVERHEAD_BYTES + POST_WRAPPER_BYTES;
+            }
+        }
 
-    /**
-     * Calculate if the payload bundle exceeds the maximum amount of bytes allowed on configuration.
-     * @param payload to add om the payload bundle.
-     * @param previousPaylods already in the payload bundle.
-     * @return weather the payload bundle exceeds the maximum size allowed.
-     */
-    private boolean isOversize(@NonNull Payload payload, @NonNull List<Payload> previousPaylods) {
-        long byteLimit = networkConnection.getHttpMethod() == GET ? byteLimitGet : byteLimitPost;
-        return isOversize(payload, byteLimit, previousPaylods);
-    }
+        /**
+         * Add a payload if it fits in the bundle, the first payload is always added.
+         * Compressed, the payload is deflated with the others before the check, so
+         * its contribution to the compressed size is exact. The deflater can't undo it,
+         * so a bundle that rejected a payload rejects all the next ones and has to be built.
+         * @param payload to add.
+         * @param eventId of the event of the payload.
+         * @param payloadByteSize uncompressed size of the payload to add.
+         * @param maxPayloads maximum amount of payloads allowed in the bundle.
+         * @param byteLimit maximum amount of bytes allowed.
+         * @return weather the payload has been added without exceeding the limits.
+         */
+        boolean add(@NonNull Payload payload, long eventId, long payloadByteSize, int maxPayloads, long byteLimit) {
+            boolean isEmpty = payloads.isEmpty();
+            if (isFull || (!isEmpty && payloads.size() >= maxPayloads)) {
+                return false;
+            }
+            long addedBytes;
+            boolean fits;
+            if (deflater == null) {
+                // One comma for each payload already in the bundle plus the schema wrapper.
+                addedBytes = payloadByteSize;
+                fits = byteSize + addedBytes + payloads.size() + POST_WRAPPER_BYTES <= byteLimit;
+            } else {
+                // The comma and the schema wrapper are already counted,
+                // finishing the stream adds at most a few bytes of framing.
+                addedBytes = deflate(deflater, deflaterBuffer, SerializedPayload.toJsonBytes(payload)) + 1;
+                fits = byteSize + addedBytes + DEFLATE_BLOCK_BYTES <= byteLimit;
+            }
+            if (!fits && !isEmpty) {
+                isFull = true;
+                return false;
+            }
+            payloads.add(payload);
+            eventIds.add(eventId);
+            byteSize += addedBytes;
+            return true;
+        }
 
-    /**
-     * Calculate if the payload bundle exceeds the maximum amount of bytes allowed on configuration.
-     * @param payload to add om the payload bundle.
-     * @param byteLimit maximum amount of bytes allowed.
-     * @param previousPaylods already in the payload bundle.
-     * @return weather the payload bundle exceeds the maximum size allowed.
-     */
-    private boolean isOversize(@NonNull Payload payload, long byteLimit, @NonNull List<Payload> previousPaylods) {
-        long totalByteSize = payload.getByteSize();
-        for (Payload previousPayload : previousPaylods) {
-            totalByteSize += previousPayload.getByteSize();
+        @NonNull
+        Request build() {
+            if (deflater != null) {
+                deflater.end();
+            }
+            return new Request(payloads, eventIds);
+        }
+
+        /**
+         * Calculate the size of a payload compressed on its own.
+         * @param payload to compress.
+         * @return the compressed size including the framing of the compression format.
+         */
+        static long compressedByteSize(@NonNull Payload payload) {
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                byte[] data = SerializedPayload.toJsonBytes(payload);
+                return COMPRESSION_OVERHEAD_BYTES + POST_WRAPPER_BYTES + deflate(deflater, new byte[4096], data);
+            } finally {
+                deflater.end();
+            }
+        }
+
+        /**
+         * Compress data flushing the deflater, so the output counts all the input.
+         * @return the amount of compressed bytes produced.
+         */
+        private static long deflate(@NonNull Deflater deflater, @NonNull byte[] buffer, @NonNull byte[] data) {
+            deflater.setInput(data);
+            long count = 0;
+            int length;
+            do {
+                length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                count += length;
+            } while (length == buffer.length);
+            return count;
         }
-        int wrapperBytes = previousPaylods.size() > 0 ? (previousPaylods.size() + POST_WRAPPER_BYTES) : 0;
-        return totalByteSize + wrapperBytes > byteLimit;
     }
 
     // Request Builders
@@ -629,8 +1431,12 @@ public class Emitter {
     public void setNamespace(@NonNull String namespace) {
         this.namespace = namespace;
         if (eventStore == null) {
-            eventStore = new SQLiteEventStore(context, namespace);
+            SQLiteEventStore sqliteEventStore = new SQLiteEventStore(context, namespace, getExecutorGroup());
+            sqliteEventStore.setEvictionLimits(maxEventStoreSize, maxEventStoreBytes, maxEventAge);
+            eventStore = sqliteEventStore;
+            leasingEventStore = sqliteEventStore;
         }
+        networkMonitor.register(this::onNetworkAvailable);
     }
 
     /**
@@ -667,6 +1473,8 @@ public class Emitter {
                     .emitTimeout(emitTimeout)
                     .customPostPath(customPostPath)
                     .client(client)
+                    .maxConcurrentRequests(maxConcurrentRequests)
+                    .requestCompression(requestCompression)
                     .build();
         }
     }
@@ -685,6 +1493,8 @@ public class Emitter {
                     .emitTimeout(emitTimeout)
                     .customPostPath(customPostPath)
                     .client(client)
+                    .maxConcurrentRequests(maxConcurrentRequests)
+                    .requestCompression(requestCompression)
                     .build();
         }
     }
@@ -703,6 +1513,8 @@ public class Emitter {
                     .emitTimeout(emitTimeout)
                     .customPostPath(customPostPath)
                     .client(client)
+                    .maxConcurrentRequests(maxConcurrentRequests)
+                    .requestCompression(requestCompression)
                     .build();
         }
     }
@@ -721,6 +1533,8 @@ public class Emitter {
                     .emitTimeout(emitTimeout)
                     .customPostPath(customPostPath)
                     .client(client)
+                    .maxConcurrentRequests(maxConcurrentRequests)
+                    .requestCompression(requestCompression)
                     .build();
         }
     }
@@ -739,6 +1553,8 @@ public class Emitter {
                     .emitTimeout(emitTimeout)
                     .customPostPath(customPostPath)
                     .client(client)
+                    .maxConcurrentRequests(maxConcurrentRequests)
+                    .requestCompression(requestCompression)
                     .build();
         }
     }
@@ -863,6 +1679,225 @@ public class Emitter {
         return this.emitTimeout;
     }
 
+    /**
+     * @return the maximum number of requests sent in parallel
+     */
+    public int getMaxConcurrentRequests() {
+        return this.maxConcurrentRequests;
+    }
+
+    /**
+     * @return the compression of the body of the POST requests
+     */
+    @NonNull
+    public RequestCompression getRequestCompression() {
+        return this.requestCompression;
+    }
+
+    /**
+     * @return the maximum number of batches of events in the emission pipeline
+     */
+    public int getPipelineDepth() {
+        return this.pipelineDepth;
+    }
+
+    /**
+     * @return the maximum number of events kept in the default EventStore
+     */
+    public long getMaxEventStoreSize() {
+        return this.maxEventStoreSize;
+    }
+
+    /**
+     * @return the maximum size in bytes of the database of the default EventStore
+     */
+    public long getMaxEventStoreBytes() {
+        return this.maxEventStoreBytes;
+    }
+
+    /**
+     * @return the maximum time in seconds an event is kept in the default EventStore
+     */
+    public long getMaxEventAge() {
+        return this.maxEventAge;
+    }
+
+    /**
+     * @return the maximum number of failed attempts to send an event of the default EventStore
+     */
+    public int getMaxRetryAttempts() {
+        return this.maxRetryAttempts;
+    }
+
+    /**
+     * @return the maximum number of events in the EventStore that can be sent on a metered network
+     */
+    public long getMaxMeteredBacklog() {
+        return this.maxMeteredBacklog;
+    }
+
+    /**
+     * @return whether the size of the requests is tuned on the latency and the failures of the collector
+     */
+    public boolean isAdaptiveBatching() {
+        return this.adaptiveBatching;
+    }
+
+    /**
+     * @return the minimum number of events in a POST request in adaptive mode
+     */
+    public int getMinEventsPerRequest() {
+        return this.minEventsPerRequest;
+    }
+
+    /**
+     * @return the maximum number of events in a POST request in adaptive mode
+     */
+    public int getMaxEventsPerRequest() {
+        return this.maxEventsPerRequest;
+    }
+
+    /**
+     * @return the maximum time in milliseconds to send the requests of a round in adaptive mode
+     */
+    public long getTargetLatency() {
+        return this.targetLatency;
+    }
+
+    /**
+     * @return the number of events currently sent in a POST request
+     */
+    public int getCurrentEventsPerRequest() {
+        return batchSizer != null ? batchSizer.getEventsPerRequest() : bufferOption.getCode();
+    }
+
+    /**
+     * @return the number of requests currently sent in a round of the emission
+     */
+    public int getCurrentRequestsPerRound() {
+        if (batchSizer != null) {
+            return batchSizer.getRequestsPerRound();
+        }
+        int eventsPerRequest = httpMethod == GET ? 1 : bufferOption.getCode();
+        return (sendLimit + eventsPerRequest - 1) / eventsPerRequest;
+    }
+
+    /**
+     * @return the max time in milliseconds an event waits to be sent while the emitter is idle
+     */
+    public long getMaxFlushDelay() {
+        return this.maxFlushDelay;
+    }
+
+    /**
+     * @return the time in milliseconds taken by the last round of requests
+     */
+    public long getLastSendLatency() {
+        return this.lastSendLatency;
+    }
+
+    /**
+     * @return the moving average of the time in milliseconds taken by the rounds of requests
+     */
+    public long getAverageSendLatency() {
+        return this.averageSendLatency;
+    }
+
+    /**
+     * Updates the send latency metrics with an exponentially weighted
+     * moving average (1/8 weight to the last round).
+     * The rounds are sent one at a time, so the updates don't race.
+     *
+     * @param latency the time in milliseconds taken by a round of requests
+     */
+    private void recordSendLatency(long latency) {
+        lastSendLatency = latency;
+        long average = averageSendLatency;
+        averageSendLatency = average == 0 ? latency : average + (latency - average) / 8;
+    }
+
+    /**
+     * @return the number of events currently read for a round of the emission
+     */
+    private int getEventsPerRound() {
+        return batchSizer != null ? batchSizer.getEventsPerRound() : sendLimit;
+    }
+
+    /**
+     * @return the number of events in the dead-letter table of the default EventStore
+     */
+    public long getDeadEventCount() {
+        if (eventStore instanceof SQLiteEventStore) {
+            return ((SQLiteEventStore) eventStore).getDeadEventCount();
+        }
+        return 0;
+    }
+
+    /**
+     * @return the number of events dropped by the default EventStore over its limits
+     */
+    public long getEvictedEventCount() {
+        if (eventStore instanceof SQLiteEventStore) {
+            return ((SQLiteEventStore) eventStore).getEvictedEventCount();
+        }
+        return 0;
+    }
+
+    /**
+     * @return the maximum number of threads processing the tracked events
+     */
+    public int getThreadPoolSize() {
+        return this.threadPoolSize;
+    }
+
+    /**
+     * @return the maximum number of tasks waiting in each work queue
+     */
+    public int getWorkQueueCapacity() {
+        return this.workQueueCapacity;
+    }
+
+    /**
+     * @return the behaviour when a work queue is full
+     */
+    @NonNull
+    public RejectionPolicy getRejectionPolicy() {
+        return this.rejectionPolicy;
+    }
+
+    /**
+     * @return the number of slots of the ring buffer event pipeline (0 if disabled)
+     */
+    public int getRingBufferSize() {
+        return this.ringBufferSize;
+    }
+
+    /**
+     * @return the behaviour of the stages of the ring buffer event pipeline waiting for events
+     */
+    @NonNull
+    public WaitStrategy getWaitStrategy() {
+        return this.waitStrategy;
+    }
+
+    /**
+     * Returns the thread pools of the tracker, creating them if needed.
+     * Once the emitter is shut down the pools are not recreated:
+     * the tasks submitted to them are rejected and logged.
+     *
+     * @return the thread pools used by the tracker owning this emitter
+     */
+    @NonNull
+    public synchronized ExecutorGroup getExecutorGroup() {
+        if (executorGroup == null) {
+            executorGroup = new ExecutorGroup(namespace != null ? namespace : "default", threadPoolSize, workQueueCapacity, rejectionPolicy);
+            if (isShutdown) {
+                executorGroup.shutdown();
+            }
+        }
+        return executorGroup;
+    }
+
     /**
      * @return the NetworkConnection if it exists
      */
@@ -870,4 +1905,19 @@ public class Emitter {
     public NetworkConnection getNetworkConnection() {
         return this.networkConnection;
     }
+
+    /**
+     * Requests built from a batch of events read from the EventStore.
+     */
+    private static class EmissionBatch {
+        @NonNull final List<Request> requests;
+        @NonNull final List<Long> eventIds;
+        final int limit; // Maximum number of events when the batch was read
+
+        EmissionBatch(@NonNull List<Request> requests, @NonNull List<Long> eventIds, int limit) {
+            this.requests = requests;
+            this.eventIds = eventIds;
+            this.limit = limit;
+        }
+    }
 }
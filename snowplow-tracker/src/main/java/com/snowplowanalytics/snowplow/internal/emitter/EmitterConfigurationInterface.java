@@ -4,8 +4,11 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.snowplowanalytics.snowplow.emitter.BufferOption;
+import com.snowplowanalytics.snowplow.emitter.RejectionPolicy;
+import com.snowplowanalytics.snowplow.emitter.WaitStrategy;
 import com.snowplowanalytics.snowplow.emitter.EventStore;
 import com.snowplowanalytics.snowplow.network.RequestCallback;
+import com.snowplowanalytics.snowplow.util.TimeMeasure;
 
 public interface EmitterConfigurationInterface {
 
@@ -44,6 +47,33 @@ public interface EmitterConfigurationInterface {
      */
     int getThreadPoolSize();
 
+    /**
+     * Maximum number of tasks waiting in each of the tracker's work queues.
+     */
+    int getWorkQueueCapacity();
+
+    /**
+     * Behaviour of the tracker when a work queue is full.
+     */
+    @NonNull
+    RejectionPolicy getRejectionPolicy();
+
+    /**
+     * Number of slots of the ring buffer event pipeline (0 if disabled).
+     */
+    int getRingBufferSize();
+
+    /**
+     * Behaviour of the stages of the ring buffer event pipeline waiting for events.
+     */
+    @NonNull
+    WaitStrategy getWaitStrategy();
+
+    /**
+     * Maximum number of batches of events in the emission pipeline.
+     */
+    int getPipelineDepth();
+
     /**
      * Maximum amount of bytes allowed to be sent in a payload in a GET request.
      */
@@ -64,6 +94,59 @@ public interface EmitterConfigurationInterface {
      */
     void setByteLimitPost(long byteLimitPost);
 
+    /**
+     * Maximum number of events kept in the default EventStore.
+     */
+    long getMaxEventStoreSize();
+
+    /**
+     * Maximum size (in bytes) of the database of the default EventStore.
+     */
+    long getMaxEventStoreBytes();
+
+    /**
+     * Maximum time an event is kept in the default EventStore waiting to be sent.
+     */
+    @Nullable
+    TimeMeasure getMaxEventAge();
+
+    /**
+     * Maximum number of failed attempts to send an event of the default EventStore.
+     */
+    int getMaxRetryAttempts();
+
+    /**
+     * Maximum number of events in the EventStore that can be sent on a metered network.
+     */
+    long getMaxMeteredBacklog();
+
+    /**
+     * Whether the emitter tunes the size of the requests on the latency and the failures of the collector.
+     */
+    boolean isAdaptiveBatching();
+
+    /**
+     * Minimum number of events in a POST request in adaptive mode.
+     */
+    int getMinEventsPerRequest();
+
+    /**
+     * Maximum number of events in a POST request in adaptive mode.
+     */
+    int getMaxEventsPerRequest();
+
+    /**
+     * Maximum time to send the requests of a round in adaptive mode.
+     */
+    @NonNull
+    TimeMeasure getTargetLatency();
+
+    /**
+     * Maximum time an event waits to be sent while the emitter is idle.
+     */
+    @Nullable
+    TimeMeasure getMaxFlushDelay();
+
     /**
      * Callback called for each request performed by the tracker to the collector.
      */
@@ -6,7 +6,10 @@ import androidx.annotation.Nullable;
 import com.snowplowanalytics.snowplow.configuration.EmitterConfiguration;
 import com.snowplowanalytics.snowplow.emitter.BufferOption;
 import com.snowplowanalytics.snowplow.emitter.EventStore;
+import com.snowplowanalytics.snowplow.emitter.RejectionPolicy;
+import com.snowplowanalytics.snowplow.emitter.WaitStrategy;
 import com.snowplowanalytics.snowplow.network.RequestCallback;
+import com.snowplowanalytics.snowplow.util.TimeMeasure;
 
 public class EmitterConfigurationUpdate extends EmitterConfiguration {
 
@@ -48,6 +51,48 @@ public class EmitterConfigurationUpdate extends EmitterConfiguration {
         return (sourceConfig == null || threadPoolSizeUpdated) ? super.threadPoolSize : sourceConfig.threadPoolSize;
     }
 
+    // workQueueCapacity flag
+
+    public boolean workQueueCapacityUpdated;
+
+    public int getWorkQueueCapacity() {
+        return (sourceConfig == null || workQueueCapacityUpdated) ? super.workQueueCapacity : sourceConfig.workQueueCapacity;
+    }
+
+    // rejectionPolicy flag
+
+    public boolean rejectionPolicyUpdated;
+
+    @NonNull
+    public RejectionPolicy getRejectionPolicy() {
+        return (sourceConfig == null || rejectionPolicyUpdated) ? super.rejectionPolicy : sourceConfig.rejectionPolicy;
+    }
+
+    // ringBufferSize flag
+
+    public boolean ringBufferSizeUpdated;
+
+    public int getRingBufferSize() {
+        return (sourceConfig == null || ringBufferSizeUpdated) ? super.ringBufferSize : sourceConfig.ringBufferSize;
+    }
+
+    // waitStrategy flag
+
+    public boolean waitStrategyUpdated;
+
+    @NonNull
+    public WaitStrategy getWaitStrategy() {
+        return (sourceConfig == null || waitStrategyUpdated) ? super.waitStrategy : sourceConfig.waitStrategy;
+    }
+
+    // pipelineDepth flag
+
+    public boolean pipelineDepthUpdated;
+
+    public int getPipelineDepth() {
+        return (sourceConfig == null || pipelineDepthUpdated) ? super.pipelineDepth : sourceConfig.pipelineDepth;
+    }
+
     // byteLimitGet flag
 
     public boolean byteLimitGetUpdated;
@@ -63,4 +108,87 @@ public class EmitterConfigurationUpdate extends EmitterConfiguration {
     public long getByteLimitPost() {
         return (sourceConfig == null || byteLimitPostUpdated) ? super.byteLimitPost : sourceConfig.byteLimitPost;
     }
+
+    // maxEventStoreSize flag
+
+    public boolean maxEventStoreSizeUpdated;
+
+    public long getMaxEventStoreSize() {
+        return (sourceConfig == null || maxEventStoreSizeUpdated) ? super.maxEventStoreSize : sourceConfig.maxEventStoreSize;
+    }
+
+    // maxEventStoreBytes flag
+
+    public boolean maxEventStoreBytesUpdated;
+
+    public long getMaxEventStoreBytes() {
+        return (sourceConfig == null || maxEventStoreBytesUpdated) ? super.maxEventStoreBytes : sourceConfig.maxEventStoreBytes;
+    }
+
+    // maxEventAge flag
+
+    public boolean maxEventAgeUpdated;
+
+    @Nullable
+    public TimeMeasure getMaxEventAge() {
+        return (sourceConfig == null || maxEventAgeUpdated) ? super.maxEventAge : sourceConfig.maxEventAge;
+    }
+
+    // maxRetryAttempts flag
+
+    public boolean maxRetryAttemptsUpdated;
+
+    public int getMaxRetryAttempts() {
+        return (sourceConfig == null || maxRetryAttemptsUpdated) ? super.maxRetryAttempts : sourceConfig.maxRetryAttempts;
+    }
+
+    // maxMeteredBacklog flag
+
+    public boolean maxMeteredBacklogUpdated;
+
+    public long getMaxMeteredBacklog() {
+        return (sourceConfig == null || maxMeteredBacklogUpdated) ? super.maxMeteredBacklog : sourceConfig.maxMeteredBacklog;
+    }
+
+    // adaptiveBatching flag
+
+    public boolean adaptiveBatchingUpdated;
+
+    public boolean isAdaptiveBatching() {
+        return (sourceConfig == null || adaptiveBatchingUpdated) ? super.adaptiveBatching : sourceConfig.adaptiveBatching;
+    }
+
+    // minEventsPerRequest flag
+
+    public boolean minEventsPerRequestUpdated;
+
+    public int getMinEventsPerRequest() {
+        return (sourceConfig == null || minEventsPerRequestUpdated) ? super.minEventsPerRequest : sourceConfig.minEventsPerRequest;
+    }
+
+    // maxEventsPerRequest flag
+
+    public boolean maxEventsPerRequestUpdated;
+
+    public int getMaxEventsPerRequest() {
+        return (sourceConfig == null || maxEventsPerRequestUpdated) ? super.maxEventsPerRequest : sourceConfig.maxEventsPerRequest;
+    }
+
+    // targetLatency flag
+
+    public boolean targetLatencyUpdated;
+
+    @NonNull
+    public TimeMeasure getTargetLatency() {
+        return (sourceConfig == null || targetLatencyUpdated) ? super.targetLatency : sourceConfig.targetLatency;
+    }
+
+    // maxFlushDelay flag
+
+    public boolean maxFlushDelayUpdated;
+
+    @Nullable
+    public TimeMeasure getMaxFlushDelay() {
+        return (sourceConfig == null || maxFlushDelayUpdated) ? super.maxFlushDelay : sourceConfig.maxFlushDelay;
+    }
 }
@@ -7,10 +7,15 @@ import androidx.annotation.RestrictTo;
 import com.snowplowanalytics.snowplow.controller.EmitterController;
 import com.snowplowanalytics.snowplow.emitter.BufferOption;
 import com.snowplowanalytics.snowplow.emitter.EventStore;
+import com.snowplowanalytics.snowplow.emitter.RejectionPolicy;
+import com.snowplowanalytics.snowplow.emitter.WaitStrategy;
 import com.snowplowanalytics.snowplow.internal.Controller;
 import com.snowplowanalytics.snowplow.internal.tracker.Logger;
 import com.snowplowanalytics.snowplow.internal.tracker.ServiceProviderInterface;
 import com.snowplowanalytics.snowplow.network.RequestCallback;
+import com.snowplowanalytics.snowplow.util.TimeMeasure;
+
+import java.util.concurrent.TimeUnit;
 
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class EmitterControllerImpl extends Controller implements EmitterController {
@@ -59,7 +64,34 @@ public class EmitterControllerImpl extends Controller implements EmitterControll
 
     @Override
     public int getThreadPoolSize() {
-        return Executor.getThreadCount();
+        return getEmitter().getThreadPoolSize();
+    }
+
+    @Override
+    public int getWorkQueueCapacity() {
+        return getEmitter().getWorkQueueCapacity();
+    }
+
+    @Override
+    @NonNull
+    public RejectionPolicy getRejectionPolicy() {
+        return getEmitter().getRejectionPolicy();
+    }
+
+    @Override
+    public int getRingBufferSize() {
+        return getEmitter().getRingBufferSize();
+    }
+
+    @Override
+    @NonNull
+    public WaitStrategy getWaitStrategy() {
+        return getEmitter().getWaitStrategy();
+    }
+
+    @Override
+    public int getPipelineDepth() {
+        return getEmitter().getPipelineDepth();
     }
 
     @Override
@@ -86,6 +118,81 @@ public class EmitterControllerImpl extends Controller implements EmitterControll
         getEmitter().setByteLimitPost(byteLimitPost);
     }
 
+    @Override
+    public long getMaxEventStoreSize() {
+        return getEmitter().getMaxEventStoreSize();
+    }
+
+    @Override
+    public long getMaxEventStoreBytes() {
+        return getEmitter().getMaxEventStoreBytes();
+    }
+
+    @Nullable
+    @Override
+    public TimeMeasure getMaxEventAge() {
+        long maxEventAge = getEmitter().getMaxEventAge();
+        return maxEventAge > 0 ? new TimeMeasure(maxEventAge, TimeUnit.SECONDS) : null;
+    }
+
+    @Override
+    public int getMaxRetryAttempts() {
+        return getEmitter().getMaxRetryAttempts();
+    }
+
+    @Override
+    public long getMaxMeteredBacklog() {
+        return getEmitter().getMaxMeteredBacklog();
+    }
+
+    @Override
+    public boolean isAdaptiveBatching() {
+        return getEmitter().isAdaptiveBatching();
+    }
+
+    @Override
+    public int getMinEventsPerRequest() {
+        return getEmitter().getMinEventsPerRequest();
+    }
+
+    @Override
+    public int getMaxEventsPerRequest() {
+        return getEmitter().getMaxEventsPerRequest();
+    }
+
+    @NonNull
+    @Override
+    public TimeMeasure getTargetLatency() {
+        return new TimeMeasure(getEmitter().getTargetLatency(), TimeUnit.MILLISECONDS);
+    }
+
+    @Nullable
+    @Override
+    public TimeMeasure getMaxFlushDelay() {
+        long maxFlushDelay = getEmitter().getMaxFlushDelay();
+        return maxFlushDelay > 0 ? new TimeMeasure(maxFlushDelay, TimeUnit.MILLISECONDS) : null;
+    }
+
+    @Override
+    public int getCurrentEventsPerRequest() {
+        return getEmitter().getCurrentEventsPerRequest();
+    }
+
+    @Override
+    public int getCurrentRequestsPerRound() {
+        return getEmitter().getCurrentRequestsPerRound();
+    }
+
+    @Override
+    public long getLastSendLatency() {
+        return getEmitter().getLastSendLatency();
+    }
+
+    @Override
+    public long getAverageSendLatency() {
+        return getEmitter().getAverageSendLatency();
+    }
+
     @Nullable
     @Override
     public RequestCallback getRequestCallback() {
@@ -107,6 +214,16 @@ public class EmitterControllerImpl extends Controller implements EmitterControll
         return eventStore.getSize();
     }
 
+    @Override
+    public long getEvictedEventCount() {
+        return getEmitter().getEvictedEventCount();
+    }
+
+    @Override
+    public long getDeadEventCount() {
+        return getEmitter().getDeadEventCount();
+    }
+
     @Override
     public boolean isSending() {
         return getEmitter().getEmitterStatus();
@@ -68,23 +68,7 @@ public class Executor {
      * @param runnable the runnable to be queued
      */
     public static void execute(boolean reportsOnDiagnostic, @Nullable String tag, @Nullable Runnable runnable) {
-        final String loggerTag;
-        if (tag == null) {
-            loggerTag = "Source not provided";
-        } else {
-            loggerTag = tag;
-        }
-        execute(runnable, t -> {
-            String message = t.getLocalizedMessage();
-            if (message == null) {
-                message = "No message provided.";
-            }
-            if (reportsOnDiagnostic) {
-                Logger.track(loggerTag, message, t);
-            } else {
-                Logger.e(loggerTag, message, t);
-            }
-        });
+        execute(runnable, makeExceptionHandler(reportsOnDiagnostic, tag));
     }
 
     /**
@@ -94,7 +78,17 @@ public class Executor {
      * @param exceptionHandler the handler of exception raised by the runnable
      */
     public static void execute(@Nullable Runnable runnable, @Nullable ExceptionHandler exceptionHandler) {
-        ExecutorService executor = getExecutor();
+        execute(getExecutor(), runnable, exceptionHandler);
+    }
+
+    /**
+     * Sends a runnable to an executor service.
+     *
+     * @param executor the executor service where to queue the runnable
+     * @param runnable the runnable to be queued
+     * @param exceptionHandler the handler of exception raised by the runnable
+     */
+    static void execute(@NonNull ExecutorService executor, @Nullable Runnable runnable, @Nullable ExceptionHandler exceptionHandler) {
         try {
             executor.execute(() -> {
                 try {
@@ -114,6 +108,34 @@ public class Executor {
         }
     }
 
+    /**
+     * Creates an exception handler which logs the exceptions raised by a runnable.
+     *
+     * @param reportsOnDiagnostic weather or not the error has to be tracked with diagnostic feature
+     * @param tag string indicating the source of the runnable for logging purposes
+     * @return the exception handler
+     */
+    @NonNull
+    static ExceptionHandler makeExceptionHandler(boolean reportsOnDiagnostic, @Nullable String tag) {
+        final String loggerTag;
+        if (tag == null) {
+            loggerTag = "Source not provided";
+        } else {
+            loggerTag = tag;
+        }
+        return t -> {
+            String message = t == null ? null : t.getLocalizedMessage();
+            if (message == null) {
+                message = "No message provided.";
+            }
+            if (reportsOnDiagnostic) {
+                Logger.track(loggerTag, message, t);
+            } else {
+                Logger.e(loggerTag, message, t);
+            }
+        };
+    }
+
     /**
      * Sends a callable to the executor service and
      * returns a Future.
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.emitter;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import com.snowplowanalytics.snowplow.emitter.RejectionPolicy;
+import com.snowplowanalytics.snowplow.internal.tracker.Logger;
+import com.snowplowanalytics.snowplow.internal.utils.Util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Set of thread pools owned by a single tracker instance.
+ * Each subsystem (event processing, event store I/O and emission)
+ * runs on its own named pool, so that a slow subsystem or a
+ * different tracker can't stall the others.
+ * The work queues are bounded and the behaviour when they are full
+ * is set by the RejectionPolicy.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public class ExecutorGroup {
+    private final static String TAG = ExecutorGroup.class.getSimpleName();
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor eventProcessingExecutor;
+    private final ThreadPoolExecutor eventStoreExecutor;
+    private final ScheduledThreadPoolExecutor emissionExecutor;
+
+    /**
+     * Creates the thread pools for a tracker.
+     *
+     * @param namespace the namespace of the tracker, used to name the threads
+     * @param eventProcessingThreads the maximum number of threads processing the tracked events
+     * @param queueCapacity the maximum number of tasks waiting in each work queue
+     * @param rejectionPolicy the behaviour when a work queue is full
+     */
+    public ExecutorGroup(@NonNull String namespace, int eventProcessingThreads, int queueCapacity, @NonNull RejectionPolicy rejectionPolicy) {
+        String prefix = "snowplow-" + namespace;
+        eventProcessingExecutor = makeBoundedExecutor(prefix + "-processing", Math.max(eventProcessingThreads, 1), queueCapacity, rejectionPolicy);
+        eventStoreExecutor = makeBoundedExecutor(prefix + "-store", 1, queueCapacity, rejectionPolicy);
+        // The emission loop has at most one iteration scheduled at a time,
+        // the second thread reads the next batches while the current one is sent
+        emissionExecutor = new ScheduledThreadPoolExecutor(2, makeThreadFactory(prefix + "-emission"));
+        emissionExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Sends a runnable to the event processing pool.
+     *
+     * @param reportsOnDiagnostic weather or not the error has to be tracked with diagnostic feature
+     * @param tag string indicating the source of the runnable for logging purposes
+     * @param runnable the runnable to be queued
+     */
+    public void executeEventProcessing(boolean reportsOnDiagnostic, @Nullable String tag, @NonNull Runnable runnable) {
+        Executor.execute(eventProcessingExecutor, runnable, Executor.makeExceptionHandler(reportsOnDiagnostic, tag));
+    }
+
+    /**
+     * Sends a runnable to the event store pool.
+     *
+     * @param tag string indicating the source of the runnable for logging purposes
+     * @param runnable the runnable to be queued
+     */
+    public void executeEventStore(@Nullable String tag, @NonNull Runnable runnable) {
+        Executor.execute(eventStoreExecutor, runnable, Executor.makeExceptionHandler(false, tag));
+    }
+
+    /**
+     * Schedules a runnable on the emission pool.
+     *
+     * @param tag string indicating the source of the runnable for logging purposes
+     * @param runnable the runnable to be scheduled
+     * @param delay the time from now to delay execution
+     * @param unit the time unit of the delay parameter
+     * @return the future object that can be used to cancel the execution,
+     *         null if the runnable couldn't be scheduled
+     */
+    @Nullable
+    public ScheduledFuture<?> scheduleEmission(@Nullable String tag, @NonNull Runnable runnable, long delay, @NonNull TimeUnit unit) {
+        Executor.ExceptionHandler exceptionHandler = Executor.makeExceptionHandler(false, tag);
+        try {
+            return emissionExecutor.schedule(() -> {
+                try {
+                    runnable.run();
+                } catch (Throwable t) {
+                    exceptionHandler.handle(t);
+                }
+            }, delay, unit);
+        } catch (RejectedExecutionException e) {
+            exceptionHandler.handle(e);
+            return null;
+        }
+    }
+
+    /**
+     * Schedules a runnable on the event store pool.
+     * The delay is handled by the emission pool, so the task is discarded
+     * if the group is shut down before it expires.
+     *
+     * @param tag string indicating the source of the runnable for logging purposes
+     * @param runnable the runnable to be scheduled
+     * @param delay the time from now to delay execution
+     * @param unit the time unit of the delay parameter
+     * @return the future object that can be used to cancel the execution,
+     *         null if the runnable couldn't be scheduled
+     */
+    @Nullable
+    public ScheduledFuture<?> scheduleEventStore(@Nullable String tag, @NonNull Runnable runnable, long delay, @NonNull TimeUnit unit) {
+        return scheduleEmission(tag, () -> executeEventStore(tag, runnable), delay, unit);
+    }
+
+    /**
+     * Submits a callable to the emission pool.
+     * It's used to prepare or finalise the batches of events
+     * while the emission loop is waiting for the network.
+     *
+     * @param tag string indicating the source of the callable for logging purposes
+     * @param callable the callable to be queued
+     * @return the future object to be queried, null if the callable couldn't be queued
+     */
+    @Nullable
+    public <T> Future<T> submitEmission(@Nullable String tag, @NonNull Callable<T> callable) {
+        try {
+            return emissionExecutor.submit(callable);
+        } catch (RejectedExecutionException e) {
+            Executor.makeExceptionHandler(false, tag).handle(e);
+            return null;
+        }
+    }
+
+    /**
+     * Unlike `executeEventProcessing`, the executor service throws its rejections
+     * (e.g. after the shutdown) to the caller.
+     *
+     * @return the executor service processing the tracked events
+     */
+    @NonNull
+    public ExecutorService getEventProcessingExecutor() {
+        return eventProcessingExecutor;
+    }
+
+    /**
+     * @return the executor service used for the event store I/O
+     */
+    @NonNull
+    public ExecutorService getEventStoreExecutor() {
+        return eventStoreExecutor;
+    }
+
+    /**
+     * Shuts down all the pools of the group.
+     * Tasks already queued are executed, delayed emission tasks are discarded.
+     */
+    public void shutdown() {
+        eventProcessingExecutor.shutdown();
+        eventStoreExecutor.shutdown();
+        emissionExecutor.shutdown();
+    }
+
+    /**
+     * Blocks until all the pools have completed execution after a shutdown request,
+     * or the timeout occurs.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the time unit of the timeout argument
+     * @return whether all the pools terminated
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        ExecutorService[] executors = {eventProcessingExecutor, eventStoreExecutor, emissionExecutor};
+        for (ExecutorService executor : executors) {
+            long remaining = deadline - System.nanoTime();
+            if (!executor.awaitTermination(Math.max(remaining, 0), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Private methods
+
+    @NonNull
+    private static ThreadPoolExecutor makeBoundedExecutor(@NonNull String name, int threads, int queueCapacity, @NonNull RejectionPolicy rejectionPolicy) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(queueCapacity, 1)),
+                makeThreadFactory(name),
+                makeRejectionHandler(name, rejectionPolicy));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @NonNull
+    private static ThreadFactory makeThreadFactory(@NonNull String name) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, name + "-" + threadCount.incrementAndGet());
+    }
+
+    @NonNull
+    private static RejectedExecutionHandler makeRejectionHandler(@NonNull String name, @NonNull RejectionPolicy rejectionPolicy) {
+        RejectedExecutionHandler dropOldest = (runnable, executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Executor " + name + " is shut down.");
+            }
+            executor.getQueue().poll();
+            Logger.e(TAG, "Work queue of %s is full: the oldest task has been dropped.", name);
+            executor.execute(runnable);
+        };
+        switch (rejectionPolicy) {
+            case DropOldest:
+                return dropOldest;
+            case DropNewest:
+                return (runnable, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Executor " + name + " is shut down.");
+                    }
+                    Logger.e(TAG, "Work queue of %s is full: the new task has been dropped.", name);
+                };
+            default:
+                return (runnable, executor) -> {
+                    // The main thread never waits, it would make the app unresponsive
+                    if (Util.isMainThread()) {
+                        dropOldest.rejectedExecution(runnable, executor);
+                        return;
+                    }
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Executor " + name + " is shut down.");
+                    }
+                    try {
+                        executor.getQueue().put(runnable);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for " + name + ".", e);
+                    }
+                };
+        }
+    }
+}
@@ -5,6 +5,7 @@ import androidx.annotation.Nullable;
 import com.snowplowanalytics.snowplow.network.HttpMethod;
 import com.snowplowanalytics.snowplow.network.NetworkConnection;
 import com.snowplowanalytics.snowplow.network.Protocol;
+import com.snowplowanalytics.snowplow.network.RequestCompression;
 
 import okhttp3.OkHttpClient;
 
@@ -30,4 +31,10 @@ public interface NetworkConfigurationInterface {
 
     @Nullable
     OkHttpClient getOkHttpClient();
+
+    @Nullable
+    Integer getMaxConcurrentRequests();
+
+    @Nullable
+    RequestCompression getRequestCompression();
 }
@@ -6,6 +6,7 @@ import com.snowplowanalytics.snowplow.configuration.NetworkConfiguration;
 import com.snowplowanalytics.snowplow.network.HttpMethod;
 import com.snowplowanalytics.snowplow.network.NetworkConnection;
 import com.snowplowanalytics.snowplow.network.Protocol;
+import com.snowplowanalytics.snowplow.network.RequestCompression;
 
 import okhttp3.OkHttpClient;
 
@@ -55,6 +56,18 @@ public class NetworkConfigurationUpdate implements NetworkConfigurationInterface
         return sourceConfig == null ? null : sourceConfig.getOkHttpClient();
     }
 
+    @Nullable
+    @Override
+    public Integer getMaxConcurrentRequests() {
+        return sourceConfig == null ? null : sourceConfig.getMaxConcurrentRequests();
+    }
+
+    @Nullable
+    @Override
+    public RequestCompression getRequestCompression() {
+        return sourceConfig == null ? null : sourceConfig.getRequestCompression();
+    }
+
     // customPostPath flag
 
     public boolean customPostPathUpdated;
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.emitter;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import com.snowplowanalytics.snowplow.internal.tracker.Logger;
+import com.snowplowanalytics.snowplow.internal.utils.Util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the networks available through a NetworkCallback,
+ * so that the Emitter can check the connectivity without querying
+ * the ConnectivityManager at every iteration of the emission loop.
+ * If the callback can't be registered, or it hasn't reported any network
+ * yet, the state is queried on demand.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public class NetworkMonitor extends ConnectivityManager.NetworkCallback {
+    private final static String TAG = NetworkMonitor.class.getSimpleName();
+
+    /**
+     * Listener notified when a network able to send the events becomes available.
+     */
+    public interface Listener {
+        void onNetworkAvailable();
+    }
+
+    private final Context context;
+    private final Map<Network, NetworkCapabilities> networks = new HashMap<>();
+    @Nullable
+    private Listener listener;
+    private boolean isRegistered = false;
+
+    public NetworkMonitor(@NonNull Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Registers the NetworkCallback.
+     *
+     * @param listener the listener notified when a network becomes available
+     * @return whether the callback has been registered
+     */
+    public synchronized boolean register(@NonNull Listener listener) {
+        if (isRegistered) {
+            return true;
+        }
+        this.listener = listener;
+        try {
+            ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            NetworkRequest request = new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build();
+            cm.registerNetworkCallback(request, this);
+            isRegistered = true;
+        } catch (RuntimeException e) {
+            Logger.e(TAG, "Unable to register the network callback: %s", e.toString());
+        }
+        return isRegistered;
+    }
+
+    /**
+     * Unregisters the NetworkCallback, the state is then queried on demand.
+     */
+    public synchronized void unregister() {
+        listener = null;
+        if (!isRegistered) {
+            return;
+        }
+        isRegistered = false;
+        networks.clear();
+        try {
+            ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            cm.unregisterNetworkCallback(this);
+        } catch (RuntimeException e) {
+            Logger.e(TAG, "Unable to unregister the network callback: %s", e.toString());
+        }
+    }
+
+    /**
+     * @return whether a network with a validated internet connection is available
+     */
+    public synchronized boolean isOnline() {
+        if (!isRegistered || networks.isEmpty()) {
+            return Util.isOnline(context);
+        }
+        for (NetworkCapabilities capabilities : networks.values()) {
+            if (isUsable(capabilities)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether an unmetered network with a validated internet connection is available
+     */
+    public synchronized boolean isUnmetered() {
+        if (!isRegistered || networks.isEmpty()) {
+            try {
+                ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+                return !cm.isActiveNetworkMetered();
+            } catch (RuntimeException e) {
+                Logger.e(TAG, "Unable to check if the network is metered: %s", e.toString());
+                return true;
+            }
+        }
+        for (NetworkCapabilities capabilities : networks.values()) {
+            if (isUsable(capabilities) && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // NetworkCallback
+
+    @Override
+    public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities capabilities) {
+        Listener notifiedListener = null;
+        synchronized (this) {
+            NetworkCapabilities previous = networks.put(network, capabilities);
+            boolean wasUsable = previous != null && isUsable(previous);
+            boolean wasUnmetered = wasUsable && previous.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+            boolean isUsable = isUsable(capabilities);
+            boolean isUnmetered = isUsable && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+            if ((isUsable && !wasUsable) || (isUnmetered && !wasUnmetered)) {
+                notifiedListener = listener;
+            }
+        }
+        if (notifiedListener != null) {
+            Logger.d(TAG, "Network available: %s", network);
+            notifiedListener.onNetworkAvailable();
+        }
+    }
+
+    @Override
+    public void onLost(@NonNull Network network) {
+        synchronized (this) {
+            networks.remove(network);
+        }
+        Logger.d(TAG, "Network lost: %s", network);
+    }
+
+    // Private methods
+
+    private static boolean isUsable(@NonNull NetworkCapabilities capabilities) {
+        if (!capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)) {
+            return false;
+        }
+        // The validation of the connection is reported from Android 6
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.M
+                || capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.emitter.storage;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import com.snowplowanalytics.snowplow.emitter.EmitterEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the events leased from an EventStore and of the
+ * expiry of their leases.
+ * The leases live in memory: after a restart all the events can be leased.
+ * The EventStores have to call it holding the lock on this object when the
+ * read of the events and the lease have to be atomic.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public class EventLeases {
+
+    // Expiry time (nanoTime) of the lease of each event
+    private final Map<Long, Long> expiries = new HashMap<>();
+
+    /**
+     * Leases the events not already leased.
+     *
+     * @param events the events to lease, oldest first
+     * @param limit the maximum number of events to lease
+     * @param leaseDuration the duration (in milliseconds) of the lease
+     * @return the events leased
+     */
+    @NonNull
+    public synchronized List<EmitterEvent> lease(@NonNull List<EmitterEvent> events, int limit, long leaseDuration) {
+        long expiry = System.nanoTime() + leaseDuration * 1000000L;
+        List<EmitterEvent> leasedEvents = new ArrayList<>();
+        for (EmitterEvent event : events) {
+            if (leasedEvents.size() >= limit) {
+                break;
+            }
+            if (!expiries.containsKey(event.eventId)) {
+                expiries.put(event.eventId, expiry);
+                leasedEvents.add(event);
+            }
+        }
+        return leasedEvents;
+    }
+
+    /**
+     * Drops the expired leases, so that their events can be leased again.
+     *
+     * @return whether some leases have expired
+     */
+    public synchronized boolean removeExpired() {
+        long now = System.nanoTime();
+        boolean isExpired = false;
+        Iterator<Long> iterator = expiries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() - now <= 0) {
+                iterator.remove();
+                isExpired = true;
+            }
+        }
+        return isExpired;
+    }
+
+    /**
+     * @param ids the events to release
+     */
+    public synchronized void release(@NonNull Collection<Long> ids) {
+        for (Long id : ids) {
+            expiries.remove(id);
+        }
+    }
+
+    public synchronized void clear() {
+        expiries.clear();
+    }
+
+    /**
+     * @return the number of events leased, including the expired leases not yet removed
+     */
+    public synchronized int size() {
+        return expiries.size();
+    }
+}
@@ -14,6 +14,9 @@
 package com.snowplowanalytics.snowplow.internal.emitter.storage;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
@@ -39,6 +42,13 @@ public class EventStoreHelper extends SQLiteOpenHelper {
     public static final String COLUMN_ID            = "id";
     public static final String COLUMN_EVENT_DATA    = "eventData";
     public static final String COLUMN_DATE_CREATED  = "dateCreated";
+    public static final String COLUMN_ATTEMPTS      = "attempts";
+    public static final String COLUMN_LAST_ATTEMPT  = "lastAttempt";
+
+    public static final String TABLE_DEAD_EVENTS    = "deadEvents";
+    public static final String COLUMN_EVENT_ID      = "eventId";
+    public static final String COLUMN_STATUS_CODE   = "statusCode";
+    public static final String COLUMN_DATE_DEAD     = "dateDead";
 
     public static final String METADATA_ID          = "id";
     public static final String METADATA_EVENT_DATA  = "eventData";
@@ -46,13 +56,27 @@ public class EventStoreHelper extends SQLiteOpenHelper {
 
     private static final String DATABASE_NAME       = "snowplowEvents";
     private static final String TAG                 = EventStoreHelper.class.getName();
-    private static final int DATABASE_VERSION       = 1;
+    private static final int DATABASE_VERSION       = 3;
+    private static final long AUTO_VACUUM_INCREMENTAL = 2;
 
     private static final String queryDropTable =
             "DROP TABLE IF EXISTS '" + TABLE_EVENTS + "'";
+    private static final String queryDropDeadEventsTable =
+            "DROP TABLE IF EXISTS '" + TABLE_DEAD_EVENTS + "'";
     private static final String queryCreateTable = "CREATE TABLE IF NOT EXISTS 'events' " +
             "(id INTEGER PRIMARY KEY, eventData BLOB, " +
-            "dateCreated TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
+            "dateCreated TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "attempts INTEGER NOT NULL DEFAULT 0, lastAttempt TIMESTAMP)";
+    private static final String queryAddAttemptsColumn = "ALTER TABLE 'events' " +
+            "ADD COLUMN attempts INTEGER NOT NULL DEFAULT 0";
+    private static final String queryAddLastAttemptColumn = "ALTER TABLE 'events' " +
+            "ADD COLUMN lastAttempt TIMESTAMP";
+    private static final String queryCreateDeadEventsTable = "CREATE TABLE IF NOT EXISTS 'deadEvents' " +
+            "(id INTEGER PRIMARY KEY, eventId INTEGER, eventData BLOB, dateCreated TIMESTAMP, " +
+            "attempts INTEGER, statusCode INTEGER, " +
+            "dateDead TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
+    private static final String queryCreateDateCreatedIndex = "CREATE INDEX IF NOT EXISTS " +
+            "'events_dateCreated' ON 'events' (dateCreated)";
 
     // Prevents multiple instances being created and avoids memory leaks.
     private static HashMap<String, EventStoreHelper> instances = new HashMap<>();
@@ -150,15 +174,107 @@ public class EventStoreHelper extends SQLiteOpenHelper {
         super(context, databaseName, null, DATABASE_VERSION);
     }
 
+    /**
+     * @param database the database to check
+     * @return whether the space of the removed events can be released in small steps
+     */
+    public static boolean isIncrementalVacuumEnabled(@NonNull SQLiteDatabase database) {
+        return DatabaseUtils.longForQuery(database, "PRAGMA auto_vacuum", null) == AUTO_VACUUM_INCREMENTAL;
+    }
+
+    /**
+     * Switches the database to incremental vacuum, so that the space of the
+     * removed events can be released in small steps.
+     * The databases created before the incremental vacuum have to be rebuilt:
+     * it rewrites the whole file, so it's done only on databases up to the
+     * size passed, the larger ones keep their vacuum mode.
+     *
+     * @param database the database to configure
+     * @param maxDatabaseBytes the maximum size of a database rebuilt
+     * @return whether the incremental vacuum is enabled
+     */
+    public static boolean enableIncrementalVacuum(@NonNull SQLiteDatabase database, long maxDatabaseBytes) {
+        if (isIncrementalVacuumEnabled(database)) {
+            return true;
+        }
+        long pageCount = DatabaseUtils.longForQuery(database, "PRAGMA page_count", null);
+        if (pageCount * database.getPageSize() > maxDatabaseBytes) {
+            Logger.d(TAG, "Database too large to enable the incremental vacuum.");
+            return false;
+        }
+        Logger.d(TAG, "Enabling incremental vacuum on the database...");
+        database.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+        database.execSQL("VACUUM");
+        return isIncrementalVacuumEnabled(database);
+    }
+
+    @Override
+    public void onConfigure(@NonNull SQLiteDatabase database) {
+        // It has effect only on new databases, before the tables are created
+        database.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+    }
+
     @Override
     public void onCreate(@NonNull SQLiteDatabase database) {
         database.execSQL(queryCreateTable);
+        database.execSQL(queryCreateDateCreatedIndex);
+        database.execSQL(queryCreateDeadEventsTable);
     }
 
     @Override
     public void onUpgrade(@NonNull SQLiteDatabase database, int oldVersion, int newVersion) {
+        if (oldVersion == 1 || oldVersion == 2) {
+            // The events are kept, the new versions only add indexes, columns and tables
+            addMissingSchema(database);
+            return;
+        }
         Logger.d(TAG, "Upgrade not implemented, resetting database...");
         database.execSQL(queryDropTable);
         onCreate(database);
     }
+
+    @Override
+    public void onDowngrade(@NonNull SQLiteDatabase database, int oldVersion, int newVersion) {
+        // The later versions keep the columns of this one, so the events are kept when possible
+        Logger.d(TAG, "Downgrading database from version %s to %s...", oldVersion, newVersion);
+        try {
+            addMissingSchema(database);
+        } catch (SQLException e) {
+            Logger.e(TAG, "Downgrade not possible, resetting database: %s", e.toString());
+            database.execSQL(queryDropTable);
+            database.execSQL(queryDropDeadEventsTable);
+            onCreate(database);
+        }
+    }
+
+    /**
+     * Adds the indexes, columns and tables missing from the current version.
+     * The events table is created by all the versions.
+     */
+    private static void addMissingSchema(@NonNull SQLiteDatabase database) {
+        // Version 2 adds the index on the creation date
+        database.execSQL(queryCreateDateCreatedIndex);
+        // Version 3 adds the retry metadata and the dead-letter table
+        if (!hasColumn(database, TABLE_EVENTS, COLUMN_ATTEMPTS)) {
+            database.execSQL(queryAddAttemptsColumn);
+        }
+        if (!hasColumn(database, TABLE_EVENTS, COLUMN_LAST_ATTEMPT)) {
+            database.execSQL(queryAddLastAttemptColumn);
+        }
+        database.execSQL(queryCreateDeadEventsTable);
+    }
+
+    private static boolean hasColumn(@NonNull SQLiteDatabase database, @NonNull String table, @NonNull String column) {
+        Cursor cursor = database.rawQuery("PRAGMA table_info('" + table + "')", null);
+        try {
+            while (cursor.moveToNext()) {
+                if (column.equals(cursor.getString(cursor.getColumnIndex("name")))) {
+                    return true;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return false;
+    }
 }
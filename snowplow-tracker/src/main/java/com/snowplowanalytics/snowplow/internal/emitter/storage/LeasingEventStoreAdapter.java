@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.emitter.storage;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import com.snowplowanalytics.snowplow.emitter.EmitterEvent;
+import com.snowplowanalytics.snowplow.emitter.EventStore;
+import com.snowplowanalytics.snowplow.emitter.LeasingEventStore;
+import com.snowplowanalytics.snowplow.payload.Payload;
+
+import java.util.List;
+
+/**
+ * Adds the leases to an EventStore that doesn't support them.
+ * The leased events are read in excess and filtered out, as
+ * the EventStore can't skip them.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public class LeasingEventStoreAdapter implements LeasingEventStore {
+
+    private final EventStore eventStore;
+    private final EventLeases leases = new EventLeases();
+
+    /**
+     * Returns the EventStore itself if it supports the leases, otherwise an adapter.
+     *
+     * @param eventStore the EventStore to lease
+     * @return the EventStore with the lease support
+     */
+    @NonNull
+    public static LeasingEventStore of(@NonNull EventStore eventStore) {
+        if (eventStore instanceof LeasingEventStore) {
+            return (LeasingEventStore) eventStore;
+        }
+        return new LeasingEventStoreAdapter(eventStore);
+    }
+
+    private LeasingEventStoreAdapter(@NonNull EventStore eventStore) {
+        this.eventStore = eventStore;
+    }
+
+    @NonNull
+    @Override
+    public List<EmitterEvent> lease(int limit, long leaseDuration) {
+        synchronized (leases) {
+            leases.removeExpired();
+            List<EmitterEvent> events = eventStore.getEmittableEvents(limit + leases.size());
+            return leases.lease(events, limit, leaseDuration);
+        }
+    }
+
+    @Override
+    public boolean ack(@NonNull List<Long> ids) {
+        // The events are removed before the leases, so that no lease can pick them in between
+        synchronized (leases) {
+            boolean isRemoved = eventStore.removeEvents(ids);
+            leases.release(ids);
+            return isRemoved;
+        }
+    }
+
+    @Override
+    public void release(@NonNull List<Long> ids) {
+        leases.release(ids);
+    }
+
+    @Override
+    public void add(@NonNull Payload payload) {
+        eventStore.add(payload);
+    }
+
+    @Override
+    public boolean removeEvent(long id) {
+        return eventStore.removeEvent(id);
+    }
+
+    @Override
+    public boolean removeEvents(@NonNull List<Long> ids) {
+        return eventStore.removeEvents(ids);
+    }
+
+    @Override
+    public boolean removeAllEvents() {
+        leases.clear();
+        return eventStore.removeAllEvents();
+    }
+
+    @Override
+    public long getSize() {
+        return eventStore.getSize();
+    }
+
+    @NonNull
+    @Override
+    public List<EmitterEvent> getEmittableEvents(int queryLimit) {
+        return eventStore.getEmittableEvents(queryLimit);
+    }
+}
@@ -0,0 +1,502 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.emitter.storage;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.snowplowanalytics.snowplow.emitter.EmitterEvent;
+import com.snowplowanalytics.snowplow.emitter.LeasingEventStore;
+import com.snowplowanalytics.snowplow.internal.tracker.Logger;
+import com.snowplowanalytics.snowplow.internal.utils.Util;
+import com.snowplowanalytics.snowplow.payload.Payload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * EventStore that keeps the events in an append-only log
+ * made of memory-mapped segment files.
+ *
+ * @apiNote It's an alternative to the SQLiteEventStore when
+ * the events only need queue semantics: it opens quickly and
+ * it has a small overhead per event.
+ * Each event is appended to the last segment as a record with
+ * its length, the CRC of the data and its state.
+ * The removed events are marked as acknowledged in place, the
+ * tail pointer stored in the first segment skips the leading
+ * acknowledged events and the segments with all the events
+ * acknowledged are deleted.
+ * When the store is opened the last segment is scanned checking
+ * the CRC of the records, so that the records partially written
+ * before a crash are discarded.
+ * The segments are synced to disk when they are full and when
+ * the store is closed.
+ */
+public class MappedLogEventStore implements LeasingEventStore {
+    private final static String TAG = MappedLogEventStore.class.getSimpleName();
+
+    /** Default size (in bytes) of a segment of the log. */
+    public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+
+    private static final String DIRECTORY_NAME = "snowplowEvents";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int SEGMENT_MAGIC = 0x53504c47;
+    // Magic number and tail pointer
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int TAIL_OFFSET = 4;
+    // Length, CRC and state of the event
+    private static final int RECORD_HEADER_SIZE = 9;
+    private static final int CRC_OFFSET = 4;
+    private static final int STATE_OFFSET = 8;
+    private static final byte STATE_LIVE = 'L';
+    private static final byte STATE_ACKED = 'A';
+
+    private final File directory;
+    private final int segmentSize;
+    private final CRC32 crc = new CRC32();
+    private final EventLeases leases = new EventLeases();
+    @Nullable
+    private List<Segment> segments;
+    private long eventCount;
+
+    /**
+     * A segment file of the log mapped in memory.
+     */
+    private static class Segment {
+        final int number;
+        final File file;
+        final MappedByteBuffer buffer;
+        int end = SEGMENT_HEADER_SIZE;
+        int liveCount = 0;
+
+        Segment(int number, @NonNull File file, @NonNull MappedByteBuffer buffer) {
+            this.number = number;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        int getTail() {
+            return buffer.getInt(TAIL_OFFSET);
+        }
+    }
+
+    /**
+     * Creates a new Event Store in the app files directory.
+     *
+     * @param context The android context object
+     * @param namespace The namespace of the tracker
+     */
+    public MappedLogEventStore(@NonNull Context context, @NonNull String namespace) {
+        this(new File(context.getFilesDir(), DIRECTORY_NAME + "-" + namespace.replaceAll("[^a-zA-Z0-9_]+", "-")),
+                DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a new Event Store in the passed directory.
+     * The log is opened when the store is used the first time.
+     *
+     * @param directory The directory of the segment files
+     * @param segmentSize The size (in bytes) of the segments, bigger events get their own segment
+     */
+    public MappedLogEventStore(@NonNull File directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = Math.max(segmentSize, SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE);
+    }
+
+    @Override
+    public synchronized void add(@NonNull Payload payload) {
+        if (!ensureOpen()) {
+            Logger.e(TAG, "Event dropped: the event log is not available.");
+            return;
+        }
+        try {
+            append(Util.serializePayload(payload));
+        } catch (IOException e) {
+            Logger.e(TAG, "Unable to append the event: %s", e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized boolean removeEvent(long id) {
+        if (!ensureOpen()) {
+            return false;
+        }
+        boolean isRemoved = acknowledge(id);
+        advanceTail();
+        return isRemoved;
+    }
+
+    @Override
+    public synchronized boolean removeEvents(@NonNull List<Long> ids) {
+        if (ids.isEmpty() || !ensureOpen()) {
+            return false;
+        }
+        int removedCount = 0;
+        for (long id : ids) {
+            if (acknowledge(id)) {
+                removedCount++;
+            }
+        }
+        advanceTail();
+        Logger.d(TAG, "Removed events from the log: %s", removedCount);
+        return removedCount == ids.size();
+    }
+
+    @Override
+    public synchronized boolean removeAllEvents() {
+        if (!ensureOpen()) {
+            return false;
+        }
+        leases.clear();
+        int nextNumber = segments.get(segments.size() - 1).number + 1;
+        for (Segment segment : segments) {
+            deleteSegment(segment);
+        }
+        segments.clear();
+        eventCount = 0;
+        try {
+            segments.add(createSegment(nextNumber, segmentSize));
+        } catch (IOException e) {
+            Logger.e(TAG, "Unable to create a segment: %s", e.getMessage());
+            segments = null;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized long getSize() {
+        return ensureOpen() ? eventCount : 0;
+    }
+
+    /**
+     * Returns the oldest events in the log.
+     * The event id is made of the segment number and the position of
+     * the event in the segment.
+     *
+     * @param queryLimit the maximum number of events to return
+     * @return the events ordered from the oldest to the newest
+     */
+    @NonNull
+    @Override
+    public synchronized List<EmitterEvent> getEmittableEvents(int queryLimit) {
+        if (!ensureOpen()) {
+            return Collections.emptyList();
+        }
+        List<EmitterEvent> events = new ArrayList<>();
+        List<Long> corruptedEventIds = new ArrayList<>();
+        for (Segment segment : segments) {
+            MappedByteBuffer buffer = segment.buffer;
+            int position = segment.getTail();
+            while (position < segment.end && events.size() < queryLimit) {
+                int length = buffer.getInt(position);
+                if (buffer.get(position + STATE_OFFSET) == STATE_LIVE) {
+                    long eventId = makeEventId(segment.number, position);
+                    byte[] data = new byte[length];
+                    buffer.position(position + RECORD_HEADER_SIZE);
+                    buffer.get(data);
+                    Payload payload = Util.deserializePayload(data);
+                    if (payload == null) {
+                        Logger.e(TAG, "Unable to decode the event with ID: %s", eventId);
+                        corruptedEventIds.add(eventId);
+                    } else {
+                        events.add(new EmitterEvent(payload, eventId));
+                    }
+                }
+                position += RECORD_HEADER_SIZE + length;
+            }
+            if (events.size() >= queryLimit) {
+                break;
+            }
+        }
+        if (!corruptedEventIds.isEmpty()) {
+            removeEvents(corruptedEventIds);
+        }
+        return events;
+    }
+
+    @NonNull
+    @Override
+    public synchronized List<EmitterEvent> lease(int limit, long leaseDuration) {
+        leases.removeExpired();
+        // The leased events can't be skipped by the read so we read them in excess
+        return leases.lease(getEmittableEvents(limit + leases.size()), limit, leaseDuration);
+    }
+
+    @Override
+    public synchronized boolean ack(@NonNull List<Long> ids) {
+        leases.release(ids);
+        return removeEvents(ids);
+    }
+
+    @Override
+    public synchronized void release(@NonNull List<Long> ids) {
+        leases.release(ids);
+    }
+
+    /**
+     * Syncs the segments to disk and releases them.
+     * The log is opened again when the store is used.
+     */
+    public synchronized void close() {
+        if (segments == null) {
+            return;
+        }
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        segments = null;
+    }
+
+    /**
+     * Returns truth on if the log is open.
+     *
+     * @return a boolean for the log status
+     */
+    public synchronized boolean isOpen() {
+        return segments != null;
+    }
+
+    // Private methods
+
+    /**
+     * Opens the log if it's not open yet.
+     * It has to be called holding the lock on the store.
+     *
+     * @return whether the log is open
+     */
+    private boolean ensureOpen() {
+        if (segments != null) {
+            return true;
+        }
+        try {
+            open();
+            return true;
+        } catch (IOException e) {
+            Logger.e(TAG, "Unable to open the event log: %s", e.getMessage());
+            segments = null;
+            return false;
+        }
+    }
+
+    private void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create the directory " + directory);
+        }
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            throw new IOException("Unable to list the directory " + directory);
+        }
+        Arrays.sort(files);
+        List<Segment> openedSegments = new ArrayList<>(files.length + 1);
+        long count = 0;
+        for (int i = 0; i < files.length; i++) {
+            Segment segment = mapSegment(files[i]);
+            if (segment == null) {
+                Logger.e(TAG, "Invalid segment deleted: %s", files[i].getName());
+                files[i].delete();
+                continue;
+            }
+            // Only the last segment can have records partially written
+            scanSegment(segment, i == files.length - 1);
+            count += segment.liveCount;
+            openedSegments.add(segment);
+        }
+        if (openedSegments.isEmpty()) {
+            openedSegments.add(createSegment(0, segmentSize));
+        }
+        segments = openedSegments;
+        eventCount = count;
+        Logger.d(TAG, "Event log opened with %s events in %s segments.", count, openedSegments.size());
+    }
+
+    /**
+     * Counts the events of a segment from its tail and finds its end.
+     * When the records are verified, the log is truncated at the first
+     * record with invalid CRC.
+     */
+    private void scanSegment(@NonNull Segment segment, boolean verify) {
+        MappedByteBuffer buffer = segment.buffer;
+        int capacity = buffer.capacity();
+        int position = segment.getTail();
+        if (position < SEGMENT_HEADER_SIZE || position > capacity) {
+            position = SEGMENT_HEADER_SIZE;
+            buffer.putInt(TAIL_OFFSET, position);
+        }
+        while (position + RECORD_HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || length > capacity - position - RECORD_HEADER_SIZE) {
+                break;
+            }
+            byte state = buffer.get(position + STATE_OFFSET);
+            if (state != STATE_LIVE && state != STATE_ACKED) {
+                break;
+            }
+            if (verify) {
+                byte[] data = new byte[length];
+                buffer.position(position + RECORD_HEADER_SIZE);
+                buffer.get(data);
+                if (computeCrc(data) != buffer.getInt(position + CRC_OFFSET)) {
+                    break;
+                }
+            }
+            if (state == STATE_LIVE) {
+                segment.liveCount++;
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        segment.end = position;
+        if (verify && position + RECORD_HEADER_SIZE <= capacity && buffer.getInt(position) != 0) {
+            Logger.e(TAG, "Discarding the events partially written in %s", segment.file.getName());
+            for (int i = position; i < capacity; i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Appends a record to the last segment, rolling to a new segment if it's full.
+     * The length is written last, so the record is part of the log only once complete.
+     */
+    private void append(@NonNull byte[] data) throws IOException {
+        int recordSize = RECORD_HEADER_SIZE + data.length;
+        Segment segment = segments.get(segments.size() - 1);
+        if (segment.end + recordSize > segment.buffer.capacity()) {
+            segment.buffer.force();
+            segment = createSegment(segment.number + 1, Math.max(segmentSize, SEGMENT_HEADER_SIZE + recordSize));
+            segments.add(segment);
+        }
+        MappedByteBuffer buffer = segment.buffer;
+        int position = segment.end;
+        buffer.putInt(position + CRC_OFFSET, computeCrc(data));
+        buffer.put(position + STATE_OFFSET, STATE_LIVE);
+        buffer.position(position + RECORD_HEADER_SIZE);
+        buffer.put(data);
+        buffer.putInt(position, data.length);
+        segment.end += recordSize;
+        segment.liveCount++;
+        eventCount++;
+    }
+
+    /**
+     * Marks an event as acknowledged.
+     *
+     * @return whether the event was in the log
+     */
+    private boolean acknowledge(long id) {
+        Segment segment = findSegment((int) (id >>> 32));
+        int position = (int) id;
+        if (segment == null || position < segment.getTail() || position + RECORD_HEADER_SIZE > segment.end) {
+            return false;
+        }
+        MappedByteBuffer buffer = segment.buffer;
+        if (buffer.get(position + STATE_OFFSET) != STATE_LIVE) {
+            return false;
+        }
+        buffer.put(position + STATE_OFFSET, STATE_ACKED);
+        segment.liveCount--;
+        eventCount--;
+        return true;
+    }
+
+    /**
+     * Deletes the leading segments with all the events acknowledged and
+     * moves the tail pointer of the first segment after its leading acknowledged events.
+     */
+    private void advanceTail() {
+        while (segments.size() > 1 && segments.get(0).liveCount == 0) {
+            deleteSegment(segments.remove(0));
+        }
+        Segment segment = segments.get(0);
+        MappedByteBuffer buffer = segment.buffer;
+        int position = segment.getTail();
+        while (position < segment.end && buffer.get(position + STATE_OFFSET) == STATE_ACKED) {
+            position += RECORD_HEADER_SIZE + buffer.getInt(position);
+        }
+        buffer.putInt(TAIL_OFFSET, position);
+    }
+
+    @Nullable
+    private Segment findSegment(int number) {
+        for (Segment segment : segments) {
+            if (segment.number == number) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    @NonNull
+    private Segment createSegment(int number, int size) throws IOException {
+        File file = new File(directory, String.format(Locale.US, "%010d%s", number, SEGMENT_SUFFIX));
+        MappedByteBuffer buffer;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(size);
+            buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        buffer.putInt(0, SEGMENT_MAGIC);
+        buffer.putInt(TAIL_OFFSET, SEGMENT_HEADER_SIZE);
+        return new Segment(number, file, buffer);
+    }
+
+    @Nullable
+    private Segment mapSegment(@NonNull File file) throws IOException {
+        int number;
+        try {
+            number = Integer.parseInt(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            long length = randomAccessFile.length();
+            if (length < SEGMENT_HEADER_SIZE || length > Integer.MAX_VALUE) {
+                return null;
+            }
+            buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+        if (buffer.getInt(0) != SEGMENT_MAGIC) {
+            return null;
+        }
+        return new Segment(number, file, buffer);
+    }
+
+    private void deleteSegment(@NonNull Segment segment) {
+        eventCount -= segment.liveCount;
+        if (!segment.file.delete()) {
+            Logger.e(TAG, "Unable to delete the segment: %s", segment.file.getName());
+        }
+    }
+
+    private int computeCrc(@NonNull byte[] data) {
+        crc.reset();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+
+    private static long makeEventId(int segmentNumber, int position) {
+        return ((long) segmentNumber << 32) | position;
+    }
+}
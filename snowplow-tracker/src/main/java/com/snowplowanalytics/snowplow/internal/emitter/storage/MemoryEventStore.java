@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.emitter.storage;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.snowplowanalytics.snowplow.emitter.EmitterEvent;
+import com.snowplowanalytics.snowplow.emitter.EventStore;
+import com.snowplowanalytics.snowplow.emitter.LeasingEventStore;
+import com.snowplowanalytics.snowplow.internal.session.ProcessObserver;
+import com.snowplowanalytics.snowplow.internal.tracker.Logger;
+import com.snowplowanalytics.snowplow.internal.utils.NotificationCenter;
+import com.snowplowanalytics.snowplow.payload.Payload;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EventStore that keeps the events in memory, in a preallocated
+ * ring buffer, and spills them to a persistent EventStore.
+ *
+ * @apiNote Adding an event doesn't touch the disk, so it's suited
+ * to short sessions where the events are sent straight away.
+ * The events in memory are moved to the persistent store when the
+ * ring buffer is full, when the system signals memory pressure and
+ * when the app goes in background, so that they are not lost if
+ * the process is killed. The spills requested by the system run off
+ * the main thread.
+ * The events in memory have negative ids, the persistent store has
+ * to use non-negative ids.
+ * The events spilled while they are being sent get a new id in the
+ * persistent store, so they could be sent twice.
+ */
+public class MemoryEventStore implements LeasingEventStore, ComponentCallbacks2 {
+    private final static String TAG = MemoryEventStore.class.getSimpleName();
+
+    /** Default number of events kept in memory. */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private final EventStore persistentStore;
+    // Guards the fields used on the main thread, it's never held while the events are spilled
+    private final Object backgroundLock = new Object();
+    @Nullable
+    private Context applicationContext;
+    @Nullable
+    private ExecutorService spillExecutor;
+    private final Payload[] ring;
+    private final EventLeases leases = new EventLeases();
+    // Sequence numbers of the oldest and the next event in the ring buffer
+    private long tail = 0;
+    private long head = 0;
+    private int memoryEventCount = 0;
+
+    private final NotificationCenter.FunctionalObserver receiveLifecycleNotification = new NotificationCenter.FunctionalObserver() {
+        @Override
+        public void apply(@NonNull Map<String, Object> data) {
+            if (Boolean.FALSE.equals(data.get("isForeground"))) {
+                spillInBackground();
+            }
+        }
+    };
+
+    /**
+     * Creates a new Event Store spilling the events to a SQLiteEventStore.
+     * The events are spilled when the app goes in background or the system
+     * is low on memory.
+     *
+     * @param context The android context object
+     * @param namespace The namespace of the tracker
+     */
+    public MemoryEventStore(@NonNull Context context, @NonNull String namespace) {
+        this(context, DEFAULT_CAPACITY, new SQLiteEventStore(context, namespace));
+    }
+
+    /**
+     * Creates a new Event Store spilling the events to the passed EventStore.
+     * The events are spilled when the app goes in background or the system
+     * is low on memory.
+     *
+     * @param context The android context object
+     * @param capacity The maximum number of events kept in memory
+     * @param persistentStore The EventStore where the events are spilled
+     */
+    public MemoryEventStore(@NonNull Context context, int capacity, @NonNull EventStore persistentStore) {
+        this(capacity, persistentStore);
+        Context applicationContext = context.getApplicationContext();
+        synchronized (backgroundLock) {
+            this.applicationContext = applicationContext;
+        }
+        applicationContext.registerComponentCallbacks(this);
+        NotificationCenter.addObserver("SnowplowLifecycleTracking", receiveLifecycleNotification);
+        ProcessObserver.initialize(context);
+    }
+
+    /**
+     * Creates a new Event Store spilling the events to the passed EventStore
+     * only when the ring buffer is full or when requested.
+     *
+     * @param capacity The maximum number of events kept in memory
+     * @param persistentStore The EventStore where the events are spilled
+     */
+    public MemoryEventStore(int capacity, @NonNull EventStore persistentStore) {
+        this.ring = new Payload[Math.max(capacity, 1)];
+        this.persistentStore = persistentStore;
+    }
+
+    @Override
+    public synchronized void add(@NonNull Payload payload) {
+        if (head - tail == ring.length) {
+            Logger.d(TAG, "Memory buffer full: spilling the events.");
+            spill();
+        }
+        ring[slot(head)] = payload;
+        head++;
+        memoryEventCount++;
+    }
+
+    @Override
+    public synchronized boolean removeEvent(long id) {
+        if (id >= 0) {
+            return persistentStore.removeEvent(id);
+        }
+        long sequence = -id - 1;
+        if (sequence < tail || sequence >= head || ring[slot(sequence)] == null) {
+            return false;
+        }
+        ring[slot(sequence)] = null;
+        memoryEventCount--;
+        while (tail < head && ring[slot(tail)] == null) {
+            tail++;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean removeEvents(@NonNull List<Long> ids) {
+        if (ids.isEmpty()) {
+            return false;
+        }
+        List<Long> persistentIds = new ArrayList<>();
+        boolean result = true;
+        for (long id : ids) {
+            if (id >= 0) {
+                persistentIds.add(id);
+            } else if (!removeEvent(id)) {
+                result = false;
+            }
+        }
+        if (!persistentIds.isEmpty() && !persistentStore.removeEvents(persistentIds)) {
+            result = false;
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean removeAllEvents() {
+        leases.clear();
+        clearRing();
+        return persistentStore.removeAllEvents();
+    }
+
+    @Override
+    public synchronized long getSize() {
+        return memoryEventCount + persistentStore.getSize();
+    }
+
+    /**
+     * Returns the events spilled to the persistent store first,
+     * as they are older than the events in memory.
+     */
+    @NonNull
+    @Override
+    public synchronized List<EmitterEvent> getEmittableEvents(int queryLimit) {
+        List<EmitterEvent> events = new ArrayList<>();
+        if (persistentStore.getSize() > 0) {
+            events.addAll(persistentStore.getEmittableEvents(queryLimit));
+        }
+        for (long sequence = tail; sequence < head && events.size() < queryLimit; sequence++) {
+            Payload payload = ring[slot(sequence)];
+            if (payload != null) {
+                events.add(new EmitterEvent(payload, -sequence - 1));
+            }
+        }
+        return events;
+    }
+
+    @NonNull
+    @Override
+    public synchronized List<EmitterEvent> lease(int limit, long leaseDuration) {
+        leases.removeExpired();
+        // The leased events can't be skipped by the read so we read them in excess
+        return leases.lease(getEmittableEvents(limit + leases.size()), limit, leaseDuration);
+    }
+
+    @Override
+    public synchronized boolean ack(@NonNull List<Long> ids) {
+        leases.release(ids);
+        return removeEvents(ids);
+    }
+
+    @Override
+    public synchronized void release(@NonNull List<Long> ids) {
+        leases.release(ids);
+    }
+
+    /**
+     * Moves the events in memory to the persistent store.
+     */
+    public synchronized void spill() {
+        if (memoryEventCount == 0) {
+            return;
+        }
+        Logger.d(TAG, "Spilling %s events to the persistent store.", memoryEventCount);
+        List<Long> spilledEventIds = new ArrayList<>();
+        for (long sequence = tail; sequence < head; sequence++) {
+            Payload payload = ring[slot(sequence)];
+            if (payload != null) {
+                persistentStore.add(payload);
+                spilledEventIds.add(-sequence - 1);
+            }
+        }
+        // The spilled events get new ids so their leases are useless
+        leases.release(spilledEventIds);
+        clearRing();
+    }
+
+    /**
+     * Moves the events in memory to the persistent store on a background thread.
+     * The memory pressure and the app lifecycle are notified on the main thread,
+     * which mustn't wait for the writes to the persistent store.
+     */
+    public void spillInBackground() {
+        synchronized (backgroundLock) {
+            if (spillExecutor == null) {
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+                executor.allowCoreThreadTimeOut(true);
+                spillExecutor = executor;
+            }
+            try {
+                spillExecutor.execute(this::spill);
+            } catch (RejectedExecutionException e) {
+                Logger.e(TAG, "Unable to spill the events: %s", e.toString());
+            }
+        }
+    }
+
+    /**
+     * Spills the events in memory on a background thread and stops observing
+     * the memory pressure and the app lifecycle, so that the store can be
+     * garbage collected.
+     * The events added afterwards are only spilled when the ring buffer is full.
+     */
+    public void close() {
+        Context context;
+        synchronized (backgroundLock) {
+            context = applicationContext;
+            applicationContext = null;
+        }
+        if (context != null) {
+            context.unregisterComponentCallbacks(this);
+        }
+        NotificationCenter.removeObserver(receiveLifecycleNotification);
+        spillInBackground();
+        synchronized (backgroundLock) {
+            if (spillExecutor != null) {
+                // The spill already queued is still executed
+                spillExecutor.shutdown();
+                spillExecutor = null;
+            }
+        }
+    }
+
+    /**
+     * @return the number of events kept in memory
+     */
+    public synchronized int getMemoryEventCount() {
+        return memoryEventCount;
+    }
+
+    /**
+     * @return the EventStore where the events are spilled
+     */
+    @NonNull
+    public EventStore getPersistentStore() {
+        return persistentStore;
+    }
+
+    // ComponentCallbacks2
+
+    @Override
+    public void onTrimMemory(int level) {
+        // The app is in background or the system is running low on memory
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            spillInBackground();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        spillInBackground();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    // Private methods
+
+    private void clearRing() {
+        for (long sequence = tail; sequence < head; sequence++) {
+            ring[slot(sequence)] = null;
+        }
+        tail = head;
+        memoryEventCount = 0;
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % ring.length);
+    }
+}
@@ -17,7 +17,9 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -27,13 +29,20 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.snowplowanalytics.snowplow.emitter.EventStore;
+import com.snowplowanalytics.snowplow.emitter.LeasingEventStore;
 import com.snowplowanalytics.snowplow.internal.emitter.Executor;
+import com.snowplowanalytics.snowplow.internal.emitter.ExecutorGroup;
 import com.snowplowanalytics.snowplow.emitter.EmitterEvent;
 import com.snowplowanalytics.snowplow.payload.Payload;
 import com.snowplowanalytics.snowplow.internal.tracker.Logger;
-import com.snowplowanalytics.snowplow.payload.TrackerPayload;
 import com.snowplowanalytics.snowplow.internal.utils.Util;
 
 /**
@@ -44,11 +53,57 @@ import com.snowplowanalytics.snowplow.internal.utils.Util;
  * The events added to the store are placed in a
  * temporary list meanwhile the database is not
  * yet ready.
+ * Once the database is open, the events added in
+ * a short time window are inserted together in a
+ * single transaction (group commit).
+ * The number of events in the database is counted
+ * once at opening and then kept up to date in memory.
+ * The events are emitted oldest first, paging through
+ * the primary key: the leases continue after the last
+ * event leased.
+ * Optionally, the store can be bounded by number of events,
+ * size of the database and age of the events: the oldest
+ * events are evicted in small chunks on the store I/O thread.
+ * The failed sending attempts are counted per event and the
+ * events that can't be sent are moved to a dead-letter table,
+ * so that they don't block the queue.
  */
-public class SQLiteEventStore implements EventStore {
+public class SQLiteEventStore implements LeasingEventStore {
     private final static String TAG = SQLiteEventStore.class.getSimpleName();
 
+    /** Default maximum number of events inserted in a single transaction. */
+    public static final int DEFAULT_GROUP_COMMIT_MAX_EVENTS = 100;
+    /** Default time (in milliseconds) an event can wait for other events before being inserted. */
+    public static final long DEFAULT_GROUP_COMMIT_WINDOW = 10;
+
+    /** Maximum number of events removed by a single eviction pass. */
+    private static final int EVICTION_CHUNK_SIZE = 500;
+    /** Maximum number of free pages released by a single incremental vacuum. */
+    private static final int VACUUM_CHUNK_PAGES = 256;
+    /** Maximum size of a legacy database switched to incremental vacuum, the switch rewrites the whole file. */
+    private static final long MAX_VACUUM_SWITCH_BYTES = 1024 * 1024;
+    /** Maximum number of events kept in the dead-letter table, the oldest are dropped. */
+    private static final int MAX_DEAD_EVENTS = 1000;
+
     private final List<Payload> payloadWaitingList = new ArrayList<>();
+    private final List<Payload> pendingPayloads = new ArrayList<>();
+    private final Object insertLock = new Object();
+    private SQLiteStatement insertStatement;
+    private boolean isCommitScheduled = false;
+    private int groupCommitMaxEvents = DEFAULT_GROUP_COMMIT_MAX_EVENTS;
+    private long groupCommitWindow = DEFAULT_GROUP_COMMIT_WINDOW;
+    private long maxEventCount = 0;
+    private long maxDatabaseBytes = 0;
+    private long maxEventAge = 0;
+    private boolean isEvictionDue = false;
+    private boolean isIncrementalVacuumEnabled = false;
+    private final AtomicLong evictedEventCount = new AtomicLong();
+    private final EventLeases leases = new EventLeases();
+    private long leaseCursor = -1; // Last event leased, guarded by leases
+    @Nullable
+    private final ExecutorGroup executorGroup;
+    @Nullable
+    private ScheduledExecutorService commitExecutor; // Used when the store has no executor group
 
     private final String namespace;
     private SQLiteDatabase database;
@@ -58,7 +113,12 @@ public class SQLiteEventStore implements EventStore {
             EventStoreHelper.COLUMN_EVENT_DATA,
             EventStoreHelper.COLUMN_DATE_CREATED
     };
+    private static final String queryEmittableEvents = "SELECT " + EventStoreHelper.COLUMN_ID
+            + ", " + EventStoreHelper.COLUMN_EVENT_DATA + " FROM " + EventStoreHelper.TABLE_EVENTS
+            + " WHERE " + EventStoreHelper.COLUMN_ID + " > ? ORDER BY " + EventStoreHelper.COLUMN_ID
+            + " LIMIT ?";
     private long lastInsertedRowId = -1;
+    private final AtomicLong databaseEventCount = new AtomicLong();
 
     @NonNull
     public static List<String> removeUnsentEventsExceptForNamespaces(@NonNull Context context, @Nullable List<String> allowedNamespaces) {
@@ -72,12 +132,37 @@ public class SQLiteEventStore implements EventStore {
      */
     public SQLiteEventStore(@NonNull Context context, @NonNull String namespace) {
         this.namespace = namespace;
-        Executor.futureCallable((Callable<Void>) () -> {
+        this.executorGroup = null;
+        Executor.futureCallable(makeOpenCallable(context, namespace));
+    }
+
+    /**
+     * Creates a new Event Store running the database I/O,
+     * the group commits included, on the event store pool of the group.
+     *
+     * @param context The android context object
+     * @param namespace The namespace of the tracker
+     * @param executorGroup The executors of the tracker
+     */
+    public SQLiteEventStore(@NonNull Context context, @NonNull String namespace, @NonNull ExecutorGroup executorGroup) {
+        this.namespace = namespace;
+        this.executorGroup = executorGroup;
+        executorGroup.getEventStoreExecutor().submit(makeOpenCallable(context, namespace));
+    }
+
+    @NonNull
+    private Callable<Void> makeOpenCallable(@NonNull Context context, @NonNull String namespace) {
+        return () -> {
             dbHelper = EventStoreHelper.getInstance(context, namespace);
             open();
             Logger.d(TAG, "DB Path: %s", database.getPath());
+            // The events stored while offline can be already over the limits
+            int evicted;
+            do {
+                evicted = evictEvents();
+            } while (evicted > 0);
             return null;
-        });
+        };
     }
 
     @Override
@@ -88,8 +173,175 @@ public class SQLiteEventStore implements EventStore {
             }
         } else {
             insertWaitingEventsIfReady();
-            insertEvent(payload);
+            boolean commitNow;
+            boolean scheduleCommit = false;
+            synchronized (this) {
+                pendingPayloads.add(payload);
+                commitNow = pendingPayloads.size() >= groupCommitMaxEvents;
+                if (!commitNow && !isCommitScheduled) {
+                    isCommitScheduled = true;
+                    scheduleCommit = true;
+                }
+            }
+            if (commitNow) {
+                insertPendingEvents();
+            } else if (scheduleCommit) {
+                if (scheduleCommit() == null) {
+                    commitScheduledEvents();
+                }
+            }
+            evictEventsIfDue();
+        }
+    }
+
+    /**
+     * Sets the limits of the group commit.
+     * The events added to the store are inserted in a single transaction
+     * when they reach the maximum number or when the time window expires.
+     * A maximum number of 1 inserts every event straight away.
+     *
+     * @param maxEvents maximum number of events inserted in a single transaction
+     * @param window maximum time (in milliseconds) an event can wait before being inserted
+     */
+    public void setGroupCommitLimits(int maxEvents, long window) {
+        synchronized (this) {
+            groupCommitMaxEvents = Math.max(maxEvents, 1);
+            groupCommitWindow = Math.max(window, 0);
+        }
+    }
+
+    /**
+     * Sets the limits of the store.
+     * When the store exceeds any of the limits the oldest events are evicted.
+     * The eviction runs in chunks after the events are added to the store,
+     * so that it never blocks the store for long.
+     * A limit of 0 disables the corresponding check.
+     *
+     * @param maxEvents maximum number of events in the database
+     * @param maxBytes maximum size (in bytes) of the database
+     * @param maxAge maximum age (in seconds) of the events in the database
+     */
+    public void setEvictionLimits(long maxEvents, long maxBytes, long maxAge) {
+        synchronized (this) {
+            maxEventCount = Math.max(maxEvents, 0);
+            maxDatabaseBytes = Math.max(maxBytes, 0);
+            maxEventAge = Math.max(maxAge, 0);
+            isEvictionDue = true;
+        }
+    }
+
+    /**
+     * Returns the number of events dropped from the store
+     * because of the eviction limits.
+     *
+     * @return the count of evicted events
+     */
+    public long getEvictedEventCount() {
+        return evictedEventCount.get();
+    }
+
+    /**
+     * Records a failed sending attempt of the events and moves to the
+     * dead-letter table the events that reached the maximum number of attempts.
+     *
+     * @param ids the events that failed to be sent
+     * @param statusCode the response code of the attempt, -1 if there was no response
+     * @param maxAttempts the maximum number of attempts of an event, 1 moves the events
+     *                    to the dead-letter table straight away, 0 is no limit
+     * @return the number of events moved to the dead-letter table
+     */
+    public int recordFailedAttempt(@NonNull List<Long> ids, int statusCode, int maxAttempts) {
+        if (ids.isEmpty() || !isDatabaseOpen()) {
+            return 0;
+        }
+        String selection = EventStoreHelper.COLUMN_ID + " IN (" + Util.joinLongList(ids) + ")";
+        database.execSQL("UPDATE " + EventStoreHelper.TABLE_EVENTS + " SET "
+                + EventStoreHelper.COLUMN_ATTEMPTS + " = " + EventStoreHelper.COLUMN_ATTEMPTS + " + 1, "
+                + EventStoreHelper.COLUMN_LAST_ATTEMPT + " = CURRENT_TIMESTAMP WHERE " + selection);
+        if (maxAttempts <= 0) {
+            return 0;
+        }
+        return moveToDeadEvents(selection + " AND " + EventStoreHelper.COLUMN_ATTEMPTS + " >= " + maxAttempts, statusCode);
+    }
+
+    /**
+     * Returns the number of events in the dead-letter table:
+     * the events rejected by the collector or exceeding the maximum
+     * number of attempts.
+     *
+     * @return the count of dead events
+     */
+    public long getDeadEventCount() {
+        if (!isDatabaseOpen()) {
+            return 0;
+        }
+        return DatabaseUtils.queryNumEntries(database, EventStoreHelper.TABLE_DEAD_EVENTS);
+    }
+
+    /**
+     * Removes all the events from the dead-letter table.
+     *
+     * @return the number of events removed
+     */
+    public int removeAllDeadEvents() {
+        if (!isDatabaseOpen()) {
+            return 0;
+        }
+        return database.delete(EventStoreHelper.TABLE_DEAD_EVENTS, null, null);
+    }
+
+    /**
+     * Evicts a chunk of the oldest events exceeding the limits of the store
+     * and releases part of the free space of the database.
+     * It's called on the store I/O thread after the events are added,
+     * it can be called again while it returns a positive count.
+     *
+     * @return the number of events evicted
+     */
+    public int evictEvents() {
+        long maxEvents;
+        long maxBytes;
+        long maxAge;
+        synchronized (this) {
+            isEvictionDue = false;
+            maxEvents = maxEventCount;
+            maxBytes = maxDatabaseBytes;
+            maxAge = maxEventAge;
+        }
+        if (!isDatabaseOpen() || (maxEvents == 0 && maxBytes == 0 && maxAge == 0)) {
+            return 0;
+        }
+        int evicted = 0;
+        if (maxAge > 0) {
+            evicted += removeOldestEvents(EventStoreHelper.COLUMN_DATE_CREATED + " < datetime('now', ?)",
+                    new String[]{"-" + maxAge + " seconds"}, EVICTION_CHUNK_SIZE);
         }
+        if (maxEvents > 0) {
+            long excess = databaseEventCount.get() - maxEvents;
+            if (excess > 0) {
+                evicted += removeOldestEvents(null, null, (int) Math.min(excess, EVICTION_CHUNK_SIZE));
+            }
+        }
+        if (maxBytes > 0 && evicted < EVICTION_CHUNK_SIZE) {
+            long usedBytes = getDatabaseUsedBytes();
+            long count = databaseEventCount.get();
+            if (usedBytes > maxBytes && count > 0) {
+                // The events to evict are estimated on the average size of an event
+                long eventBytes = Math.max(usedBytes / count, 1);
+                long excess = (usedBytes - maxBytes + eventBytes - 1) / eventBytes;
+                evicted += removeOldestEvents(null, null, (int) Math.min(excess, EVICTION_CHUNK_SIZE - evicted));
+            }
+        }
+        if (evicted > 0) {
+            evictedEventCount.addAndGet(evicted);
+            Logger.d(TAG, "Evicted %s events exceeding the store limits.", evicted);
+            releaseFreeSpace();
+            synchronized (this) {
+                // Check again with the next events, the store can still be over the limits
+                isEvictionDue = true;
+            }
+        }
+        return evicted;
     }
 
     /**
@@ -98,15 +350,43 @@ public class SQLiteEventStore implements EventStore {
      */
     public void open() {
         if (!isDatabaseOpen()) {
-            database = dbHelper.getWritableDatabase();
-            database.enableWriteAheadLogging();
+            SQLiteDatabase db = dbHelper.getWritableDatabase();
+            try {
+                isIncrementalVacuumEnabled = EventStoreHelper.enableIncrementalVacuum(db, MAX_VACUUM_SWITCH_BYTES);
+            } catch (SQLException e) {
+                Logger.e(TAG, "Unable to enable the incremental vacuum: %s", e.toString());
+            }
+            db.enableWriteAheadLogging();
+            // The count is reconciled before the store starts using the database
+            databaseEventCount.set(DatabaseUtils.queryNumEntries(db, EventStoreHelper.TABLE_EVENTS));
+            database = db;
         }
     }
 
+    /**
+     * Inserts straight away the events waiting for the group commit.
+     */
+    public void commitPendingEvents() {
+        insertPendingEvents();
+    }
+
     /**
      * Closes the database
      */
     public void close() {
+        insertPendingEvents();
+        synchronized (this) {
+            if (commitExecutor != null) {
+                commitExecutor.shutdown();
+                commitExecutor = null;
+            }
+        }
+        synchronized (insertLock) {
+            if (insertStatement != null) {
+                insertStatement.close();
+                insertStatement = null;
+            }
+        }
         dbHelper.close();
         EventStoreHelper.removeInstance(namespace);
     }
@@ -119,13 +399,16 @@ public class SQLiteEventStore implements EventStore {
      * @return a boolean stating if the insert
      * was a success or not
      */
-    @SuppressWarnings("unchecked")
     public long insertEvent(@NonNull Payload payload) {
         if (isDatabaseOpen()) {
-            byte[] bytes = Util.serialize(payload.getMap());
+            byte[] bytes = Util.serializePayload(payload);
             ContentValues values = new ContentValues(2);
             values.put(EventStoreHelper.COLUMN_EVENT_DATA, bytes);
             lastInsertedRowId = database.insert(EventStoreHelper.TABLE_EVENTS, null, values);
+            if (lastInsertedRowId != -1) {
+                databaseEventCount.incrementAndGet();
+                checkEvictionLimits();
+            }
         }
         Logger.d(TAG, "Added event to database: %s", lastInsertedRowId);
         return lastInsertedRowId;
@@ -137,6 +420,9 @@ public class SQLiteEventStore implements EventStore {
         if (isDatabaseOpen()) {
             retval = database.delete(EventStoreHelper.TABLE_EVENTS,
                     EventStoreHelper.COLUMN_ID + "=" + id, null);
+            if (retval > 0) {
+                databaseEventCount.addAndGet(-retval);
+            }
         }
         Logger.d(TAG, "Removed event from database: %s", "" + id);
         return retval == 1;
@@ -152,6 +438,9 @@ public class SQLiteEventStore implements EventStore {
         if (isDatabaseOpen()) {
             retval = database.delete(EventStoreHelper.TABLE_EVENTS,
                     EventStoreHelper.COLUMN_ID + " in (" + (Util.joinLongList(ids)) + ")", null);
+            if (retval > 0) {
+                databaseEventCount.addAndGet(-retval);
+            }
         }
         Logger.d(TAG, "Removed events from database: %s", retval);
         return retval == ids.size();
@@ -159,15 +448,28 @@ public class SQLiteEventStore implements EventStore {
 
     @Override
     public boolean removeAllEvents() {
+        synchronized (leases) {
+            leases.clear();
+            leaseCursor = -1;
+        }
         int retval = 0;
         Logger.d(TAG, "Removing all events from database.");
+        synchronized (this) {
+            retval += pendingPayloads.size();
+            pendingPayloads.clear();
+        }
         if (isDatabaseOpen()) {
-            retval = database.delete(EventStoreHelper.TABLE_EVENTS, null, null);
+            synchronized (insertLock) {
+                retval += database.delete(EventStoreHelper.TABLE_EVENTS, null, null);
+                databaseEventCount.set(0);
+            }
         } else {
             Logger.e(TAG, "Database is not open.");
         }
-        retval += payloadWaitingList.size();
-        payloadWaitingList.clear();
+        synchronized (this) {
+            retval += payloadWaitingList.size();
+            payloadWaitingList.clear();
+        }
         return retval >= 0;
     }
 
@@ -185,6 +487,7 @@ public class SQLiteEventStore implements EventStore {
     private List<Map<String, Object>> queryDatabase(String query, String orderBy) {
         List<Map<String, Object>> res = new ArrayList<>();
         if (isDatabaseOpen()) {
+            insertPendingEvents();
             Cursor cursor = null;
             try {
                 cursor = database.query(EventStoreHelper.TABLE_EVENTS, allColumns, query, null, null, null, orderBy);
@@ -209,13 +512,16 @@ public class SQLiteEventStore implements EventStore {
 
     // Getters
 
+    /**
+     * Returns the number of events in the store, including the ones
+     * not yet inserted in the database, without querying the database.
+     *
+     * @return the count of events in the store
+     */
     @Override
     public long getSize() {
-        if (isDatabaseOpen()) {
-            insertWaitingEventsIfReady();
-            return DatabaseUtils.queryNumEntries(database, EventStoreHelper.TABLE_EVENTS);
-        } else {
-            return payloadWaitingList.size();
+        synchronized (this) {
+            return databaseEventCount.get() + pendingPayloads.size() + payloadWaitingList.size();
         }
     }
 
@@ -229,35 +535,124 @@ public class SQLiteEventStore implements EventStore {
         return lastInsertedRowId;
     }
 
+    /**
+     * Returns the oldest events in the store.
+     *
+     * @param queryLimit the maximum number of events to return
+     * @return the events ordered from the oldest to the newest
+     */
     @NonNull
     @Override
     public List<EmitterEvent> getEmittableEvents(int queryLimit) {
+        return getEmittableEvents(queryLimit, -1);
+    }
+
+    /**
+     * Returns the oldest events stored after a given event.
+     * The events are paged through the primary key (keyset pagination)
+     * so the events already read are not scanned again.
+     *
+     * @param queryLimit the maximum number of events to return
+     * @param afterId the id of the last event already read, or -1 to
+     *                start from the oldest event
+     * @return the events ordered from the oldest to the newest
+     */
+    @NonNull
+    public List<EmitterEvent> getEmittableEvents(int queryLimit, long afterId) {
         if (!isDatabaseOpen()) {
             return Collections.emptyList();
         }
         insertWaitingEventsIfReady();
 
+        insertPendingEvents();
+
+        // The events are read as the JSON to send, without building the intermediate maps
         ArrayList<EmitterEvent> events = new ArrayList<>();
+        List<Long> corruptedEventIds = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            // The statement doesn't change between pages so it's compiled only once by SQLite
+            cursor = database.rawQuery(queryEmittableEvents,
+                    new String[]{String.valueOf(afterId), String.valueOf(queryLimit)});
+            while (cursor.moveToNext()) {
+                long eventId = cursor.getLong(0);
+                Payload payload = Util.deserializePayload(cursor.getBlob(1));
+                if (payload == null) {
+                    Logger.e(TAG, "Unable to decode the event with ID: %s", eventId);
+                    corruptedEventIds.add(eventId);
+                    continue;
+                }
+                events.add(new EmitterEvent(payload, eventId));
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        if (!corruptedEventIds.isEmpty()) {
+            removeEvents(corruptedEventIds);
+        }
+        return events;
+    }
 
-        // FIFO Pattern for sending events
-        for (Map<String, Object> eventMetadata : getDescEventsInRange(queryLimit)) {
+    /**
+     * Leases the oldest events not already leased.
+     * The events are read after the last event leased (keyset pagination)
+     * while that returns a full batch. Otherwise, or when some events have been
+     * released or their lease has expired, they are read from the oldest event.
+     *
+     * @param limit the maximum number of events to lease
+     * @param leaseDuration the duration (in milliseconds) of the lease
+     * @return the leased events
+     */
+    @NonNull
+    @Override
+    public List<EmitterEvent> lease(int limit, long leaseDuration) {
+        synchronized (leases) {
+            if (leases.removeExpired()) {
+                leaseCursor = -1;
+            }
+            List<EmitterEvent> leasedEvents = null;
+            if (leaseCursor >= 0) {
+                leasedEvents = leases.lease(getEmittableEvents(limit, leaseCursor), limit, leaseDuration);
+                if (leasedEvents.size() < limit) {
+                    List<Long> ids = new ArrayList<>();
+                    for (EmitterEvent event : leasedEvents) {
+                        ids.add(event.eventId);
+                    }
+                    leases.release(ids);
+                    leasedEvents = null;
+                }
+            }
+            if (leasedEvents == null) {
+                // The leased events can't be filtered out by the query so we read them in excess
+                List<EmitterEvent> events = getEmittableEvents(limit + leases.size(), -1);
+                leasedEvents = leases.lease(events, limit, leaseDuration);
+            }
+            if (!leasedEvents.isEmpty()) {
+                leaseCursor = leasedEvents.get(leasedEvents.size() - 1).eventId;
+            }
+            return leasedEvents;
+        }
+    }
 
-            // Create a TrackerPayload for each event
-            TrackerPayload payload = new TrackerPayload();
-            Map<String, Object> eventData = (Map<String, Object>)
-                    eventMetadata.get(EventStoreHelper.METADATA_EVENT_DATA);
-            payload.addMap(eventData);
+    @Override
+    public boolean ack(@NonNull List<Long> ids) {
+        // The events are removed before the leases, so that no lease can pick them in between
+        synchronized (leases) {
+            boolean isRemoved = removeEvents(ids);
+            leases.release(ids);
+            return isRemoved;
+        }
+    }
 
-            // Create EmitterEvent
-            Long eventId = (Long) eventMetadata.get(EventStoreHelper.METADATA_ID);
-            if (eventId == null) {
-                Logger.e(TAG, "Unable to get ID of an event extracted from the database.");
-                continue;
-            }
-            EmitterEvent event = new EmitterEvent(payload, eventId);
-            events.add(event);
+    @Override
+    public void release(@NonNull List<Long> ids) {
+        synchronized (leases) {
+            leases.release(ids);
+            // The released events are leased again from the oldest one
+            leaseCursor = -1;
         }
-        return events;
     }
 
     /**
@@ -312,14 +707,248 @@ public class SQLiteEventStore implements EventStore {
         return database != null && database.isOpen();
     }
 
+    /**
+     * Removes the oldest events matching a selection.
+     *
+     * @param selection the filter of the events, null to select all the events
+     * @param selectionArgs the arguments of the selection
+     * @param limit the maximum number of events to remove
+     * @return the number of events removed
+     */
+    private int removeOldestEvents(@Nullable String selection, @Nullable String[] selectionArgs, int limit) {
+        if (limit <= 0) {
+            return 0;
+        }
+        String subquery = "SELECT " + EventStoreHelper.COLUMN_ID + " FROM " + EventStoreHelper.TABLE_EVENTS
+                + (selection != null ? " WHERE " + selection : "")
+                + " ORDER BY " + EventStoreHelper.COLUMN_ID + " LIMIT " + limit;
+        int removed = database.delete(EventStoreHelper.TABLE_EVENTS,
+                EventStoreHelper.COLUMN_ID + " IN (" + subquery + ")", selectionArgs);
+        if (removed > 0) {
+            databaseEventCount.addAndGet(-removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Moves the selected events to the dead-letter table, dropping the
+     * oldest dead events over the maximum size of the table.
+     *
+     * @param selection the events to move
+     * @param statusCode the response code of the last attempt
+     * @return the number of events moved
+     */
+    private int moveToDeadEvents(@NonNull String selection, int statusCode) {
+        int moved;
+        database.beginTransaction();
+        try {
+            database.execSQL("INSERT INTO " + EventStoreHelper.TABLE_DEAD_EVENTS + " ("
+                    + EventStoreHelper.COLUMN_EVENT_ID + ", " + EventStoreHelper.COLUMN_EVENT_DATA + ", "
+                    + EventStoreHelper.COLUMN_DATE_CREATED + ", " + EventStoreHelper.COLUMN_ATTEMPTS + ", "
+                    + EventStoreHelper.COLUMN_STATUS_CODE + ") SELECT "
+                    + EventStoreHelper.COLUMN_ID + ", " + EventStoreHelper.COLUMN_EVENT_DATA + ", "
+                    + EventStoreHelper.COLUMN_DATE_CREATED + ", " + EventStoreHelper.COLUMN_ATTEMPTS + ", "
+                    + statusCode + " FROM " + EventStoreHelper.TABLE_EVENTS + " WHERE " + selection);
+            moved = database.delete(EventStoreHelper.TABLE_EVENTS, selection, null);
+            if (moved > 0) {
+                database.execSQL("DELETE FROM " + EventStoreHelper.TABLE_DEAD_EVENTS + " WHERE "
+                        + EventStoreHelper.COLUMN_ID + " <= (SELECT MAX(" + EventStoreHelper.COLUMN_ID + ") FROM "
+                        + EventStoreHelper.TABLE_DEAD_EVENTS + ") - " + MAX_DEAD_EVENTS);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        if (moved > 0) {
+            databaseEventCount.addAndGet(-moved);
+            Logger.e(TAG, "Moved %s events to the dead-letter table (status code: %s).", moved, statusCode);
+        }
+        return moved;
+    }
+
+    /**
+     * Returns the bytes of the database in use, without the free pages.
+     *
+     * @return the size of the used pages of the database
+     */
+    private long getDatabaseUsedBytes() {
+        long pageCount = DatabaseUtils.longForQuery(database, "PRAGMA page_count", null);
+        long freePageCount = DatabaseUtils.longForQuery(database, "PRAGMA freelist_count", null);
+        return (pageCount - freePageCount) * database.getPageSize();
+    }
+
+    /**
+     * Returns the free pages of the database to the file system.
+     * The legacy databases too large to be switched to incremental vacuum
+     * keep their free pages, which are reused by the next inserts.
+     */
+    private void releaseFreeSpace() {
+        if (isIncrementalVacuumEnabled) {
+            vacuumIncrementally();
+        }
+    }
+
+    /**
+     * Returns a chunk of the free pages of the database to the file system.
+     */
+    private void vacuumIncrementally() {
+        // The pragma releases a page per step so the cursor has to be fully iterated
+        Cursor cursor = null;
+        try {
+            cursor = database.rawQuery("PRAGMA incremental_vacuum(" + VACUUM_CHUNK_PAGES + ")", null);
+            while (cursor.moveToNext()) {
+                // Nothing to read
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
     private void insertWaitingEventsIfReady() {
         if (isDatabaseOpen() && payloadWaitingList.size() > 0) {
+            synchronized (insertLock) {
+                List<Payload> payloads;
+                synchronized (this) {
+                    payloads = new ArrayList<>(payloadWaitingList);
+                    payloadWaitingList.clear();
+                    databaseEventCount.addAndGet(payloads.size());
+                }
+                insertCountedEvents(payloads);
+            }
+        }
+    }
+
+    @Nullable
+    private ScheduledFuture<?> scheduleCommit() {
+        long window;
+        synchronized (this) {
+            window = groupCommitWindow;
+        }
+        if (executorGroup != null) {
+            return executorGroup.scheduleEventStore(TAG, this::commitScheduledEvents, window, TimeUnit.MILLISECONDS);
+        }
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            if (commitExecutor == null) {
+                ScheduledThreadPoolExecutor scheduledExecutor = new ScheduledThreadPoolExecutor(1);
+                scheduledExecutor.setKeepAliveTime(30, TimeUnit.SECONDS);
+                scheduledExecutor.allowCoreThreadTimeOut(true);
+                commitExecutor = scheduledExecutor;
+            }
+            executor = commitExecutor;
+        }
+        try {
+            return executor.schedule(this::commitScheduledEvents, window, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            Logger.e(TAG, "Unable to schedule the group commit: %s", e.toString());
+            return null;
+        }
+    }
+
+    private void commitScheduledEvents() {
+        synchronized (this) {
+            isCommitScheduled = false;
+        }
+        insertPendingEvents();
+        evictEventsIfDue();
+    }
+
+    private void evictEventsIfDue() {
+        boolean evictNow;
+        synchronized (this) {
+            evictNow = isEvictionDue;
+        }
+        if (evictNow) {
+            evictEvents();
+        }
+    }
+
+    /**
+     * Flags the eviction when the inserted events can take the store over its limits.
+     * The count limit is checked in memory, the size and age limits on every commit.
+     */
+    private void checkEvictionLimits() {
+        synchronized (this) {
+            if ((maxEventCount > 0 && databaseEventCount.get() > maxEventCount)
+                    || maxDatabaseBytes > 0 || maxEventAge > 0) {
+                isEvictionDue = true;
+            }
+        }
+    }
+
+    /**
+     * Inserts the events waiting for the group commit.
+     */
+    private void insertPendingEvents() {
+        synchronized (insertLock) {
+            List<Payload> payloads;
             synchronized (this) {
-                for (Payload p : payloadWaitingList) {
-                    insertEvent(p);
+                if (pendingPayloads.isEmpty()) {
+                    return;
+                }
+                payloads = new ArrayList<>(pendingPayloads);
+                pendingPayloads.clear();
+                databaseEventCount.addAndGet(payloads.size());
+            }
+            insertCountedEvents(payloads);
+        }
+    }
+
+    /**
+     * Inserts a list of payloads already counted in the database events,
+     * correcting the count if some of them are not inserted.
+     * It has to be called holding the insertLock.
+     *
+     * @param payloads the event payloads to be stored
+     */
+    private void insertCountedEvents(@NonNull List<Payload> payloads) {
+        int insertedCount = 0;
+        try {
+            insertedCount = insertEvents(payloads);
+        } finally {
+            databaseEventCount.addAndGet(insertedCount - payloads.size());
+        }
+        checkEvictionLimits();
+    }
+
+    /**
+     * Inserts a list of payloads in a single transaction
+     * using a precompiled statement.
+     * It has to be called holding the insertLock.
+     *
+     * @param payloads the event payloads to be stored
+     * @return the number of events inserted
+     */
+    private int insertEvents(@NonNull List<Payload> payloads) {
+        if (!isDatabaseOpen() || payloads.isEmpty()) {
+            return 0;
+        }
+        List<byte[]> rows = new ArrayList<>(payloads.size());
+        for (Payload payload : payloads) {
+            rows.add(Util.serializePayload(payload));
+        }
+        if (insertStatement == null) {
+            insertStatement = database.compileStatement("INSERT INTO " + EventStoreHelper.TABLE_EVENTS
+                    + " (" + EventStoreHelper.COLUMN_EVENT_DATA + ") VALUES (?)");
+        }
+        int insertedCount = 0;
+        database.beginTransactionNonExclusive();
+        try {
+            for (byte[] row : rows) {
+                insertStatement.bindBlob(1, row);
+                lastInsertedRowId = insertStatement.executeInsert();
+                if (lastInsertedRowId != -1) {
+                    insertedCount++;
                 }
-                payloadWaitingList.clear();
             }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            insertStatement.clearBindings();
         }
+        Logger.d(TAG, "Added %s events to database, last one: %s", rows.size(), lastInsertedRowId);
+        return insertedCount;
     }
 }
\ No newline at end of file
@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.tracker;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import com.snowplowanalytics.snowplow.emitter.RejectionPolicy;
+import com.snowplowanalytics.snowplow.emitter.WaitStrategy;
+import com.snowplowanalytics.snowplow.event.Event;
+import com.snowplowanalytics.snowplow.internal.utils.Util;
+import com.snowplowanalytics.snowplow.payload.Payload;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Event pipeline built on a preallocated ring buffer of reusable slots.
+ * The threads calling `track` claim a sequence, fill the slot and publish it.
+ * Two stages, each on its own thread, follow the sequences:
+ * - enrichment: the event is processed (states, contexts, session) and serialized to a payload;
+ * - store append: the payloads are appended to the EventStore.
+ * Each stage processes all the slots available at once and publishes its progress
+ * once per batch, so the stages exchange batches of events rather than single ones.
+ * The behaviour of the producers when the ring buffer is full is set by the RejectionPolicy.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public class RingBufferPipeline {
+    private final static String TAG = RingBufferPipeline.class.getSimpleName();
+
+    // Maximum number of events processed by the enrichment stage before publishing its progress
+    private static final int MAX_BATCH_SIZE = 64;
+    // Wait (in nanoseconds) of a producer on a full ring buffer before checking it again
+    private static final long PRODUCER_WAIT = 1_000;
+
+    /**
+     * Handler of the work of the stages.
+     */
+    public interface Handler {
+        /**
+         * Called on the enrichment stage thread.
+         *
+         * @param event the tracked event
+         * @return the payload of the event, null if the event can't be processed
+         */
+        @Nullable
+        Payload enrich(@NonNull Event event);
+
+        /**
+         * Called on the store append stage thread.
+         *
+         * @param payloads the batch of payloads to store
+         */
+        void append(@NonNull List<Payload> payloads);
+    }
+
+    private static final class Slot {
+        Event event;
+        Payload payload;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final AtomicLong enrichmentSequence = new AtomicLong(-1);
+    private final AtomicLong appendSequence = new AtomicLong(-1);
+    private final Waiter enrichmentWaiter;
+    private final Waiter appendWaiter;
+    private final Handler handler;
+    private final RejectionPolicy rejectionPolicy;
+    private final Thread enrichmentThread;
+    private final Thread appendThread;
+    private volatile boolean isRunning = true;
+    private volatile boolean isEnrichmentDone = false;
+
+    /**
+     * @param name the name of the pipeline, used to name the threads
+     * @param size the number of slots, rounded up to a power of 2
+     * @param waitStrategy the behaviour of the stages waiting for events
+     * @param rejectionPolicy the behaviour of the producers when the ring buffer is full
+     * @param handler the handler of the work of the stages
+     */
+    public RingBufferPipeline(@NonNull String name, int size, @NonNull WaitStrategy waitStrategy, @NonNull RejectionPolicy rejectionPolicy, @NonNull Handler handler) {
+        int capacity = Integer.highestOneBit(Math.max(size, 2) - 1) << 1;
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.enrichmentWaiter = makeWaiter(waitStrategy);
+        this.appendWaiter = makeWaiter(waitStrategy);
+        this.handler = handler;
+        this.rejectionPolicy = rejectionPolicy;
+        String prefix = "snowplow-" + name;
+        this.enrichmentThread = makeThread(prefix + "-enrichment", this::runEnrichment);
+        this.appendThread = makeThread(prefix + "-append", this::runAppend);
+        enrichmentThread.start();
+        appendThread.start();
+    }
+
+    /**
+     * Publishes an event to the pipeline.
+     * When the ring buffer is full, the producer waits with RejectionPolicy Block,
+     * except on the main thread. The events published can't be removed from the
+     * ring buffer, so in the other cases the new event is dropped.
+     * The stage threads can't wait for themselves: when they track an event
+     * (e.g. the transaction items) on a full ring buffer, it's processed straight away.
+     *
+     * @param event the event to process
+     * @return whether the event has been published
+     */
+    public boolean publish(@NonNull Event event) {
+        boolean isStageThread = Thread.currentThread() == enrichmentThread || Thread.currentThread() == appendThread;
+        long sequence;
+        while (true) {
+            // Checked at every attempt, so a producer waiting on a full ring buffer stops on shutdown
+            if (!isRunning) {
+                Logger.e(TAG, "Pipeline is shut down: the event has been dropped.");
+                return false;
+            }
+            long current = cursor.get();
+            long next = current + 1;
+            if (next - slots.length > appendSequence.get()) {
+                if (isStageThread) {
+                    processDirectly(event);
+                    return true;
+                }
+                if (rejectionPolicy != RejectionPolicy.Block || Util.isMainThread()) {
+                    Logger.e(TAG, "Ring buffer is full: the new event has been dropped.");
+                    return false;
+                }
+                LockSupport.parkNanos(PRODUCER_WAIT);
+                continue;
+            }
+            if (cursor.compareAndSet(current, next)) {
+                sequence = next;
+                break;
+            }
+        }
+        int index = (int) (sequence & mask);
+        slots[index].event = event;
+        published.lazySet(index, sequence);
+        enrichmentWaiter.signalAll();
+        return true;
+    }
+
+    /**
+     * @return the number of events published and not yet appended to the store
+     */
+    public long size() {
+        return cursor.get() - appendSequence.get();
+    }
+
+    /**
+     * Stops the stages once they have processed the events already published.
+     */
+    public void shutdown() {
+        isRunning = false;
+        enrichmentWaiter.signalAll();
+        appendWaiter.signalAll();
+    }
+
+    /**
+     * Waits for the stages to stop after a shutdown.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the time unit of the timeout
+     * @return whether the stages have stopped
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        enrichmentThread.join(Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), 1));
+        appendThread.join(Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), 1));
+        return !enrichmentThread.isAlive() && !appendThread.isAlive();
+    }
+
+    // Stages
+
+    private void runEnrichment() {
+        long nextSequence = enrichmentSequence.get() + 1;
+        while (true) {
+            long available = enrichmentWaiter.waitFor(nextSequence, cursor, () -> isRunning);
+            if (available < nextSequence) {
+                if (!isRunning && cursor.get() < nextSequence) {
+                    break;
+                }
+                continue;
+            }
+            long last = Math.min(available, nextSequence + MAX_BATCH_SIZE - 1);
+            for (long sequence = nextSequence; sequence <= last; sequence++) {
+                int index = (int) (sequence & mask);
+                // The sequence is claimed but the producer may not have filled the slot yet
+                while (published.get(index) != sequence) {
+                    Thread.yield();
+                }
+                Slot slot = slots[index];
+                try {
+                    slot.payload = handler.enrich(slot.event);
+                } catch (RuntimeException e) {
+                    slot.payload = null;
+                    Logger.e(TAG, "Unable to process the event: %s", e.toString());
+                }
+            }
+            enrichmentSequence.set(last);
+            appendWaiter.signalAll();
+            nextSequence = last + 1;
+        }
+        isEnrichmentDone = true;
+        appendWaiter.signalAll();
+    }
+
+    private void runAppend() {
+        long nextSequence = appendSequence.get() + 1;
+        while (true) {
+            long available = appendWaiter.waitFor(nextSequence, enrichmentSequence, () -> !isEnrichmentDone);
+            if (available < nextSequence) {
+                if (isEnrichmentDone && enrichmentSequence.get() < nextSequence) {
+                    break;
+                }
+                continue;
+            }
+            List<Payload> payloads = new ArrayList<>((int) (available - nextSequence + 1));
+            for (long sequence = nextSequence; sequence <= available; sequence++) {
+                Slot slot = slots[(int) (sequence & mask)];
+                if (slot.payload != null) {
+                    payloads.add(slot.payload);
+                }
+                slot.event = null;
+                slot.payload = null;
+            }
+            try {
+                handler.append(payloads);
+            } catch (RuntimeException e) {
+                Logger.e(TAG, "Unable to store the events: %s", e.toString());
+            }
+            appendSequence.set(available);
+            nextSequence = available + 1;
+        }
+    }
+
+    // Private methods
+
+    private void processDirectly(@NonNull Event event) {
+        try {
+            Payload payload = handler.enrich(event);
+            if (payload != null) {
+                handler.append(Collections.singletonList(payload));
+            }
+        } catch (RuntimeException e) {
+            Logger.e(TAG, "Unable to process the event: %s", e.toString());
+        }
+    }
+
+    @NonNull
+    private static Thread makeThread(@NonNull String name, @NonNull Runnable runnable) {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @NonNull
+    private static Waiter makeWaiter(@NonNull WaitStrategy waitStrategy) {
+        switch (waitStrategy) {
+            case Sleeping:
+                return new SleepingWaiter();
+            case Yielding:
+                return new YieldingWaiter();
+            default:
+                return new BlockingWaiter();
+        }
+    }
+
+    // Wait strategies
+
+    private interface WaitCondition {
+        boolean isTrue();
+    }
+
+    /**
+     * Waits for a sequence to become available on a dependency.
+     */
+    private static abstract class Waiter {
+        /**
+         * @param sequence the sequence to wait for
+         * @param dependency the sequence of the producers or of the previous stage
+         * @param canWait whether the stage can keep waiting
+         * @return the highest available sequence, lower than the requested one if the wait stopped
+         */
+        abstract long waitFor(long sequence, @NonNull AtomicLong dependency, @NonNull WaitCondition canWait);
+
+        abstract void signalAll();
+    }
+
+    /**
+     * Waits on a lock. The producers take the lock only when a stage is waiting.
+     */
+    private static class BlockingWaiter extends Waiter {
+        // Safety net: the stage checks the sequence again if a signal has been missed
+        private static final long MAX_BLOCK = 1_000;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition condition = lock.newCondition();
+        private final AtomicBoolean isSignalNeeded = new AtomicBoolean(false);
+
+        @Override
+        long waitFor(long sequence, @NonNull AtomicLong dependency, @NonNull WaitCondition canWait) {
+            long available = dependency.get();
+            if (available >= sequence) {
+                return available;
+            }
+            lock.lock();
+            try {
+                while ((available = dependency.get()) < sequence && canWait.isTrue()) {
+                    isSignalNeeded.set(true);
+                    // Checked again after the flag is set, as the producers and the shutdown
+                    // only signal the stages that have set it
+                    if ((available = dependency.get()) >= sequence || !canWait.isTrue()) {
+                        break;
+                    }
+                    condition.await(MAX_BLOCK, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+            return available;
+        }
+
+        @Override
+        void signalAll() {
+            // Read first, so that the producers don't write the flag while the stage is busy
+            if (isSignalNeeded.get() && isSignalNeeded.getAndSet(false)) {
+                lock.lock();
+                try {
+                    condition.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Spins, then yields, then sleeps for short periods.
+     * When no event arrives meanwhile, it blocks like the BlockingWaiter
+     * so that an idle tracker doesn't keep waking up the CPU.
+     */
+    private static final class SleepingWaiter extends BlockingWaiter {
+        private static final int SPIN_TRIES = 100;
+        private static final int YIELD_TRIES = 100;
+        private static final int SLEEP_TRIES = 100;
+        private static final long SLEEP = 100_000;
+
+        @Override
+        long waitFor(long sequence, @NonNull AtomicLong dependency, @NonNull WaitCondition canWait) {
+            long available;
+            int counter = SPIN_TRIES + YIELD_TRIES + SLEEP_TRIES;
+            while ((available = dependency.get()) < sequence && canWait.isTrue()) {
+                if (counter > YIELD_TRIES + SLEEP_TRIES) {
+                    counter--;
+                } else if (counter > SLEEP_TRIES) {
+                    counter--;
+                    Thread.yield();
+                } else if (counter > 0) {
+                    counter--;
+                    LockSupport.parkNanos(SLEEP);
+                } else {
+                    return super.waitFor(sequence, dependency, canWait);
+                }
+            }
+            return available;
+        }
+    }
+
+    /**
+     * Spins, then yields the thread until the sequence is available.
+     * When no event arrives meanwhile, it blocks like the BlockingWaiter
+     * so that an idle tracker doesn't keep a core busy.
+     */
+    private static final class YieldingWaiter extends BlockingWaiter {
+        private static final int SPIN_TRIES = 100;
+        private static final int YIELD_TRIES = 10_000;
+
+        @Override
+        long waitFor(long sequence, @NonNull AtomicLong dependency, @NonNull WaitCondition canWait) {
+            long available;
+            int counter = SPIN_TRIES + YIELD_TRIES;
+            while ((available = dependency.get()) < sequence && canWait.isTrue()) {
+                if (counter > YIELD_TRIES) {
+                    counter--;
+                } else if (counter > 0) {
+                    counter--;
+                    Thread.yield();
+                } else {
+                    return super.waitFor(sequence, dependency, canWait);
+                }
+            }
+            return available;
+        }
+    }
+}
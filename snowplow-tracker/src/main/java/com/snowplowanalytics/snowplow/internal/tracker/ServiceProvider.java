@@ -31,6 +31,8 @@ import com.snowplowanalytics.snowplow.internal.session.SessionConfigurationUpdat
 import com.snowplowanalytics.snowplow.internal.session.SessionControllerImpl;
 import com.snowplowanalytics.snowplow.network.HttpMethod;
 import com.snowplowanalytics.snowplow.network.Protocol;
+import com.snowplowanalytics.snowplow.network.RequestCompression;
+import com.snowplowanalytics.snowplow.util.TimeMeasure;
 
 import java.util.List;
 import java.util.Objects;
@@ -366,11 +368,40 @@ public class ServiceProvider implements ServiceProviderInterface {
                 .byteLimitPost(emitterConfig.getByteLimitPost())
                 .byteLimitGet(emitterConfig.getByteLimitGet())
                 .threadPoolSize(emitterConfig.getThreadPoolSize())
+                .pipelineDepth(emitterConfig.getPipelineDepth())
+                .maxEventStoreSize(emitterConfig.getMaxEventStoreSize())
+                .maxEventStoreBytes(emitterConfig.getMaxEventStoreBytes())
+                .maxRetryAttempts(emitterConfig.getMaxRetryAttempts())
+                .maxMeteredBacklog(emitterConfig.getMaxMeteredBacklog())
+                .adaptiveBatching(emitterConfig.isAdaptiveBatching())
+                .minEventsPerRequest(emitterConfig.getMinEventsPerRequest())
+                .maxEventsPerRequest(emitterConfig.getMaxEventsPerRequest())
+                .targetLatency(emitterConfig.getTargetLatency().convert(TimeUnit.MILLISECONDS))
+                .workQueueCapacity(emitterConfig.getWorkQueueCapacity())
+                .rejectionPolicy(emitterConfig.getRejectionPolicy())
+                .ringBufferSize(emitterConfig.getRingBufferSize())
+                .waitStrategy(emitterConfig.getWaitStrategy())
                 .callback(emitterConfig.getRequestCallback());
         HttpMethod method = networkConfig.getMethod();
         if (method != null) {
             builder.method(method);
         }
+        Integer maxConcurrentRequests = networkConfig.getMaxConcurrentRequests();
+        if (maxConcurrentRequests != null) {
+            builder.maxConcurrentRequests(maxConcurrentRequests);
+        }
+        RequestCompression requestCompression = networkConfig.getRequestCompression();
+        if (requestCompression != null) {
+            builder.requestCompression(requestCompression);
+        }
+        TimeMeasure maxFlushDelay = emitterConfig.getMaxFlushDelay();
+        if (maxFlushDelay != null) {
+            builder.maxFlushDelay(maxFlushDelay.convert(TimeUnit.MILLISECONDS));
+        }
+        TimeMeasure maxEventAge = emitterConfig.getMaxEventAge();
+        if (maxEventAge != null) {
+            builder.maxEventAge(maxEventAge.convert(TimeUnit.SECONDS));
+        }
         Protocol protocol = networkConfig.getProtocol();
         if (protocol != null) {
             builder.security(protocol);
@@ -11,6 +11,7 @@ import com.snowplowanalytics.snowplow.event.Event;
  (event, previous StateFuture, StateMachine) needed to calculate the real state value.
  For this reason, the StateFuture can be the head of StateFuture chain which will collapse once the StateFuture
  head is asked to get the real state value.
+ The depth of the chain is tracked so that the StateManager can collapse it before it grows too long.
  */
 public class StateFuture {
 
@@ -19,11 +20,20 @@ public class StateFuture {
     private StateMachineInterface stateMachine;
 
     private State computedState;
+    private int depth;
 
     public StateFuture(@NonNull Event event, @Nullable StateFuture previousState, @NonNull StateMachineInterface stateMachine) {
         this.event = event;
         this.previousState = previousState;
         this.stateMachine = stateMachine;
+        this.depth = previousState != null ? previousState.getDepth() + 1 : 1;
+    }
+
+    /**
+     * @return the number of StateFutures in the chain not computed yet (0 if the state is computed)
+     */
+    public synchronized int getDepth() {
+        return depth;
     }
 
     @Nullable
@@ -34,6 +44,7 @@ public class StateFuture {
                 prevState = previousState.getState();
             }
             computedState = stateMachine.transition(event, prevState);
+            depth = 0;
             event = null;
             previousState = null;
             stateMachine = null;
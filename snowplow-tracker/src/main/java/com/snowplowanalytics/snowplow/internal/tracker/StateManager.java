@@ -1,12 +1,15 @@
 package com.snowplowanalytics.snowplow.internal.tracker;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.snowplowanalytics.snowplow.event.AbstractSelfDescribing;
 import com.snowplowanalytics.snowplow.event.Event;
 import com.snowplowanalytics.snowplow.payload.SelfDescribingJson;
 import com.snowplowanalytics.snowplow.tracker.InspectableEvent;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -15,6 +18,9 @@ import java.util.Objects;
 
 public class StateManager {
 
+    // Maximum length of a chain of StateFutures not computed yet, over it the chain is collapsed
+    static final int MAX_STATE_FUTURE_DEPTH = 32;
+
     private final HashMap<String, StateMachineInterface> identifierToStateMachine = new HashMap<>();
     private final HashMap<StateMachineInterface, String> stateMachineToIdentifier = new HashMap<>();
     private final HashMap<String, List<StateMachineInterface>> eventSchemaToStateMachine = new HashMap<>();
@@ -22,6 +28,11 @@ public class StateManager {
     private final HashMap<String, List<StateMachineInterface>> eventSchemaToPayloadUpdater = new HashMap<>();
     final TrackerState trackerState = new TrackerState();
 
+    // Dispatch tables rebuilt on every change of the state machines and read without locking
+    private volatile DispatchTable stateMachineDispatch = DispatchTable.EMPTY;
+    private volatile DispatchTable entitiesGeneratorDispatch = DispatchTable.EMPTY;
+    private volatile DispatchTable payloadUpdaterDispatch = DispatchTable.EMPTY;
+
 
     public synchronized void addOrReplaceStateMachine(@NonNull StateMachineInterface stateMachine, @NonNull String identifier) {
         StateMachineInterface previousStateMachine = identifierToStateMachine.get(identifier);
@@ -36,6 +47,7 @@ public class StateManager {
         addToSchemaRegistry(eventSchemaToStateMachine, stateMachine.subscribedEventSchemasForTransitions(), stateMachine);
         addToSchemaRegistry(eventSchemaToEntitiesGenerator, stateMachine.subscribedEventSchemasForEntitiesGeneration(), stateMachine);
         addToSchemaRegistry(eventSchemaToPayloadUpdater, stateMachine.subscribedEventSchemasForPayloadUpdating(), stateMachine);
+        rebuildDispatchTables();
     }
 
     public synchronized boolean removeStateMachine(@NonNull String identifier) {
@@ -48,60 +60,44 @@ public class StateManager {
         removeFromSchemaRegistry(eventSchemaToStateMachine, stateMachine.subscribedEventSchemasForTransitions(), stateMachine);
         removeFromSchemaRegistry(eventSchemaToEntitiesGenerator, stateMachine.subscribedEventSchemasForEntitiesGeneration(), stateMachine);
         removeFromSchemaRegistry(eventSchemaToPayloadUpdater, stateMachine.subscribedEventSchemasForPayloadUpdating(), stateMachine);
+        rebuildDispatchTables();
         return true;
     }
 
+    /**
+     * Appends the event to the state machines subscribed to it.
+     * The states are computed lazily when the entities or the payload values
+     * are generated on the event processing thread, so the event must not be
+     * modified after (see AbstractEvent.snapshot()).
+     * The chains of pending states are collapsed when they exceed a maximum depth,
+     * so that they don't grow without bound if the states are never observed.
+     */
     @NonNull
     synchronized TrackerStateSnapshot trackerStateForProcessedEvent(@NonNull Event event) {
         if (event instanceof AbstractSelfDescribing) {
             AbstractSelfDescribing sdEvent = (AbstractSelfDescribing) event;
-            List<StateMachineInterface> stateMachines = new LinkedList<>();
-            List<StateMachineInterface> stateMachinesForSchema = eventSchemaToStateMachine.get(sdEvent.getSchema());
-            if (stateMachinesForSchema != null) {
-                stateMachines.addAll(stateMachinesForSchema);
-            }
-            List<StateMachineInterface> stateMachinesGeneral = eventSchemaToStateMachine.get("*");
-            if (stateMachinesGeneral != null) {
-                stateMachines.addAll(stateMachinesGeneral);
-            }
-            for (StateMachineInterface stateMachine : stateMachines) {
-                String stateIdentifier = stateMachineToIdentifier.get(stateMachine);
-                StateFuture previousStateFuture = trackerState.getStateFuture(stateIdentifier);
-                StateFuture currentStateFuture = new StateFuture(sdEvent, previousStateFuture, stateMachine);
-                trackerState.put(stateIdentifier, currentStateFuture);
-                // TODO: Remove early state computation.
-                /*
-                The early state-computation causes low performance as it's executed synchronously on
-                the track method thread. Ideally, the state computation should be executed only on
-                entities generation or payload updating (outputs). In that case there are two problems
-                to address:
-                 - long chains of StateFuture filling the memory (in case the outputs are not generated)
-                 - event object reuse by the user (the event object in the StateFuture could be modified
-                   externally)
-                 Remove the early state-computation only when these two problems are fixed.
-                 */
-                currentStateFuture.getState(); // Early state-computation
+            Subscriber[] subscribers = stateMachineDispatch.get(sdEvent.getSchema());
+            for (int i = 0; i < subscribers.length; i++) {
+                Subscriber subscriber = subscribers[i];
+                StateFuture previousStateFuture = trackerState.getStateFuture(subscriber.identifier);
+                StateFuture currentStateFuture = new StateFuture(sdEvent, previousStateFuture, subscriber.stateMachine);
+                trackerState.put(subscriber.identifier, currentStateFuture);
+                if (currentStateFuture.getDepth() > MAX_STATE_FUTURE_DEPTH) {
+                    currentStateFuture.getState();
+                }
             }
         }
         return trackerState.getSnapshot();
     }
 
     @NonNull
-    synchronized List<SelfDescribingJson> entitiesForProcessedEvent(@NonNull InspectableEvent event) {
+    List<SelfDescribingJson> entitiesForProcessedEvent(@NonNull InspectableEvent event) {
         List<SelfDescribingJson> result = new LinkedList<>();
-        List<StateMachineInterface> stateMachines = new LinkedList<>();
-        List<StateMachineInterface> stateMachinesForSchema = eventSchemaToEntitiesGenerator.get(event.getSchema());
-        if (stateMachinesForSchema != null) {
-            stateMachines.addAll(stateMachinesForSchema);
-        }
-        List<StateMachineInterface> stateMachinesGeneral = eventSchemaToEntitiesGenerator.get("*");
-        if (stateMachinesGeneral != null) {
-            stateMachines.addAll(stateMachinesGeneral);
-        }
-        for (StateMachineInterface stateMachine : stateMachines) {
-            String stateIdentifier = stateMachineToIdentifier.get(stateMachine);
-            State state = event.getState().getState(stateIdentifier);
-            List<SelfDescribingJson> entities = stateMachine.entities(event, state);
+        Subscriber[] subscribers = entitiesGeneratorDispatch.get(event.getSchema());
+        for (int i = 0; i < subscribers.length; i++) {
+            Subscriber subscriber = subscribers[i];
+            State state = event.getState().getState(subscriber.identifier);
+            List<SelfDescribingJson> entities = subscriber.stateMachine.entities(event, state);
             if (entities != null) {
                 result.addAll(entities);
             }
@@ -109,21 +105,13 @@ public class StateManager {
         return result;
     }
 
-    public synchronized boolean addPayloadValuesToEvent(@NonNull InspectableEvent event) {
+    public boolean addPayloadValuesToEvent(@NonNull InspectableEvent event) {
         int failures = 0;
-        List<StateMachineInterface> stateMachines = new LinkedList<>();
-        List<StateMachineInterface> stateMachinesForSchema = eventSchemaToPayloadUpdater.get(event.getSchema());
-        if (stateMachinesForSchema != null) {
-            stateMachines.addAll(stateMachinesForSchema);
-        }
-        List<StateMachineInterface> stateMachinesGeneral = eventSchemaToPayloadUpdater.get("*");
-        if (stateMachinesGeneral != null) {
-            stateMachines.addAll(stateMachinesGeneral);
-        }
-        for (StateMachineInterface stateMachine : stateMachines) {
-            String stateIdentifier = stateMachineToIdentifier.get(stateMachine);
-            State state = event.getState().getState(stateIdentifier);
-            Map<String, Object> payloadValues = stateMachine.payloadValues(event, state);
+        Subscriber[] subscribers = payloadUpdaterDispatch.get(event.getSchema());
+        for (int i = 0; i < subscribers.length; i++) {
+            Subscriber subscriber = subscribers[i];
+            State state = event.getState().getState(subscriber.identifier);
+            Map<String, Object> payloadValues = subscriber.stateMachine.payloadValues(event, state);
             if (payloadValues != null && !event.addPayloadValues(payloadValues)) {
                 failures++;
             }
@@ -144,6 +132,36 @@ public class StateManager {
         }
     }
 
+    private void rebuildDispatchTables() {
+        stateMachineDispatch = makeDispatchTable(eventSchemaToStateMachine);
+        entitiesGeneratorDispatch = makeDispatchTable(eventSchemaToEntitiesGenerator);
+        payloadUpdaterDispatch = makeDispatchTable(eventSchemaToPayloadUpdater);
+    }
+
+    private DispatchTable makeDispatchTable(Map<String, List<StateMachineInterface>> schemaRegistry) {
+        Subscriber[] general = makeSubscribers(schemaRegistry.get("*"), null);
+        HashMap<String, Subscriber[]> subscribersBySchema = new HashMap<>();
+        for (Map.Entry<String, List<StateMachineInterface>> entry : schemaRegistry.entrySet()) {
+            if (!entry.getKey().equals("*")) {
+                subscribersBySchema.put(entry.getKey(), makeSubscribers(entry.getValue(), general));
+            }
+        }
+        return new DispatchTable(subscribersBySchema, general);
+    }
+
+    private Subscriber[] makeSubscribers(List<StateMachineInterface> stateMachines, Subscriber[] general) {
+        List<Subscriber> subscribers = new ArrayList<>();
+        if (stateMachines != null) {
+            for (StateMachineInterface stateMachine : stateMachines) {
+                subscribers.add(new Subscriber(stateMachine, stateMachineToIdentifier.get(stateMachine)));
+            }
+        }
+        if (general != null) {
+            subscribers.addAll(Arrays.asList(general));
+        }
+        return subscribers.toArray(new Subscriber[0]);
+    }
+
     private void removeFromSchemaRegistry(Map<String, List<StateMachineInterface>> schemaRegistry, List<String> schemas, StateMachineInterface stateMachine) {
         for (String eventSchema : schemas) {
             List<StateMachineInterface> list = schemaRegistry.get(eventSchema);
@@ -153,4 +171,41 @@ public class StateManager {
         }
     }
 
+    // Dispatch table
+
+    /**
+     * State machine subscribed to an event schema, with its identifier.
+     */
+    private static final class Subscriber {
+        final StateMachineInterface stateMachine;
+        final String identifier;
+
+        Subscriber(@NonNull StateMachineInterface stateMachine, @NonNull String identifier) {
+            this.stateMachine = stateMachine;
+            this.identifier = identifier;
+        }
+    }
+
+    /**
+     * Immutable map from the event schemas to the subscribed state machines.
+     * The arrays already include the state machines subscribed to all the schemas ("*"),
+     * so that the events are dispatched with a single lookup and no allocation.
+     */
+    private static final class DispatchTable {
+        static final DispatchTable EMPTY = new DispatchTable(new HashMap<>(), new Subscriber[0]);
+
+        private final Map<String, Subscriber[]> subscribersBySchema;
+        private final Subscriber[] general;
+
+        DispatchTable(@NonNull Map<String, Subscriber[]> subscribersBySchema, @NonNull Subscriber[] general) {
+            this.subscribersBySchema = subscribersBySchema;
+            this.general = general;
+        }
+
+        @NonNull
+        Subscriber[] get(@Nullable String schema) {
+            Subscriber[] subscribers = subscribersBySchema.get(schema);
+            return subscribers != null ? subscribers : general;
+        }
+    }
 }
@@ -0,0 +1,91 @@
+package com.snowplowanalytics.snowplow.internal.tracker;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ Immutable map from the state identifiers to the StateFutures.
+ The updates return a new map which shares the StateFutures with the previous one, so the map can be
+ used as a snapshot of the TrackerState without copying it.
+ The entries are kept in arrays, which are faster than a hash map for the few state machines
+ of a tracker.
+ */
+final class StateMap implements TrackerStateSnapshot {
+
+    static final StateMap EMPTY = new StateMap(new String[0], new StateFuture[0]);
+
+    private final String[] identifiers;
+    private final StateFuture[] stateFutures;
+
+    private StateMap(@NonNull String[] identifiers, @NonNull StateFuture[] stateFutures) {
+        this.identifiers = identifiers;
+        this.stateFutures = stateFutures;
+    }
+
+    int size() {
+        return identifiers.length;
+    }
+
+    @Nullable
+    StateFuture getStateFuture(@NonNull String stateIdentifier) {
+        int index = indexOf(stateIdentifier);
+        return index >= 0 ? stateFutures[index] : null;
+    }
+
+    @NonNull
+    StateMap put(@NonNull String stateIdentifier, @NonNull StateFuture stateFuture) {
+        int index = indexOf(stateIdentifier);
+        if (index >= 0) {
+            StateFuture[] newStateFutures = stateFutures.clone();
+            newStateFutures[index] = stateFuture;
+            return new StateMap(identifiers, newStateFutures);
+        }
+        int size = identifiers.length;
+        String[] newIdentifiers = new String[size + 1];
+        StateFuture[] newStateFutures = new StateFuture[size + 1];
+        System.arraycopy(identifiers, 0, newIdentifiers, 0, size);
+        System.arraycopy(stateFutures, 0, newStateFutures, 0, size);
+        newIdentifiers[size] = stateIdentifier;
+        newStateFutures[size] = stateFuture;
+        return new StateMap(newIdentifiers, newStateFutures);
+    }
+
+    @NonNull
+    StateMap remove(@NonNull String stateIdentifier) {
+        int index = indexOf(stateIdentifier);
+        if (index < 0) {
+            return this;
+        }
+        int size = identifiers.length;
+        String[] newIdentifiers = new String[size - 1];
+        StateFuture[] newStateFutures = new StateFuture[size - 1];
+        System.arraycopy(identifiers, 0, newIdentifiers, 0, index);
+        System.arraycopy(stateFutures, 0, newStateFutures, 0, index);
+        System.arraycopy(identifiers, index + 1, newIdentifiers, index, size - index - 1);
+        System.arraycopy(stateFutures, index + 1, newStateFutures, index, size - index - 1);
+        return new StateMap(newIdentifiers, newStateFutures);
+    }
+
+    // Implements TrackerStateSnapshot
+
+    @Nullable
+    @Override
+    public State getState(@NonNull String stateIdentifier) {
+        StateFuture stateFuture = getStateFuture(stateIdentifier);
+        if (stateFuture == null) {
+            return null;
+        }
+        return stateFuture.getState();
+    }
+
+    // Private methods
+
+    private int indexOf(@NonNull String stateIdentifier) {
+        for (int i = 0; i < identifiers.length; i++) {
+            if (identifiers[i].equals(stateIdentifier)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -35,7 +35,6 @@ import com.snowplowanalytics.snowplow.internal.utils.NotificationCenter;
 import com.snowplowanalytics.snowplow.tracker.BuildConfig;
 import com.snowplowanalytics.snowplow.tracker.DevicePlatform;
 import com.snowplowanalytics.snowplow.internal.emitter.Emitter;
-import com.snowplowanalytics.snowplow.internal.emitter.Executor;
 import com.snowplowanalytics.snowplow.internal.gdpr.Gdpr;
 import com.snowplowanalytics.snowplow.tracker.InspectableEvent;
 import com.snowplowanalytics.snowplow.tracker.LoggerDelegate;
@@ -43,6 +42,7 @@ import com.snowplowanalytics.snowplow.internal.session.Session;
 import com.snowplowanalytics.snowplow.internal.constants.TrackerConstants;
 import com.snowplowanalytics.snowplow.internal.constants.Parameters;
 import com.snowplowanalytics.snowplow.globalcontexts.GlobalContext;
+import com.snowplowanalytics.snowplow.event.AbstractEvent;
 import com.snowplowanalytics.snowplow.event.Event;
 import com.snowplowanalytics.snowplow.event.TrackerError;
 import com.snowplowanalytics.snowplow.payload.Payload;
@@ -351,6 +351,8 @@ public class Tracker {
     // ----
 
     private final static String TAG = Tracker.class.getSimpleName();
+    // Maximum time (in seconds) to wait for the ring buffer pipeline to store the events tracked before closing
+    private final static long PIPELINE_TERMINATION_TIMEOUT = 2;
     private String trackerVersion = BuildConfig.TRACKER_LABEL;
 
     // --- Builder
@@ -382,6 +384,9 @@ public class Tracker {
 
     private Gdpr gdpr;
     private final StateManager stateManager;
+    private final TrackingQueue trackingQueue;
+    @Nullable
+    private final RingBufferPipeline ringBufferPipeline;
 
     private final TimeUnit timeUnit;
     private final long foregroundTimeout;
@@ -470,10 +475,30 @@ public class Tracker {
         this.context = builder.context;
 
         this.emitter = builder.emitter;
-        this.emitter.flush();
-
+        this.trackingQueue = new TrackingQueue(emitter.getWorkQueueCapacity(), emitter.getRejectionPolicy(),
+                // The rejections reach the queue, which schedules the drain again with the next event
+                runnable -> this.emitter.getExecutorGroup().getEventProcessingExecutor().execute(runnable),
+                this::processEvent);
+        if (emitter.getRingBufferSize() > 0) {
+            this.ringBufferPipeline = new RingBufferPipeline(builder.namespace, emitter.getRingBufferSize(), emitter.getWaitStrategy(), emitter.getRejectionPolicy(),
+                    new RingBufferPipeline.Handler() {
+                        @Nullable
+                        @Override
+                        public Payload enrich(@NonNull Event event) {
+                            return enrichEvent(event);
+                        }
+
+                        @Override
+                        public void append(@NonNull List<Payload> payloads) {
+                            emitter.addAll(payloads);
+                        }
+                    });
+        } else {
+            this.ringBufferPipeline = null;
+        }
         this.namespace = builder.namespace;
         this.emitter.setNamespace(namespace);
+        this.emitter.flush();
 
         this.appId = builder.appId;
         this.base64Encoded = builder.base64Encoded;
@@ -588,6 +613,18 @@ public class Tracker {
     public void close() {
         unregisterNotificationHandlers();
         pauseSessionChecking();
+        if (ringBufferPipeline != null) {
+            ringBufferPipeline.shutdown();
+            // The emitter commits the events stored, so the pipeline has to append them first
+            try {
+                if (!ringBufferPipeline.awaitTermination(PIPELINE_TERMINATION_TIMEOUT, TimeUnit.SECONDS)) {
+                    Logger.e(TAG, "Pipeline termination timed out: %d events may be lost.", ringBufferPipeline.size());
+                }
+            } catch (InterruptedException e) {
+                Logger.e(TAG, "Pipeline termination is interrupted: %s", e.getMessage());
+                Thread.currentThread().interrupt();
+            }
+        }
         getEmitter().shutdown();
     }
 
@@ -596,6 +633,9 @@ public class Tracker {
     /**
      * Handles tracking the different types of events that
      * the Tracker can encounter.
+     * The calling thread only appends a copy of the event to the tracking queue,
+     * the events are processed in order on a single thread.
+     * When the ring buffer is enabled, the copy is published to the RingBufferPipeline instead.
      *
      * @param event the event to track
      */
@@ -604,19 +644,52 @@ public class Tracker {
             return;
         }
         event.beginProcessing(this);
-        TrackerStateSnapshot stateSnapshot;
-        synchronized (this) {
-            stateSnapshot = stateManager.trackerStateForProcessedEvent(event);
+        // The copy keeps the values at the time of tracking, so the user can reuse the event object
+        Event eventSnapshot = event instanceof AbstractEvent ? ((AbstractEvent) event).snapshot() : event;
+        if (ringBufferPipeline != null) {
+            ringBufferPipeline.publish(eventSnapshot);
+        } else {
+            trackingQueue.offer(eventSnapshot);
         }
-        boolean reportsOnDiagnostic = !(event instanceof TrackerError);
-        Executor.execute(reportsOnDiagnostic, TAG, () -> {
+    }
+
+    /**
+     * Processes a tracked event on the thread draining the tracking queue.
+     *
+     * @param event the copy of the tracked event
+     */
+    private void processEvent(@NonNull Event event) {
+        Payload payload = enrichEvent(event);
+        if (payload != null) {
+            this.emitter.add(payload);
+        }
+    }
+
+    /**
+     * Processes the states, contexts and properties of a tracked event.
+     *
+     * @param event the copy of the tracked event
+     * @return the payload to store, null if the event can't be processed
+     */
+    @Nullable
+    private Payload enrichEvent(@NonNull Event event) {
+        try {
+            TrackerStateSnapshot stateSnapshot = stateManager.trackerStateForProcessedEvent(event);
             TrackerEvent trackerEvent = new TrackerEvent(event, stateSnapshot);
             transformEvent(trackerEvent);
             Payload payload = payloadWithEvent(trackerEvent);
             Logger.v(TAG, "Adding new payload to event storage: %s", payload);
-            this.emitter.add(payload);
             event.endProcessing(this);
-        });
+            return payload;
+        } catch (RuntimeException e) {
+            String message = e.getLocalizedMessage() != null ? e.getLocalizedMessage() : "No message provided.";
+            if (event instanceof TrackerError) {
+                Logger.e(TAG, message, e);
+            } else {
+                Logger.track(TAG, message, e);
+            }
+            return null;
+        }
     }
 
     private void transformEvent(@NonNull TrackerEvent event) {
@@ -831,7 +904,7 @@ public class Tracker {
     public void pauseEventTracking() {
         if (dataCollection.compareAndSet(true, false)) {
             pauseSessionChecking();
-            getEmitter().shutdown();
+            getEmitter().pauseEmission();
         }
     }
 
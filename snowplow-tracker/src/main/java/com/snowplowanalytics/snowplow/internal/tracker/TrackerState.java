@@ -3,30 +3,31 @@ package com.snowplowanalytics.snowplow.internal.tracker;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.HashMap;
-
+/**
+ TrackerState keeps the current StateFuture of each state machine.
+ The StateFutures are stored in an immutable StateMap replaced at every update,
+ so the snapshot of the state is the current StateMap and it's taken without copies.
+ */
 public class TrackerState implements TrackerStateSnapshot {
 
-    private HashMap<String, StateFuture> trackerState = new HashMap<>();
+    private volatile StateMap stateMap = StateMap.EMPTY;
 
     public synchronized void put(@NonNull String stateIdentifier, @NonNull StateFuture state) {
-        trackerState.put(stateIdentifier, state);
+        stateMap = stateMap.put(stateIdentifier, state);
     }
 
     @Nullable
-    public synchronized StateFuture getStateFuture(@NonNull String stateIdentifier) {
-        return trackerState.get(stateIdentifier);
+    public StateFuture getStateFuture(@NonNull String stateIdentifier) {
+        return stateMap.getStateFuture(stateIdentifier);
     }
 
-    public void removeState(@NonNull String stateIdentifier) {
-        trackerState.remove(stateIdentifier);
+    public synchronized void removeState(@NonNull String stateIdentifier) {
+        stateMap = stateMap.remove(stateIdentifier);
     }
 
     @NonNull
-    public synchronized TrackerStateSnapshot getSnapshot() {
-        TrackerState newTrackerState = new TrackerState();
-        newTrackerState.trackerState = new HashMap<>(trackerState);
-        return newTrackerState;
+    public TrackerStateSnapshot getSnapshot() {
+        return stateMap;
     }
 
     // Implements TrackerStateSnapshot
@@ -34,10 +35,6 @@ public class TrackerState implements TrackerStateSnapshot {
     @Nullable
     @Override
     public State getState(@NonNull String stateIdentifier) {
-        StateFuture stateFuture = getStateFuture(stateIdentifier);
-        if (stateFuture == null) {
-            return null;
-        }
-        return stateFuture.getState();
+        return stateMap.getState(stateIdentifier);
     }
 }
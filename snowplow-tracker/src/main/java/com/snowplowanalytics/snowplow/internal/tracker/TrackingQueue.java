@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.tracker;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import com.snowplowanalytics.snowplow.emitter.RejectionPolicy;
+import com.snowplowanalytics.snowplow.event.Event;
+import com.snowplowanalytics.snowplow.internal.utils.Util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Multi-producer single-consumer queue of the tracked events.
+ * The threads calling `track` only append the event to a lock-free queue,
+ * then a single drain task at a time processes the events in the order
+ * they have been appended.
+ * The queue is bounded and the behaviour when it's full is set by the
+ * RejectionPolicy, like the work queues of the ExecutorGroup.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public class TrackingQueue {
+    private final static String TAG = TrackingQueue.class.getSimpleName();
+
+    // Wait (in nanoseconds) of a producer blocked by a full queue before checking it again
+    private static final long BLOCK_WAIT = 100_000;
+
+    /**
+     * Consumer of the events, called on the thread draining the queue.
+     */
+    public interface Consumer {
+        void process(@NonNull Event event);
+    }
+
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger(0);
+    private final AtomicBoolean isDrainScheduled = new AtomicBoolean(false);
+    private final int capacity;
+    private final RejectionPolicy rejectionPolicy;
+    private final Executor drainExecutor;
+    private final Consumer consumer;
+    private volatile Thread consumerThread;
+
+    /**
+     * @param capacity the maximum number of events waiting in the queue
+     * @param rejectionPolicy the behaviour when the queue is full
+     * @param drainExecutor the executor running the drain task, it has to throw its rejections
+     *                      as at most one drain task is scheduled at a time
+     * @param consumer the consumer processing the events
+     */
+    public TrackingQueue(int capacity, @NonNull RejectionPolicy rejectionPolicy, @NonNull Executor drainExecutor, @NonNull Consumer consumer) {
+        this.capacity = Math.max(capacity, 1);
+        this.rejectionPolicy = rejectionPolicy;
+        this.drainExecutor = drainExecutor;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Appends an event to the queue and schedules the drain task if it's not running.
+     *
+     * @param event the event to process
+     * @return whether the event has been appended
+     */
+    public boolean offer(@NonNull Event event) {
+        while (true) {
+            int currentSize = size.get();
+            // The consumer can track events (e.g. the transaction items), it never waits for itself
+            if (currentSize < capacity || Thread.currentThread() == consumerThread) {
+                if (size.compareAndSet(currentSize, currentSize + 1)) {
+                    break;
+                }
+                continue;
+            }
+            if (rejectionPolicy == RejectionPolicy.DropNewest) {
+                Logger.e(TAG, "Tracking queue is full: the new event has been dropped.");
+                return false;
+            }
+            // The main thread never waits, it drops the oldest event instead
+            if (rejectionPolicy == RejectionPolicy.Block && !Util.isMainThread()) {
+                LockSupport.parkNanos(BLOCK_WAIT);
+            } else if (events.poll() != null) {
+                size.decrementAndGet();
+                Logger.e(TAG, "Tracking queue is full: the oldest event has been dropped.");
+            }
+        }
+        events.offer(event);
+        scheduleDrain();
+        return true;
+    }
+
+    /**
+     * @return the number of events waiting in the queue
+     */
+    public int size() {
+        return size.get();
+    }
+
+    // Private methods
+
+    private void scheduleDrain() {
+        if (isDrainScheduled.compareAndSet(false, true)) {
+            try {
+                drainExecutor.execute(this::drain);
+            } catch (RuntimeException e) {
+                isDrainScheduled.set(false);
+                Logger.e(TAG, "Unable to schedule the processing of the events: %s", e.toString());
+            }
+        }
+    }
+
+    /**
+     * Processes the events until the queue is empty.
+     * The flag is reset before the last check of the queue, so an event
+     * appended meanwhile is either drained here or by a new drain task.
+     */
+    private void drain() {
+        consumerThread = Thread.currentThread();
+        try {
+            do {
+                Event event;
+                while ((event = events.poll()) != null) {
+                    size.decrementAndGet();
+                    try {
+                        consumer.process(event);
+                    } catch (RuntimeException e) {
+                        Logger.e(TAG, "Unable to process the event: %s", e.toString());
+                    }
+                }
+                isDrainScheduled.set(false);
+            } while (!events.isEmpty() && isDrainScheduled.compareAndSet(false, true));
+        } finally {
+            consumerThread = null;
+        }
+    }
+}
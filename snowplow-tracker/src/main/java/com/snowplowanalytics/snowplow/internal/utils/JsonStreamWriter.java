@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes maps, lists and values as UTF-8 JSON straight into an OutputStream,
+ * without building the JSONObject tree and the String of the JSON.
+ * The output is the same as `new JSONObject(map).toString()`.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public class JsonStreamWriter {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] HEX = "0123456789abcdef".getBytes(UTF_8);
+    private static final byte[] NULL = "null".getBytes(UTF_8);
+    private static final byte[] TRUE = "true".getBytes(UTF_8);
+    private static final byte[] FALSE = "false".getBytes(UTF_8);
+
+    @Nullable
+    private final OutputStream outputStream;
+    private byte[] buffer;
+    private int position = 0;
+
+    /**
+     * @param outputStream where to write the JSON (e.g.: a ByteArrayOutputStream or the
+     *                     OutputStream of an Okio BufferedSink)
+     */
+    public JsonStreamWriter(@NonNull OutputStream outputStream) {
+        this(outputStream, 1024);
+    }
+
+    /**
+     * @param outputStream where to write the JSON, if null the JSON is kept in the buffer
+     *                     which grows as needed
+     * @param bufferSize initial size of the buffer
+     */
+    private JsonStreamWriter(@Nullable OutputStream outputStream, int bufferSize) {
+        this.outputStream = outputStream;
+        this.buffer = new byte[bufferSize];
+    }
+
+    // Shortcuts
+
+    /**
+     * @param map to render as JSON object
+     * @return the UTF-8 bytes of the JSON object
+     */
+    @NonNull
+    public static byte[] toJsonBytes(@NonNull Map<?, ?> map) {
+        JsonStreamWriter writer = write(map, null, 512);
+        return Arrays.copyOf(writer.buffer, writer.position);
+    }
+
+    /**
+     * @param map to render as JSON object
+     * @return the JSON object as string
+     */
+    @NonNull
+    public static String toJsonString(@NonNull Map<?, ?> map) {
+        JsonStreamWriter writer = write(map, null, 512);
+        return new String(writer.buffer, 0, writer.position, UTF_8);
+    }
+
+    /**
+     * @param map to render as JSON object
+     * @return the JSON object encoded in base64 (without line wrapping)
+     */
+    @NonNull
+    public static String toBase64(@NonNull Map<?, ?> map) {
+        // The JSON is encoded chunk by chunk while it's written
+        Base64Encoder encoder = new Base64Encoder();
+        write(map, encoder, 192);
+        return encoder.finish();
+    }
+
+    /**
+     * @param map to render as JSON object
+     * @return the size in bytes of the UTF-8 JSON object
+     */
+    public static long getByteSize(@NonNull Map<?, ?> map) {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        write(map, outputStream, 128);
+        return outputStream.count;
+    }
+
+    @NonNull
+    private static JsonStreamWriter write(@NonNull Map<?, ?> map, @Nullable OutputStream outputStream, int bufferSize) {
+        JsonStreamWriter writer = new JsonStreamWriter(outputStream, bufferSize);
+        try {
+            writer.writeObject(map);
+            writer.flush();
+        } catch (IOException e) {
+            // In-memory streams don't raise exceptions
+            throw new IllegalStateException(e);
+        }
+        return writer;
+    }
+
+    // Writer
+
+    /**
+     * Writes a map as JSON object.
+     * @param map the map to write
+     * @throws IOException raised by the OutputStream
+     */
+    public void writeObject(@NonNull Map<?, ?> map) throws IOException {
+        writeByte('{');
+        boolean isFirst = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            Object value = entry.getValue() == null ? JSONObject.NULL : wrap(entry.getValue());
+            if (value == null) {
+                continue; // As org.json, values that can't be converted are skipped
+            }
+            if (!isFirst) {
+                writeByte(',');
+            }
+            isFirst = false;
+            writeString(String.valueOf(entry.getKey()));
+            writeByte(':');
+            writeValue(value);
+        }
+        writeByte('}');
+    }
+
+    /**
+     * Writes a collection as JSON array.
+     * @param collection the collection to write
+     * @throws IOException raised by the OutputStream
+     */
+    public void writeArray(@NonNull Collection<?> collection) throws IOException {
+        writeByte('[');
+        boolean isFirst = true;
+        for (Object item : collection) {
+            if (!isFirst) {
+                writeByte(',');
+            }
+            isFirst = false;
+            writeValue(wrap(item));
+        }
+        writeByte(']');
+    }
+
+    /**
+     * Writes a value as JSON.
+     * @param value a map, collection, string, number, boolean or null
+     * @throws IOException raised by the OutputStream
+     */
+    public void writeValue(@Nullable Object value) throws IOException {
+        if (value == null || value == JSONObject.NULL) {
+            writeBytes(NULL);
+        } else if (value instanceof String) {
+            writeString((String) value);
+        } else if (value instanceof Map) {
+            writeObject((Map<?, ?>) value);
+        } else if (value instanceof Collection) {
+            writeArray((Collection<?>) value);
+        } else if (value instanceof Boolean) {
+            writeBytes((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Number) {
+            writeNumber((Number) value);
+        } else if (value instanceof JSONObject || value instanceof JSONArray) {
+            writeRaw(value.toString());
+        } else {
+            writeString(value.toString());
+        }
+    }
+
+    /**
+     * Writes the buffered bytes in the OutputStream.
+     * @throws IOException raised by the OutputStream
+     */
+    public void flush() throws IOException {
+        if (outputStream != null && position > 0) {
+            outputStream.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    // Private methods
+
+    /**
+     * Converts the values as org.json does, keeping maps and collections to be streamed.
+     */
+    @Nullable
+    private static Object wrap(@Nullable Object value) {
+        if (value == null || value instanceof String || value instanceof Map
+                || value instanceof Collection || value instanceof Boolean || value instanceof Number) {
+            return value;
+        }
+        return JSONObject.wrap(value);
+    }
+
+    private void writeNumber(@NonNull Number number) throws IOException {
+        String string;
+        try {
+            string = JSONObject.numberToString(number);
+        } catch (JSONException e) {
+            string = null; // NaN and infinite values aren't allowed in JSON
+        }
+        if (string == null) {
+            writeBytes(NULL);
+        } else {
+            writeRaw(string);
+        }
+    }
+
+    private void writeString(@NonNull String string) throws IOException {
+        writeByte('"');
+        int length = string.length();
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    writeByte('\\');
+                    writeByte(c);
+                    break;
+                case '\t':
+                    writeByte('\\');
+                    writeByte('t');
+                    break;
+                case '\b':
+                    writeByte('\\');
+                    writeByte('b');
+                    break;
+                case '\n':
+                    writeByte('\\');
+                    writeByte('n');
+                    break;
+                case '\r':
+                    writeByte('\\');
+                    writeByte('r');
+                    break;
+                case '\f':
+                    writeByte('\\');
+                    writeByte('f');
+                    break;
+                default:
+                    if (c <= 0x1F) {
+                        writeByte('\\');
+                        writeByte('u');
+                        writeByte(HEX[(c >> 12) & 0xF]);
+                        writeByte(HEX[(c >> 8) & 0xF]);
+                        writeByte(HEX[(c >> 4) & 0xF]);
+                        writeByte(HEX[c & 0xF]);
+                    } else {
+                        i = writeChar(string, i, c);
+                    }
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeRaw(@NonNull String string) throws IOException {
+        int length = string.length();
+        for (int i = 0; i < length; i++) {
+            i = writeChar(string, i, string.charAt(i));
+        }
+    }
+
+    /**
+     * Writes a character encoded in UTF-8.
+     * @return the index of the last character consumed (surrogate pairs consume two)
+     */
+    private int writeChar(@NonNull String string, int index, char c) throws IOException {
+        if (c < 0x80) {
+            writeByte(c);
+        } else if (c < 0x800) {
+            writeByte(0xC0 | (c >> 6));
+            writeByte(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && index + 1 < string.length()
+                && Character.isLowSurrogate(string.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, string.charAt(index + 1));
+            writeByte(0xF0 | (codePoint >> 18));
+            writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+            writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+            writeByte(0x80 | (codePoint & 0x3F));
+            return index + 1;
+        } else if (Character.isSurrogate(c)) {
+            writeByte('?'); // Unpaired surrogate, as String.getBytes does
+        } else {
+            writeByte(0xE0 | (c >> 12));
+            writeByte(0x80 | ((c >> 6) & 0x3F));
+            writeByte(0x80 | (c & 0x3F));
+        }
+        return index;
+    }
+
+    private void writeBytes(@NonNull byte[] bytes) throws IOException {
+        for (byte b : bytes) {
+            writeByte(b);
+        }
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (position == buffer.length) {
+            if (outputStream == null) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            } else {
+                flush();
+            }
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    /**
+     * OutputStream which encodes the bytes written in base64 as they arrive.
+     */
+    private static class Base64Encoder extends OutputStream {
+        private static final byte[] ALPHABET =
+                "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(UTF_8);
+
+        private byte[] output = new byte[256];
+        private int position = 0;
+        private int pending = 0; // Bits of the incomplete group of 3 bytes
+        private int pendingCount = 0;
+
+        @Override
+        public void write(int b) {
+            pending = (pending << 8) | (b & 0xFF);
+            if (++pendingCount == 3) {
+                ensureCapacity(4);
+                output[position++] = ALPHABET[(pending >> 18) & 0x3F];
+                output[position++] = ALPHABET[(pending >> 12) & 0x3F];
+                output[position++] = ALPHABET[(pending >> 6) & 0x3F];
+                output[position++] = ALPHABET[pending & 0x3F];
+                pending = 0;
+                pendingCount = 0;
+            }
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) {
+            ensureCapacity((len / 3 + 2) * 4);
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+
+        /**
+         * Encodes the last bytes with the padding.
+         * @return the base64 string
+         */
+        @NonNull
+        String finish() {
+            ensureCapacity(4);
+            if (pendingCount == 1) {
+                output[position++] = ALPHABET[(pending >> 2) & 0x3F];
+                output[position++] = ALPHABET[(pending << 4) & 0x3F];
+                output[position++] = '=';
+                output[position++] = '=';
+            } else if (pendingCount == 2) {
+                output[position++] = ALPHABET[(pending >> 10) & 0x3F];
+                output[position++] = ALPHABET[(pending >> 4) & 0x3F];
+                output[position++] = ALPHABET[(pending << 2) & 0x3F];
+                output[position++] = '=';
+            }
+            pendingCount = 0;
+            return new String(output, 0, position, UTF_8);
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > output.length) {
+                output = Arrays.copyOf(output, Math.max(output.length * 2, position + length));
+            }
+        }
+    }
+
+    /**
+     * OutputStream which only counts the bytes written.
+     */
+    private static class CountingOutputStream extends OutputStream {
+        long count = 0;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
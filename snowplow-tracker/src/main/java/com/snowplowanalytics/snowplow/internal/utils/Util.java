@@ -22,6 +22,7 @@ import android.location.LocationManager;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Build;
+import android.os.Looper;
 import android.util.Base64;
 
 import androidx.annotation.NonNull;
@@ -30,7 +31,10 @@ import androidx.annotation.Nullable;
 import com.snowplowanalytics.snowplow.internal.constants.Parameters;
 import com.snowplowanalytics.snowplow.internal.constants.TrackerConstants;
 import com.snowplowanalytics.snowplow.internal.tracker.Logger;
+import com.snowplowanalytics.snowplow.payload.Payload;
 import com.snowplowanalytics.snowplow.payload.SelfDescribingJson;
+import com.snowplowanalytics.snowplow.payload.SerializedPayload;
+import com.snowplowanalytics.snowplow.payload.TrackerPayload;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -39,6 +43,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +56,20 @@ public class Util {
 
     private static final String TAG = Util.class.getSimpleName();
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * First byte of the events serialized with the compact format,
+     * only read as the events are now stored as JSON.
+     * Events serialized with the Java serialization start with 0xAC.
+     */
+    private static final byte SERIALIZATION_FORMAT_V1 = 0x01;
+
+    /**
+     * First byte of the events serialized as the JSON sent to the collector.
+     */
+    private static final byte SERIALIZATION_FORMAT_V2 = 0x02;
+
     /**
      * Returns the current System time
      * as a String.
@@ -298,15 +317,116 @@ public class Util {
     }
 
     /**
-     * Converts an event map to a byte
+     * Converts an event payload to a byte
      * array for storage.
      *
+     * The payload is stored as the JSON sent to the collector,
+     * preceded by a version byte and the length-prefixed `ua`
+     * parameter, so that the emitter can send it without
+     * converting it again.
+     *
+     * @param payload the event payload
+     * @return the byte array
+     */
+    @NonNull
+    public static byte[] serializePayload(@NonNull Payload payload) {
+        byte[] json = SerializedPayload.toJsonBytes(payload);
+        Object userAgent = payload instanceof SerializedPayload
+                ? ((SerializedPayload) payload).getUserAgent()
+                : payload.getMap().get(Parameters.USERAGENT);
+        byte[] userAgentBytes = userAgent instanceof String ? ((String) userAgent).getBytes(UTF_8) : new byte[0];
+        int headerSize = 1 + getVarIntLength(userAgentBytes.length) + userAgentBytes.length;
+        byte[] bytes = new byte[headerSize + json.length];
+        bytes[0] = SERIALIZATION_FORMAT_V2;
+        int offset = writeVarInt(userAgentBytes.length, bytes, 1);
+        System.arraycopy(userAgentBytes, 0, bytes, offset, userAgentBytes.length);
+        System.arraycopy(json, 0, bytes, headerSize, json.length);
+        return bytes;
+    }
+
+    /**
+     * Converts a byte array back into an
+     * event payload for sending.
+     * Events stored as JSON are returned as SerializedPayload,
+     * events stored with the previous formats as TrackerPayload.
+     *
+     * @param bytes the bytes to be converted
+     * @return the payload or null
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static Payload deserializePayload(@Nullable byte[] bytes) {
+        if (bytes != null && bytes.length > 0 && bytes[0] == SERIALIZATION_FORMAT_V2) {
+            try {
+                int[] position = {1};
+                String userAgent = readString(bytes, position);
+                byte[] json = new byte[bytes.length - position[0]];
+                System.arraycopy(bytes, position[0], json, 0, json.length);
+                return new SerializedPayload(json, userAgent.isEmpty() ? null : userAgent);
+            } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                Logger.e(TAG, "Unable to decode the stored event: %s", e.toString());
+                return null;
+            }
+        }
+        Map<String, String> map = deserializer(bytes);
+        if (map == null) {
+            return null;
+        }
+        TrackerPayload payload = new TrackerPayload();
+        payload.addMap((Map) map);
+        return payload;
+    }
+
+    /**
+     * Converts a byte array back into an
+     * event map for sending.
+     * It reads the JSON format, the compact format and
+     * the Java serialization used by previous versions
+     * of the tracker, so the events stored before the
+     * upgrade can still be sent.
+     *
+     * @param bytes the bytes to be converted
+     * @return the Map or null
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static Map<String, String> deserializer(@NonNull byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == SERIALIZATION_FORMAT_V2) {
+            Payload payload = deserializePayload(bytes);
+            return payload == null ? null : (Map<String, String>) payload.getMap();
+        }
+        if (bytes[0] != SERIALIZATION_FORMAT_V1) {
+            return deserializeWithJava(bytes);
+        }
+        try {
+            int[] position = {1};
+            int count = readVarInt(bytes, position);
+            Map<String, String> map = new HashMap<>((int) (count / 0.75f) + 1);
+            for (int i = 0; i < count; i++) {
+                String key = readString(bytes, position);
+                String value = readString(bytes, position);
+                map.put(key, value);
+            }
+            return map;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            Logger.e(TAG, "Unable to decode the stored event: %s", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Converts an event map to a byte array
+     * with the Java serialization.
+     *
      * @param map the map containing all
      *            the event parameters
      * @return the byte array or null
      */
     @Nullable
-    public static byte[] serialize(@NonNull Map<String, String> map) {
+    static byte[] serializeWithJava(@NonNull Map<String, ?> map) {
         byte[] newByteArray = null;
         try {
             ByteArrayOutputStream mem_out = new ByteArrayOutputStream();
@@ -322,15 +442,16 @@ public class Util {
     }
 
     /**
-     * Converts a byte array back into an
-     * event map for sending.
+     * Converts a byte array serialized
+     * with the Java serialization back into
+     * an event map.
      *
      * @param bytes the bytes to be converted
      * @return the Map or null
      */
     @Nullable
     @SuppressWarnings("unchecked")
-    public static Map<String, String> deserializer(@NonNull byte[] bytes) {
+    static Map<String, String> deserializeWithJava(@NonNull byte[] bytes) {
         Map<String, String> newMap = null;
         try {
             ByteArrayInputStream mem_in = new ByteArrayInputStream(bytes);
@@ -345,6 +466,57 @@ public class Util {
         return newMap;
     }
 
+    private static int getVarIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static int writeVarInt(int value, @NonNull byte[] bytes, int offset) {
+        while ((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int readVarInt(@NonNull byte[] bytes, @NonNull int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed length.");
+    }
+
+    @NonNull
+    private static String readString(@NonNull byte[] bytes, @NonNull int[] position) {
+        int length = readVarInt(bytes, position);
+        if (length < 0 || position[0] + length > bytes.length) {
+            throw new IllegalArgumentException("Malformed string length.");
+        }
+        String string = new String(bytes, position[0], length, UTF_8);
+        position[0] += length;
+        return string;
+    }
+
+    /**
+     * Returns whether the current thread is the main (UI) thread of the app.
+     *
+     * @return a boolean indicating the main thread
+     */
+    public static boolean isMainThread() {
+        Looper mainLooper = Looper.getMainLooper();
+        return mainLooper != null && mainLooper.getThread() == Thread.currentThread();
+    }
+
     /**
      * Converts a StackTrace to a String
      *
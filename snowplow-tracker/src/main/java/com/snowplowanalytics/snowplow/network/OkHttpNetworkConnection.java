@@ -6,28 +6,39 @@ import android.os.Build;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.snowplowanalytics.snowplow.internal.emitter.Executor;
 import com.snowplowanalytics.snowplow.internal.emitter.TLSArguments;
 import com.snowplowanalytics.snowplow.internal.emitter.TLSVersion;
 import com.snowplowanalytics.snowplow.tracker.BuildConfig;
 import com.snowplowanalytics.snowplow.internal.constants.TrackerConstants;
 import com.snowplowanalytics.snowplow.internal.tracker.Logger;
+import com.snowplowanalytics.snowplow.payload.SerializedPayload;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
 
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
+import okio.DeflaterSink;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Sink;
 
 import static com.snowplowanalytics.snowplow.network.HttpMethod.GET;
 import static com.snowplowanalytics.snowplow.network.HttpMethod.POST;
@@ -48,6 +59,8 @@ public class OkHttpNetworkConnection implements NetworkConnection {
     private final HttpMethod httpMethod;
     private final int emitTimeout;
     private final String customPostPath;
+    private final int maxConcurrentRequests;
+    private final RequestCompression requestCompression;
 
     private OkHttpClient client;
     private Uri.Builder uriBuilder;
@@ -62,6 +75,8 @@ public class OkHttpNetworkConnection implements NetworkConnection {
         private int emitTimeout = 5; // Optional
         OkHttpClient client = null; //Optional
         String customPostPath = null; //Optional
+        int maxConcurrentRequests = 4; // Optional
+        RequestCompression requestCompression = RequestCompression.NONE; // Optional
 
         /**
          * @param uri The uri of the collector
@@ -133,6 +148,30 @@ public class OkHttpNetworkConnection implements NetworkConnection {
             return this;
         }
 
+        /**
+         * @param maxConcurrentRequests The maximum number of requests sent to the collector
+         *                              in parallel. The requests are executed on a dispatcher
+         *                              dedicated to this connection, so they don't compete
+         *                              with the tracker's event processing.
+         * @return itself
+         */
+        @NonNull
+        public OkHttpNetworkConnectionBuilder maxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * @param requestCompression The compression of the body of the POST requests.
+         *                           The body is compressed while it's written to the connection.
+         * @return itself
+         */
+        @NonNull
+        public OkHttpNetworkConnectionBuilder requestCompression(@NonNull RequestCompression requestCompression) {
+            this.requestCompression = requestCompression;
+            return this;
+        }
+
         /**
          * Creates a new OkHttpNetworkConnection
          *
@@ -169,6 +208,8 @@ public class OkHttpNetworkConnection implements NetworkConnection {
         httpMethod = builder.httpMethod;
         emitTimeout = builder.emitTimeout;
         customPostPath = builder.customPostPath;
+        maxConcurrentRequests = Math.max(builder.maxConcurrentRequests, 1);
+        requestCompression = builder.requestCompression;
 
         TLSArguments tlsArguments = new TLSArguments(builder.tlsVersions);
         String protocolString = protocol == Protocol.HTTP ? "http://" : "https://";
@@ -183,18 +224,63 @@ public class OkHttpNetworkConnection implements NetworkConnection {
             uriBuilder.appendEncodedPath(this.customPostPath);
         }
 
+        // Requests run on a dispatcher owned by this connection
+        Dispatcher dispatcher = new Dispatcher(makeDispatcherExecutor());
+        dispatcher.setMaxRequests(maxConcurrentRequests);
+        dispatcher.setMaxRequestsPerHost(maxConcurrentRequests);
+
         // Configure with external OkHttpClient
         if (builder.client == null) {
             client = new OkHttpClient.Builder()
                     .sslSocketFactory(tlsArguments.getSslSocketFactory(), tlsArguments.getTrustManager())
                     .connectTimeout(15, TimeUnit.SECONDS)
                     .readTimeout(15, TimeUnit.SECONDS)
+                    .dispatcher(dispatcher)
                     .build();
         } else {
-            client = builder.client;
+            // It shares connection pool and interceptors with the external client
+            client = builder.client.newBuilder()
+                    .dispatcher(dispatcher)
+                    .build();
         }
     }
 
+    /**
+     * Creates the thread pool used by the dispatcher to execute the requests.
+     * The concurrency is bounded by the dispatcher, the threads are tagged
+     * for the TrafficStats and are terminated when idle.
+     *
+     * @return the executor service for the dispatcher
+     */
+    @NonNull
+    private static ExecutorService makeDispatcherExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(() -> {
+                TrafficStats.setThreadStatsTag(TRAFFIC_STATS_TAG);
+                runnable.run();
+            }, "snowplow-network-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the maximum number of requests sent in parallel
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * @return the compression of the body of the POST requests
+     */
+    @NonNull
+    public RequestCompression getRequestCompression() {
+        return requestCompression;
+    }
+
     @Override
     @NonNull
     public HttpMethod getHttpMethod() {
@@ -210,10 +296,10 @@ public class OkHttpNetworkConnection implements NetworkConnection {
     @NonNull
     @Override
     public List<RequestResult> sendRequests(@NonNull List<Request> requests) {
-        List<Future> futures = new ArrayList<>();
+        List<RequestCall> calls = new ArrayList<>();
         List<RequestResult> results = new ArrayList<>();
 
-        // Start all requests in the ThreadPool
+        // Enqueue all requests in the dispatcher
         for (Request request : requests) {
             String userAgent = request.customUserAgent != null ? request.customUserAgent : DEFAULT_USER_AGENT;
 
@@ -221,25 +307,18 @@ public class OkHttpNetworkConnection implements NetworkConnection {
                     ? buildGetRequest(request, userAgent)
                     : buildPostRequest(request, userAgent);
 
-            futures.add(Executor.futureCallable(getRequestCallable(okHttpRequest)));
+            RequestCall call = new RequestCall(client.newCall(okHttpRequest));
+            call.enqueue();
+            calls.add(call);
         }
 
-        Logger.d(TAG, "Request Futures: %s", futures.size());
+        Logger.d(TAG, "Request Calls: %s", calls.size());
 
-        // Get results of futures
+        // Get results of calls
         // - Wait up to emitTimeout seconds for the request
-        for (int i = 0; i < futures.size(); i++) {
-            int code = -1;
-
-            try {
-                code = (int) futures.get(i).get(emitTimeout, TimeUnit.SECONDS);
-            } catch (InterruptedException ie) {
-                Logger.e(TAG, "Request Future was interrupted: %s", ie.getMessage());
-            } catch (ExecutionException ee) {
-                Logger.e(TAG, "Request Future failed: %s", ee.getMessage());
-            } catch (TimeoutException te) {
-                Logger.e(TAG, "Request Future had a timeout: %s", te.getMessage());
-            }
+        for (int i = 0; i < calls.size(); i++) {
+            RequestCall call = calls.get(i);
+            int code = call.await(emitTimeout, TimeUnit.SECONDS);
 
             Request request = requests.get(i);
             List<Long> eventIds = request.emitterEventIds;
@@ -247,7 +326,7 @@ public class OkHttpNetworkConnection implements NetworkConnection {
                 Logger.track(TAG, "Request is oversized for emitter event IDs: %s", eventIds.toString());
                 results.add(new RequestResult(true, eventIds));
             } else {
-                results.add(new RequestResult(isSuccessfulSend(code), eventIds));
+                results.add(new RequestResult(isSuccessfulSend(code), eventIds, code, call.retryAfter));
             }
         }
         return results;
@@ -290,44 +369,130 @@ public class OkHttpNetworkConnection implements NetworkConnection {
      */
     private okhttp3.Request buildPostRequest(Request request, String userAgent) {
         String reqUrl = uriBuilder.build().toString();
-        RequestBody reqBody = RequestBody.create(JSON, request.payload.toString());
-        return new okhttp3.Request.Builder()
+        byte[] body = SerializedPayload.toJsonBytes(request.payload);
+        String contentEncoding = requestCompression.getContentEncoding();
+        okhttp3.Request.Builder builder = new okhttp3.Request.Builder()
                 .url(reqUrl)
-                .header("User-Agent", userAgent)
-                .post(reqBody)
+                .header("User-Agent", userAgent);
+        if (contentEncoding == null) {
+            return builder.post(RequestBody.create(JSON, body)).build();
+        }
+        return builder
+                .header("Content-Encoding", contentEncoding)
+                .post(new CompressedRequestBody(JSON, body, requestCompression))
                 .build();
     }
 
     /**
-     * Returns a Callable Request Send
-     *
-     * @param request the request to be
-     *                sent
-     * @return the new Callable object
+     * Request body compressed while it's written to the connection,
+     * so the compressed bytes are never held in memory.
      */
-    private Callable<Integer> getRequestCallable(final okhttp3.Request request) {
-        return () -> requestSender(request);
+    private static class CompressedRequestBody extends RequestBody {
+        private final MediaType contentType;
+        private final byte[] body;
+        private final RequestCompression compression;
+
+        CompressedRequestBody(@Nullable MediaType contentType, @NonNull byte[] body, @NonNull RequestCompression compression) {
+            this.contentType = contentType;
+            this.body = body;
+            this.compression = compression;
+        }
+
+        @Nullable
+        @Override
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1; // Unknown until the body is compressed
+        }
+
+        @Override
+        public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            Sink compressedSink = compression == RequestCompression.GZIP
+                    ? new GzipSink(sink)
+                    : new DeflaterSink(sink, new Deflater());
+            BufferedSink bufferedSink = Okio.buffer(compressedSink);
+            bufferedSink.write(body);
+            bufferedSink.close();
+        }
     }
 
     /**
-     * The function responsible for actually sending
-     * the request to the collector.
-     *
-     * @param request The request to be sent
-     * @return a RequestResult
+     * Request sent asynchronously through the dispatcher
+     * which result can be awaited by the emitter.
      */
-    private int requestSender(okhttp3.Request request) {
-        try {
-            Logger.v(TAG, "Sending request: %s", request);
-            TrafficStats.setThreadStatsTag(TRAFFIC_STATS_TAG);
-            Response resp = client.newCall(request).execute();
-            int code = resp.code();
-            resp.body().close();
+    private class RequestCall implements Callback {
+        private final Call call;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile int code = -1;
+        private volatile long retryAfter = 0;
+
+        RequestCall(@NonNull Call call) {
+            this.call = call;
+        }
 
+        void enqueue() {
+            Logger.v(TAG, "Sending request: %s", call.request());
+            call.enqueue(this);
+        }
+
+        /**
+         * Waits for the response of the collector.
+         * The call is cancelled if it doesn't complete in time.
+         *
+         * @param timeout the maximum time to wait
+         * @param unit the time unit of the timeout argument
+         * @return the response code, -1 if the request failed
+         */
+        int await(long timeout, @NonNull TimeUnit unit) {
+            try {
+                if (!latch.await(timeout, unit)) {
+                    Logger.e(TAG, "Request had a timeout: %s", call.request().url());
+                    call.cancel();
+                }
+            } catch (InterruptedException ie) {
+                Logger.e(TAG, "Request was interrupted: %s", ie.getMessage());
+                call.cancel();
+            }
             return code;
-        } catch (IOException e) {
+        }
+
+        @Override
+        public void onResponse(@NonNull Call call, @NonNull Response response) {
+            code = response.code();
+            if (code == 429 || code == 503) {
+                retryAfter = parseRetryAfter(response);
+            }
+            response.close();
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(@NonNull Call call, @NonNull IOException e) {
             Logger.e(TAG, "Request sending failed: %s", e.toString());
-            return -1;
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Reads the Retry-After header, expressed either in seconds or as an HTTP date.
+     *
+     * @param response the response of the collector
+     * @return the delay (in milliseconds) before retrying, 0 if not present
+     */
+    private static long parseRetryAfter(@NonNull Response response) {
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return Math.max(TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim())), 0);
+        } catch (NumberFormatException e) {
+            Date date = response.headers().getDate("Retry-After");
+            return date != null ? Math.max(date.getTime() - System.currentTimeMillis(), 0) : 0;
         }
     }
 
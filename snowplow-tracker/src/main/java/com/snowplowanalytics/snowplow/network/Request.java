@@ -19,19 +19,25 @@ import androidx.annotation.Nullable;
 import com.snowplowanalytics.snowplow.internal.constants.Parameters;
 import com.snowplowanalytics.snowplow.internal.constants.TrackerConstants;
 import com.snowplowanalytics.snowplow.payload.Payload;
-import com.snowplowanalytics.snowplow.payload.SelfDescribingJson;
-import com.snowplowanalytics.snowplow.payload.TrackerPayload;
+import com.snowplowanalytics.snowplow.payload.SerializedPayload;
 
+import org.json.JSONObject;
+
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Request class that contains the payloads to send
  * to the collector.
  */
 public class Request {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] PAYLOAD_BUNDLE_PREFIX = ("{\"schema\":"
+            + JSONObject.quote(TrackerConstants.SCHEMA_PAYLOAD_DATA) + ",\"data\":[").getBytes(UTF_8);
+    private static final byte[] PAYLOAD_BUNDLE_SUFFIX = "]}".getBytes(UTF_8);
+
     public final Payload payload;
     public final List<Long> emitterEventIds;
     public final boolean oversize;
@@ -63,21 +69,33 @@ public class Request {
 
     /**
      * Create a request object.
+     * The payloads are expected to share the same custom user agent.
      * @param payloads to send to the collector as a payload bundle.
      * @param emitterEventIds as reference of the events to send.
      */
     public Request(@NonNull List<Payload> payloads, @NonNull List<Long> emitterEventIds) {
-        String tempUserAgent = null;
-        ArrayList<Map> payloadData = new ArrayList<>();
-        for (Payload payload : payloads) {
-            payloadData.add(payload.getMap());
-            tempUserAgent = getUserAgent(payload);
+        // The payload bundle is built concatenating the JSON of the payloads
+        byte[][] payloadData = new byte[payloads.size()][];
+        int size = PAYLOAD_BUNDLE_PREFIX.length + PAYLOAD_BUNDLE_SUFFIX.length + Math.max(payloads.size() - 1, 0);
+        for (int i = 0; i < payloadData.length; i++) {
+            Payload payload = payloads.get(i);
+            payloadData[i] = SerializedPayload.toJsonBytes(payload);
+            size += payloadData[i].length;
         }
-        payload = new TrackerPayload();
-        SelfDescribingJson payloadBundle = new SelfDescribingJson(TrackerConstants.SCHEMA_PAYLOAD_DATA, payloadData);
-        payload.addMap(payloadBundle.getMap());
+        byte[] bundle = new byte[size];
+        System.arraycopy(PAYLOAD_BUNDLE_PREFIX, 0, bundle, 0, PAYLOAD_BUNDLE_PREFIX.length);
+        int offset = PAYLOAD_BUNDLE_PREFIX.length;
+        for (int i = 0; i < payloadData.length; i++) {
+            if (i > 0) {
+                bundle[offset++] = ',';
+            }
+            System.arraycopy(payloadData[i], 0, bundle, offset, payloadData[i].length);
+            offset += payloadData[i].length;
+        }
+        System.arraycopy(PAYLOAD_BUNDLE_SUFFIX, 0, bundle, offset, PAYLOAD_BUNDLE_SUFFIX.length);
+        payload = new SerializedPayload(bundle, null);
         this.emitterEventIds = emitterEventIds;
-        customUserAgent = tempUserAgent;
+        customUserAgent = payloads.isEmpty() ? null : getUserAgent(payloads.get(0));
         oversize = false;
     }
 
@@ -88,7 +106,10 @@ public class Request {
      * @return User-Agent string from subject settings or the default one.
      */
     @Nullable
-    private String getUserAgent(@NonNull Payload payload) {
+    public static String getUserAgent(@NonNull Payload payload) {
+        if (payload instanceof SerializedPayload) {
+            return ((SerializedPayload) payload).getUserAgent();
+        }
         HashMap hashMap = (HashMap) payload.getMap();
         return (String) hashMap.get(Parameters.USERAGENT);
     }
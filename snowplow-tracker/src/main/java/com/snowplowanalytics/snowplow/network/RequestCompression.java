@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.network;
+
+import androidx.annotation.Nullable;
+
+/**
+ * RequestCompression is used to set the compression of the body of POST requests.
+ * The collector must support the chosen Content-Encoding.
+ */
+public enum RequestCompression {
+    /**
+     * The body of the requests is sent uncompressed.
+     */
+    NONE(null),
+    /**
+     * The body of the requests is compressed with gzip.
+     */
+    GZIP("gzip"),
+    /**
+     * The body of the requests is compressed with zlib deflate.
+     */
+    DEFLATE("deflate");
+
+    private final String contentEncoding;
+
+    RequestCompression(@Nullable String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * @return the value of the Content-Encoding header, null if the body is not compressed
+     */
+    @Nullable
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+}
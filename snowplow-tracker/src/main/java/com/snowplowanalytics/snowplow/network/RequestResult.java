@@ -24,6 +24,8 @@ public class RequestResult {
 
     private final boolean success;
     private final List<Long> eventIds;
+    private final int statusCode;
+    private final long retryAfter;
 
     /**
      * Builds a result from a request attempt.
@@ -32,8 +34,23 @@ public class RequestResult {
      * @param eventIds a list of event ids involved in the sending
      */
     public RequestResult(boolean success, @NonNull List<Long> eventIds) {
+        this(success, eventIds, -1, 0);
+    }
+
+    /**
+     * Builds a result from a request attempt.
+     *
+     * @param success if the event returned a 200
+     * @param eventIds a list of event ids involved in the sending
+     * @param statusCode the response code, -1 if the request didn't get a response
+     * @param retryAfter the delay (in milliseconds) requested by the collector
+     *                   through the Retry-After header, 0 if not present
+     */
+    public RequestResult(boolean success, @NonNull List<Long> eventIds, int statusCode, long retryAfter) {
         this.success = success;
         this.eventIds = eventIds;
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
     }
 
     /**
@@ -50,4 +67,34 @@ public class RequestResult {
     public List<Long> getEventIds() {
         return this.eventIds;
     }
+
+    /**
+     * @return the response code, -1 if the request didn't get a response
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+
+    /**
+     * @return the delay (in milliseconds) requested by the collector before retrying
+     */
+    public long getRetryAfter() {
+        return this.retryAfter;
+    }
+
+    /**
+     * Returns whether the failed request can be sent again.
+     * The client errors (4xx) are not retried as the collector would
+     * reject the events again, except for timeouts (408) and
+     * rate limiting (429).
+     *
+     * @return whether the request failed and can be retried
+     */
+    public boolean isRetryable() {
+        if (success) {
+            return false;
+        }
+        boolean isClientError = statusCode >= 400 && statusCode < 500;
+        return !isClientError || statusCode == 408 || statusCode == 429;
+    }
 }
@@ -20,12 +20,10 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.snowplowanalytics.snowplow.internal.constants.Parameters;
+import com.snowplowanalytics.snowplow.internal.utils.JsonStreamWriter;
 import com.snowplowanalytics.snowplow.internal.utils.Preconditions;
-import com.snowplowanalytics.snowplow.internal.utils.Util;
 import com.snowplowanalytics.snowplow.globalcontexts.GlobalContext;
 
-import org.json.JSONObject;
-
 /**
  * Returns a SelfDescribingJson object which will contain
  * both the Schema and Data.
@@ -150,10 +148,10 @@ public class SelfDescribingJson {
 
     @NonNull
     public String toString() {
-        return new JSONObject(payload).toString();
+        return JsonStreamWriter.toJsonString(payload);
     }
 
     public long getByteSize() {
-        return Util.getUTF8Length(toString());
+        return JsonStreamWriter.getByteSize(payload);
     }
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.payload;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.snowplowanalytics.snowplow.internal.constants.Parameters;
+import com.snowplowanalytics.snowplow.internal.tracker.Logger;
+import com.snowplowanalytics.snowplow.internal.utils.JsonStreamWriter;
+import com.snowplowanalytics.snowplow.internal.utils.Util;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Payload already serialized in the JSON format sent to the collector.
+ * It's used for the events read from the EventStore so that they can be
+ * sent without being converted again from a map to JSON.
+ *
+ * Parameters added with `add(String, String)` which are not in the
+ * serialized JSON (e.g. the sending timestamp) are appended to it
+ * without parsing it. Any other access to the map parses the JSON
+ * and turns the payload into a regular map-based payload.
+ */
+public class SerializedPayload implements Payload {
+
+    private static final String TAG = SerializedPayload.class.getSimpleName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private byte[] json;
+    private final String userAgent;
+    private final Map<String, String> appendedParameters = new LinkedHashMap<>();
+    private TrackerPayload payload;
+
+    /**
+     * Creates a payload from its serialized JSON.
+     *
+     * @param json the UTF-8 bytes of the JSON object
+     * @param userAgent the `ua` parameter of the payload, if any
+     */
+    public SerializedPayload(@NonNull byte[] json, @Nullable String userAgent) {
+        this.json = json;
+        this.userAgent = userAgent;
+    }
+
+    /**
+     * Returns the UTF-8 bytes of the JSON representation of a payload.
+     * For a SerializedPayload the stored bytes are returned without copying them
+     * when no parameters have been appended.
+     *
+     * @param payload the payload to convert
+     * @return the JSON bytes
+     */
+    @NonNull
+    public static byte[] toJsonBytes(@NonNull Payload payload) {
+        if (payload instanceof SerializedPayload) {
+            return ((SerializedPayload) payload).getJsonBytes();
+        }
+        return JsonStreamWriter.toJsonBytes(payload.getMap());
+    }
+
+    /**
+     * @return the `ua` parameter of the payload, without parsing the JSON
+     */
+    @Nullable
+    public String getUserAgent() {
+        if (payload != null) {
+            Object value = payload.getMap().get(Parameters.USERAGENT);
+            return value instanceof String ? (String) value : null;
+        }
+        String appendedUserAgent = appendedParameters.get(Parameters.USERAGENT);
+        return appendedUserAgent != null ? appendedUserAgent : userAgent;
+    }
+
+    /**
+     * @return the UTF-8 bytes of the JSON object
+     */
+    @NonNull
+    public synchronized byte[] getJsonBytes() {
+        if (payload != null) {
+            return JsonStreamWriter.toJsonBytes(payload.getMap());
+        }
+        if (appendedParameters.isEmpty()) {
+            return json;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, String> entry : appendedParameters.entrySet()) {
+            builder.append(',')
+                    .append(JSONObject.quote(entry.getKey()))
+                    .append(':')
+                    .append(JSONObject.quote(entry.getValue()));
+        }
+        // The first comma isn't needed if the JSON object is empty
+        byte[] appended = builder.substring(json.length > 2 ? 0 : 1).getBytes(UTF_8);
+        byte[] result = new byte[json.length + appended.length];
+        System.arraycopy(json, 0, result, 0, json.length - 1);
+        System.arraycopy(appended, 0, result, json.length - 1, appended.length);
+        result[result.length - 1] = '}';
+        return result;
+    }
+
+    // Payload methods
+
+    @Override
+    public synchronized void add(@NonNull String key, @Nullable String value) {
+        if (payload == null && value != null && !value.isEmpty()
+                && (appendedParameters.containsKey(key) || !containsKey(key))) {
+            appendedParameters.put(key, value);
+            return;
+        }
+        getPayload().add(key, value);
+    }
+
+    @Override
+    public synchronized void add(@NonNull String key, @Nullable Object value) {
+        if (value instanceof String) {
+            add(key, (String) value);
+            return;
+        }
+        getPayload().add(key, value);
+    }
+
+    @Override
+    public synchronized void addMap(@NonNull Map<String, Object> map) {
+        getPayload().addMap(map);
+    }
+
+    @Override
+    public synchronized void addMap(@NonNull Map map, @NonNull Boolean base64_encoded, @Nullable String type_encoded, @Nullable String type_no_encoded) {
+        getPayload().addMap(map, base64_encoded, type_encoded, type_no_encoded);
+    }
+
+    @NonNull
+    @Override
+    public synchronized Map getMap() {
+        return getPayload().getMap();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return new String(getJsonBytes(), UTF_8);
+    }
+
+    @Override
+    public synchronized long getByteSize() {
+        if (payload != null) {
+            return payload.getByteSize();
+        }
+        long size = json.length;
+        for (Map.Entry<String, String> entry : appendedParameters.entrySet()) {
+            size += 2 + Util.getUTF8Length(JSONObject.quote(entry.getKey()))
+                    + Util.getUTF8Length(JSONObject.quote(entry.getValue()));
+        }
+        if (json.length <= 2 && !appendedParameters.isEmpty()) {
+            size--;
+        }
+        return size;
+    }
+
+    // Private methods
+
+    /**
+     * Parses the JSON the first time the map is needed.
+     *
+     * @return the map-based payload
+     */
+    @NonNull
+    private TrackerPayload getPayload() {
+        if (payload == null) {
+            TrackerPayload trackerPayload = new TrackerPayload();
+            try {
+                trackerPayload.addMap(toMap(new JSONObject(new String(json, UTF_8))));
+            } catch (JSONException e) {
+                Logger.e(TAG, "Unable to parse the serialized payload: %s", e.getMessage());
+            }
+            for (Map.Entry<String, String> entry : appendedParameters.entrySet()) {
+                trackerPayload.add(entry.getKey(), entry.getValue());
+            }
+            appendedParameters.clear();
+            payload = trackerPayload;
+            json = null;
+        }
+        return payload;
+    }
+
+    /**
+     * Checks whether the key is in the serialized JSON.
+     * False positives are possible (e.g. the key appears in a nested object)
+     * and only cause the JSON to be parsed.
+     */
+    private boolean containsKey(@NonNull String key) {
+        byte[] pattern = (JSONObject.quote(key) + ":").getBytes(UTF_8);
+        outer:
+        for (int i = 0; i <= json.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (json[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @NonNull
+    private static Map<String, Object> toMap(@NonNull JSONObject jsonObject) throws JSONException {
+        Map<String, Object> map = new HashMap<>();
+        Iterator<String> keys = jsonObject.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            map.put(key, fromJson(jsonObject.get(key)));
+        }
+        return map;
+    }
+
+    @NonNull
+    private static List<Object> toList(@NonNull JSONArray jsonArray) throws JSONException {
+        List<Object> list = new ArrayList<>(jsonArray.length());
+        for (int i = 0; i < jsonArray.length(); i++) {
+            list.add(fromJson(jsonArray.get(i)));
+        }
+        return list;
+    }
+
+    @Nullable
+    private static Object fromJson(@Nullable Object value) throws JSONException {
+        if (value instanceof JSONObject) {
+            return toMap((JSONObject) value);
+        }
+        if (value instanceof JSONArray) {
+            return toList((JSONArray) value);
+        }
+        if (value == JSONObject.NULL) {
+            return null;
+        }
+        return value;
+    }
+}
@@ -19,11 +19,9 @@ import androidx.annotation.Nullable;
 import java.util.HashMap;
 import java.util.Map;
 
-import com.snowplowanalytics.snowplow.internal.utils.Util;
+import com.snowplowanalytics.snowplow.internal.utils.JsonStreamWriter;
 import com.snowplowanalytics.snowplow.internal.tracker.Logger;
 
-import org.json.JSONObject;
-
 /**
  * Returns a standard Tracker Payload consisting of
  * many key - pair values.
@@ -40,7 +38,7 @@ public class TrackerPayload implements Payload {
             payload.remove(key);
             return;
         }
-        Logger.v(TAG, "Adding new kv pair: " + key + "->%s", value);
+        Logger.v(TAG, "Adding new kv pair: %s->%s", key, value);
         payload.put(key, value);
     }
 
@@ -51,7 +49,7 @@ public class TrackerPayload implements Payload {
             payload.remove(key);
             return;
         }
-        Logger.v(TAG, "Adding new kv pair: " + key + "->%s", value);
+        Logger.v(TAG, "Adding new kv pair: %s->%s", key, value);
         payload.put(key, value);
     }
 
@@ -76,13 +74,12 @@ public class TrackerPayload implements Payload {
             return;
         }
 
-        String mapString = new JSONObject(map).toString();
         Logger.v(TAG, "Adding new map: %s", map);
 
         if (base64_encoded) { // base64 encoded data
-            add(type_encoded, Util.base64Encode(mapString));
+            add(type_encoded, JsonStreamWriter.toBase64(map));
         } else { // add it as a child node
-            add(type_no_encoded, mapString);
+            add(type_no_encoded, JsonStreamWriter.toJsonString(map));
         }
     }
 
@@ -93,10 +90,10 @@ public class TrackerPayload implements Payload {
 
     @NonNull
     public String toString() {
-        return new JSONObject(payload).toString();
+        return JsonStreamWriter.toJsonString(payload);
     }
 
     public long getByteSize() {
-        return Util.getUTF8Length(toString());
+        return JsonStreamWriter.getByteSize(payload);
     }
 }
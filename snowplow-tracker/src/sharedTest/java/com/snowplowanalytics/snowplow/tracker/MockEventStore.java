@@ -67,6 +67,9 @@ public class MockEventStore implements EventStore {
             List<String> eventPayloads = new ArrayList<>();
             List<EmitterEvent> events = new ArrayList<>();
             for (Map.Entry<Long, Payload> entry : db.entrySet()) {
+                if (events.size() >= queryLimit) {
+                    break;
+                }
                 Payload payloadCopy = new TrackerPayload();
                 payloadCopy.addMap(entry.getValue().getMap());
                 EmitterEvent event = new EmitterEvent(payloadCopy, entry.getKey());
@@ -74,9 +77,6 @@ public class MockEventStore implements EventStore {
                 eventPayloads.add(payloadCopy.getMap().toString());
                 events.add(event);
             }
-            if (queryLimit < events.size()) {
-                events = events.subList(0, queryLimit);
-            }
             Logger.v("MockEventStore", "getEmittableEvents ids: %s", eventIds);
             Logger.v("MockEventStore", "getEmittableEvents payloads: %s", eventPayloads);
             return events;
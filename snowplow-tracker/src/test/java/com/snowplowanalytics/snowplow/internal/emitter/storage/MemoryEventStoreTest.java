@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2015-2021 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+package com.snowplowanalytics.snowplow.internal.emitter.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.annotation.NonNull;
+
+import com.snowplowanalytics.snowplow.emitter.EmitterEvent;
+import com.snowplowanalytics.snowplow.emitter.LeasingEventStore;
+import com.snowplowanalytics.snowplow.payload.Payload;
+import com.snowplowanalytics.snowplow.payload.TrackerPayload;
+import com.snowplowanalytics.snowplow.tracker.MockEventStore;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// JVM tests: the store doesn't need the Android runtime when it's created without a context
+public class MemoryEventStoreTest {
+
+    static int QUERY_LIMIT = 150;
+
+    @Test
+    public void testEventsAreKeptInMemory() {
+        MockEventStore persistentStore = new MockEventStore();
+        MemoryEventStore eventStore = new MemoryEventStore(10, persistentStore);
+        for (int i = 0; i < 5; i++) {
+            eventStore.add(getEvent(i));
+        }
+
+        assertEquals(5, eventStore.getSize());
+        assertEquals(5, eventStore.getMemoryEventCount());
+        assertEquals(0, persistentStore.getSize());
+        List<EmitterEvent> events = eventStore.getEmittableEvents(3);
+        assertEquals(3, events.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.valueOf(i), events.get(i).payload.getMap().get("index"));
+            assertTrue(events.get(i).eventId < 0);
+        }
+    }
+
+    @Test
+    public void testRemoveEventsInMemory() {
+        MemoryEventStore eventStore = new MemoryEventStore(10, new MockEventStore());
+        for (int i = 0; i < 5; i++) {
+            eventStore.add(getEvent(i));
+        }
+        List<EmitterEvent> events = eventStore.getEmittableEvents(QUERY_LIMIT);
+
+        assertTrue(eventStore.removeEvent(events.get(1).eventId));
+        assertFalse(eventStore.removeEvent(events.get(1).eventId));
+        assertTrue(eventStore.removeEvents(Arrays.asList(events.get(0).eventId, events.get(3).eventId)));
+        assertFalse(eventStore.removeEvents(new ArrayList<>()));
+        assertEquals(2, eventStore.getSize());
+
+        events = eventStore.getEmittableEvents(QUERY_LIMIT);
+        assertEquals("2", events.get(0).payload.getMap().get("index"));
+        assertEquals("4", events.get(1).payload.getMap().get("index"));
+    }
+
+    @Test
+    public void testEventsAreSpilledWhenBufferIsFull() {
+        MockEventStore persistentStore = new MockEventStore();
+        MemoryEventStore eventStore = new MemoryEventStore(4, persistentStore);
+        for (int i = 0; i < 6; i++) {
+            eventStore.add(getEvent(i));
+        }
+
+        assertEquals(4, persistentStore.getSize());
+        assertEquals(2, eventStore.getMemoryEventCount());
+        assertEquals(6, eventStore.getSize());
+
+        // The events spilled are older, so they are returned first
+        List<EmitterEvent> events = eventStore.getEmittableEvents(QUERY_LIMIT);
+        assertEquals(6, events.size());
+        assertTrue(events.get(0).eventId >= 0);
+        assertEquals("4", events.get(4).payload.getMap().get("index"));
+        assertEquals("5", events.get(5).payload.getMap().get("index"));
+
+        List<Long> ids = new ArrayList<>();
+        for (EmitterEvent event : events) {
+            ids.add(event.eventId);
+        }
+        assertTrue(eventStore.removeEvents(ids));
+        assertEquals(0, eventStore.getSize());
+        assertEquals(0, persistentStore.getSize());
+    }
+
+    @Test
+    public void testEventsAreSpilledOnMemoryPressure() throws InterruptedException {
+        Thread testThread = Thread.currentThread();
+        List<Thread> spillThreads = new ArrayList<>();
+        MockEventStore persistentStore = new MockEventStore() {
+            @Override
+            public void add(@NonNull Payload payload) {
+                spillThreads.add(Thread.currentThread());
+                super.add(payload);
+            }
+        };
+        MemoryEventStore eventStore = new MemoryEventStore(10, persistentStore);
+        eventStore.add(getEvent(0));
+        eventStore.add(getEvent(1));
+
+        eventStore.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        waitForSpill(eventStore);
+        assertEquals(2, persistentStore.getSize());
+        assertEquals(0, eventStore.getMemoryEventCount());
+
+        eventStore.add(getEvent(2));
+        eventStore.onLowMemory();
+        waitForSpill(eventStore);
+        assertEquals(3, persistentStore.getSize());
+        assertEquals(3, eventStore.getSize());
+        // The callbacks run on the main thread, the events are written on another thread
+        assertFalse(spillThreads.contains(testThread));
+    }
+
+    @Test
+    public void testRingBufferWrapsAround() {
+        MockEventStore persistentStore = new MockEventStore();
+        MemoryEventStore eventStore = new MemoryEventStore(3, persistentStore);
+        for (int i = 0; i < 10; i++) {
+            eventStore.add(getEvent(i));
+            List<EmitterEvent> events = eventStore.getEmittableEvents(QUERY_LIMIT);
+            assertEquals(1, events.size());
+            assertEquals(String.valueOf(i), events.get(0).payload.getMap().get("index"));
+            assertTrue(eventStore.removeEvent(events.get(0).eventId));
+        }
+        assertEquals(0, eventStore.getSize());
+        assertEquals(0, persistentStore.getSize());
+    }
+
+    @Test
+    public void testRemoveAllEvents() {
+        MockEventStore persistentStore = new MockEventStore();
+        MemoryEventStore eventStore = new MemoryEventStore(2, persistentStore);
+        for (int i = 0; i < 5; i++) {
+            eventStore.add(getEvent(i));
+        }
+        assertTrue(eventStore.removeAllEvents());
+        assertEquals(0, eventStore.getSize());
+        assertEquals(0, eventStore.getEmittableEvents(QUERY_LIMIT).size());
+    }
+
+    @Test
+    public void testLeasedEventsAreNotLeasedAgain() {
+        MockEventStore persistentStore = new MockEventStore();
+        MemoryEventStore eventStore = new MemoryEventStore(3, persistentStore);
+        for (int i = 0; i < 5; i++) {
+            eventStore.add(getEvent(i));
+        }
+
+        List<EmitterEvent> first = eventStore.lease(3, 60000);
+        List<EmitterEvent> second = eventStore.lease(3, 60000);
+        assertEquals(3, first.size());
+        assertEquals(2, second.size());
+        assertEquals("3", second.get(0).payload.getMap().get("index"));
+        assertEquals(0, eventStore.lease(3, 60000).size());
+
+        assertTrue(eventStore.ack(getIds(first)));
+        eventStore.release(getIds(second));
+        assertEquals(2, eventStore.getSize());
+        List<EmitterEvent> third = eventStore.lease(3, 60000);
+        assertEquals(2, third.size());
+        assertEquals("3", third.get(0).payload.getMap().get("index"));
+    }
+
+    @Test
+    public void testExpiredLeasesAreLeasedAgain() throws InterruptedException {
+        MemoryEventStore eventStore = new MemoryEventStore(10, new MockEventStore());
+        eventStore.add(getEvent(0));
+
+        assertEquals(1, eventStore.lease(1, 100).size());
+        assertEquals(0, eventStore.lease(1, 100).size());
+        Thread.sleep(200);
+        assertEquals(1, eventStore.lease(1, 100).size());
+    }
+
+    @Test
+    public void testAdapterLeasesEventStore() {
+        MockEventStore mockEventStore = new MockEventStore();
+        LeasingEventStore eventStore = LeasingEventStoreAdapter.of(mockEventStore);
+        assertSame(eventStore, LeasingEventStoreAdapter.of(eventStore));
+        for (int i = 0; i < 4; i++) {
+            eventStore.add(getEvent(i));
+        }
+
+        List<EmitterEvent> first = eventStore.lease(2, 60000);
+        List<EmitterEvent> second = eventStore.lease(2, 60000);
+        assertEquals("0", first.get(0).payload.getMap().get("index"));
+        assertEquals("2", second.get(0).payload.getMap().get("index"));
+
+        assertTrue(eventStore.ack(getIds(second)));
+        assertEquals(2, mockEventStore.getSize());
+        assertEquals(0, eventStore.lease(2, 60000).size());
+        eventStore.release(getIds(first));
+        assertEquals(2, eventStore.lease(2, 60000).size());
+    }
+
+    @Test
+    public void testCloseSpillsEventsInMemory() throws InterruptedException {
+        MockEventStore persistentStore = new MockEventStore();
+        MemoryEventStore eventStore = new MemoryEventStore(10, persistentStore);
+        eventStore.add(getEvent(0));
+        eventStore.add(getEvent(1));
+
+        eventStore.close();
+        waitForSpill(eventStore);
+        assertEquals(2, persistentStore.getSize());
+        assertEquals(0, eventStore.getMemoryEventCount());
+        assertEquals(2, eventStore.getSize());
+    }
+
+    // Helper Methods
+
+    private void waitForSpill(MemoryEventStore eventStore) throws InterruptedException {
+        for (int i = 0; i < 50 && eventStore.getMemoryEventCount() > 0; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    private List<Long> getIds(List<EmitterEvent> events) {
+        List<Long> ids = new ArrayList<>();
+        for (EmitterEvent event : events) {
+            ids.add(event.eventId);
+        }
+        return ids;
+    }
+
+    private Payload getEvent(int index) {
+        TrackerPayload payload = new TrackerPayload();
+        payload.add("e", "pv");
+        payload.add("index", String.valueOf(index));
+        return payload;
+    }
+}